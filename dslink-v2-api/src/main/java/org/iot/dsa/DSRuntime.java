@@ -1,5 +1,10 @@
 package org.iot.dsa;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import org.iot.dsa.time.Time;
 
 /**
@@ -13,12 +18,24 @@ public class DSRuntime {
     // Fields
     ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * The default timer resolution in milliseconds.
+     */
+    public static final long DEFAULT_TIMER_RESOLUTION = 5;
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
     private static boolean alive = true;
+    private static volatile Executor executor;
     private static long nextCycle = 0;
     private static RuntimeThread runtimeThread;
     private static DSThreadPool threadPool;
-    private static Timer timerHead;
-    private static Timer timerTail;
+    private static long tick; //the next tick to be processed
+    private static long tickNanos = DEFAULT_TIMER_RESOLUTION * Time.NANOS_IN_MS;
+    private static int timerCount = 0;
+    private static final Timer[] wheel = new Timer[WHEEL_SIZE];
+    private static long wheelStart;
 
     ///////////////////////////////////////////////////////////////////////////
     // Constructors
@@ -31,11 +48,70 @@ public class DSRuntime {
     // Methods
     ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * The executor behind the run methods, the default thread pool unless another has been set.
+     */
+    public static Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * The default thread pool, which may not be executing anything if another executor has been
+     * set.
+     */
+    public static DSThreadPool getThreadPool() {
+        return threadPool;
+    }
+
+    /**
+     * The number of timers currently scheduled.
+     */
+    public static int getTimerCount() {
+        synchronized (DSRuntime.class) {
+            return timerCount;
+        }
+    }
+
+    /**
+     * The granularity of timers in milliseconds.
+     */
+    public static long getTimerResolution() {
+        synchronized (DSRuntime.class) {
+            return tickNanos / Time.NANOS_IN_MS;
+        }
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for every runnable.  Virtual threads
+     * are cheap to block, so links with many slow device reads don't tie up pool threads.  This
+     * is loaded reflectively so the SDK still compiles and runs on Java 8.
+     * <p>
+     * Virtual threads still pin their carrier while blocked inside a synchronized block, so
+     * this isn't a cure for long blocking work done while holding a monitor.
+     *
+     * @param name Thread name prefix, a sequence number will be appended.
+     * @return Null if virtual threads are not supported by this JVM (requires Java 21+).
+     */
+    public static ExecutorService newVirtualThreadExecutor(String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method meth = builderClass.getMethod("name", String.class, long.class);
+            builder = meth.invoke(builder, name, 0L);
+            ThreadFactory factory =
+                    (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            meth = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) meth.invoke(null, factory);
+        } catch (Exception x) {
+            return null;
+        }
+    }
+
     /**
      * Run as soon as possible on the application's thread pool and run only once.
      */
     public static void run(Runnable arg) {
-        threadPool.enqueue(arg);
+        executor.execute(arg);
     }
 
     /**
@@ -65,17 +141,7 @@ public class DSRuntime {
         long startNanos = System.nanoTime() + delayNanos;
         Timer f = new Timer(arg, startNanos, intervalNanos);
         synchronized (DSRuntime.class) {
-            if (timerHead == null) {
-                timerHead = f;
-                timerTail = f;
-            } else {
-                timerTail.next = f;
-                timerTail = f;
-            }
-            if (startNanos - nextCycle < 0) {
-                nextCycle = startNanos;
-                DSRuntime.class.notifyAll();
-            }
+            schedule(f);
         }
         return f;
     }
@@ -104,72 +170,111 @@ public class DSRuntime {
         long startNanos = System.nanoTime() + delayNanos;
         Timer f = new Timer(arg, startNanos, -1);
         synchronized (DSRuntime.class) {
-            if (timerHead == null) {
-                timerHead = f;
-                timerTail = f;
-            } else {
-                timerTail.next = f;
-                timerTail = f;
+            schedule(f);
+        }
+        return f;
+    }
+
+    /**
+     * Replaces the executor behind the run methods.  Runnables already submitted to the
+     * previous executor will still be executed by it.
+     *
+     * @param arg Null to restore the default thread pool.
+     */
+    public static void setExecutor(Executor arg) {
+        if (arg == null) {
+            arg = threadPool;
+        }
+        executor = arg;
+    }
+
+    /**
+     * Sets the granularity of timers, all scheduled timers are moved to the new wheel.  Finer
+     * resolutions are more accurate but wake up the runtime thread more often.
+     *
+     * @param millis Must be greater than zero.
+     */
+    public static void setTimerResolution(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Timer resolution must be > 0");
+        }
+        synchronized (DSRuntime.class) {
+            long nanos = millis * Time.NANOS_IN_MS;
+            if (nanos == tickNanos) {
+                return;
             }
-            if (startNanos - nextCycle < 0) {
-                nextCycle = startNanos;
-                DSRuntime.class.notifyAll();
+            Timer head = null;
+            Timer timer;
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                while ((timer = wheel[i]) != null) {
+                    unschedule(timer);
+                    timer.next = head;
+                    head = timer;
+                }
+            }
+            tickNanos = nanos;
+            wheelStart = System.nanoTime();
+            tick = 0;
+            nextCycle = wheelStart;
+            while (head != null) {
+                timer = head;
+                head = head.next;
+                timer.next = null;
+                schedule(timer);
             }
+            DSRuntime.class.notifyAll();
         }
-        return f;
     }
 
     /**
-     * Returns the next time execution is needed.
+     * Processes every tick that has elapsed and executes the due timers.
      */
     private static void executeTimers() {
         long now = System.nanoTime();
-        long nextCycleTmp = now + 60000000000L;
-        Timer current;
+        Timer due = null;
+        Timer timer;
         Timer next;
-        Timer keepHead = null;
-        Timer keepTail = null;
-        long tmp;
-        boolean futureWork;
-        //Take the task link list.
+        //Take the timers that are due.
         synchronized (DSRuntime.class) {
-            nextCycle = nextCycleTmp;
-            current = timerHead;
-            timerHead = null;
-            timerTail = null;
-        }
-        //Execute items (if needed) and retains tasks with future work.
-        while (alive && (current != null)) {
-            futureWork = current.run(now);
-            next = current.next;
-            current.next = null;
-            if (futureWork) {
-                tmp = current.nextRunNanos();
-                if (tmp - nextCycleTmp < 0) {
-                    nextCycleTmp = tmp;
+            long nowTick = (now - wheelStart) / tickNanos;
+            while (tick <= nowTick) {
+                timer = wheel[(int) (tick & WHEEL_MASK)];
+                while (timer != null) {
+                    next = timer.next;
+                    if (timer.rounds <= 0) {
+                        unschedule(timer);
+                        timer.next = due;
+                        due = timer;
+                    } else {
+                        timer.rounds--;
+                    }
+                    timer = next;
                 }
-                if (keepHead == null) {
-                    keepHead = current;
-                    keepTail = current;
-                } else {
-                    keepTail.next = current;
-                    keepTail = current;
+                tick++;
+            }
+        }
+        //Execute items and reschedule those with future work.
+        while (alive && (due != null)) {
+            timer = due;
+            due = due.next;
+            timer.next = null;
+            if (timer.run(now)) {
+                synchronized (DSRuntime.class) {
+                    if (!timer.done) {
+                        schedule(timer);
+                    }
                 }
             }
-            current = next;
         }
-        //Add the tasks that have future work back to the main linked list.
+        //Find the next bucket with something in it.
         synchronized (DSRuntime.class) {
-            if (nextCycleTmp - nextCycle < 0) {
-                nextCycle = nextCycleTmp;
-            }
-            if (keepHead != null) {
-                if (timerHead == null) {
-                    timerHead = keepHead;
-                    timerTail = keepTail;
-                } else {
-                    timerTail.next = keepHead;
-                    timerTail = keepTail;
+            nextCycle = now + Time.MILLIS_MINUTE * Time.NANOS_IN_MS;
+            if (timerCount > 0) {
+                for (int i = 0; i < WHEEL_SIZE; i++) {
+                    if (wheel[(int) ((tick + i) & WHEEL_MASK)] != null) {
+                        nextCycle = tickToNanos(tick + i);
+                        break;
+                    }
                 }
             }
         }
@@ -183,14 +288,82 @@ public class DSRuntime {
         return nowMillis + millisTillTime;
     }
 
+    /**
+     * Hands a due timer to the executor.  The saturation policy of a DSThreadPool doesn't apply
+     * because the timer thread must never block or run the timer itself.
+     */
+    private static void runTimer(Timer timer) {
+        Executor exec = executor;
+        if (exec instanceof DSThreadPool) {
+            ((DSThreadPool) exec).enqueueUnbounded(timer);
+        } else {
+            exec.execute(timer);
+        }
+    }
+
+    /**
+     * Adds the timer to the wheel, must be called while holding the DSRuntime.class lock.
+     */
+    private static void schedule(Timer timer) {
+        long deadline = timer.nextRunNanos() - wheelStart;
+        //round up so a timer never runs before it is due
+        long ticks = deadline <= 0 ? 0 : ((deadline + tickNanos - 1) / tickNanos);
+        if (ticks < tick) {
+            ticks = tick;
+        }
+        timer.rounds = (ticks - tick) / WHEEL_SIZE;
+        int idx = (int) (ticks & WHEEL_MASK);
+        timer.bucket = idx;
+        timer.prev = null;
+        timer.next = wheel[idx];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        wheel[idx] = timer;
+        timerCount++;
+        long tickTime = tickToNanos(ticks);
+        if (tickTime - nextCycle < 0) {
+            nextCycle = tickTime;
+            DSRuntime.class.notifyAll();
+        }
+    }
+
     private static void shutdown() {
         synchronized (DSRuntime.class) {
             alive = false;
             threadPool.shutdown();
+            if (executor instanceof ExecutorService) {
+                ((ExecutorService) executor).shutdown();
+            }
             DSRuntime.class.notifyAll();
         }
     }
 
+    private static long tickToNanos(long tick) {
+        return wheelStart + (tick * tickNanos);
+    }
+
+    /**
+     * Removes the timer from its bucket, must be called while holding the DSRuntime.class lock.
+     */
+    private static void unschedule(Timer timer) {
+        if (timer.bucket < 0) {
+            return;
+        }
+        if (timer.prev == null) {
+            wheel[timer.bucket] = timer.next;
+        } else {
+            timer.prev.next = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.bucket = -1;
+        timer.next = null;
+        timer.prev = null;
+        timerCount--;
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Inner Classes
     ///////////////////////////////////////////////////////////////////////////
@@ -244,16 +417,19 @@ public class DSRuntime {
      */
     public static class Timer implements Runnable {
 
-        boolean cancelled = false;
+        private int bucket = -1; //wheel index, -1 when not scheduled
+        volatile boolean cancelled = false;
         private long count = 0;
-        boolean done = false;
+        volatile boolean done = false;
         boolean hasRun = false;
         private long interval;
         private long lastRun = 0;
-        private Timer next; //linked list
+        private Timer next; //bucket linked list
         private long nextRun;
+        private Timer prev; //bucket linked list
+        private long rounds; //wheel revolutions remaining
         private Runnable runnable;
-        private boolean running = false;
+        private volatile boolean running = false;
         private boolean skipMissed = true;
 
         private Timer(Runnable runnable, long start, long interval) {
@@ -267,12 +443,15 @@ public class DSRuntime {
 
         /**
          * Cancel execution, will not impact current running tasks and will have no effect if
-         * already cancelled.
+         * already cancelled.  The timer is removed from the schedule immediately.
          */
         public void cancel() {
             if (!done) {
                 done = true;
                 cancelled = true;
+                synchronized (DSRuntime.class) {
+                    unschedule(this);
+                }
             }
         }
 
@@ -387,7 +566,7 @@ public class DSRuntime {
                 return true;
             }
             running = true;
-            DSRuntime.run(this);
+            runTimer(this);
             count++;
             lastRun = nextRun;
             hasRun = true;
@@ -420,6 +599,9 @@ public class DSRuntime {
         threadPool = new DSThreadPool("DSRuntime");
         int min = Math.max(4, DSThreadPool.getNumProcessors());
         threadPool.setMinMax(min, -1);
+        executor = threadPool;
+        wheelStart = System.nanoTime();
+        nextCycle = wheelStart + Time.MILLIS_MINUTE * Time.NANOS_IN_MS;
         //threadPool.setMinMax(min, DSThreadPool.getNumProcessors() * 25);
         runtimeThread = new RuntimeThread();
         runtimeThread.start();
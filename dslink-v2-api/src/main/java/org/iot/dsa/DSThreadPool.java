@@ -1,33 +1,63 @@
 package org.iot.dsa;
 
-import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.iot.dsa.time.Time;
 
 /**
- * A simple thread pool with the option for an unbounded maximum number of threads.
+ * A work stealing thread pool with the option for an unbounded maximum number of threads.
+ * <p>
+ * Runnables enqueued by a thread outside the pool go to a shared lock free queue.  Runnables
+ * enqueued by a pool thread go to the end of that thread's own deque.  Idle threads take
+ * from their own deque first, then the shared queue, and finally steal from the deques of
+ * other threads.  Threads with nothing to do park for a bounded amount of time and only the
+ * enqueue that finds no idle thread will create a new one.
+ * <p>
+ * The pool can be bounded with a max number of threads and a max queue size.  When the queue
+ * is full, the saturation policy either runs the runnable on the calling thread, or blocks the
+ * caller until there is room.  Pool threads are never blocked, they always run the runnable
+ * themselves.  The DSRuntime timer thread is exempt, it must never block or run a timer itself,
+ * so it always enqueues.
  *
  * @author Aaron Hansen
  */
-class DSThreadPool {
+public class DSThreadPool implements Executor {
 
     /////////////////////////////////////////////////////////////////
     // Constants
     /////////////////////////////////////////////////////////////////
 
+    private static final long PARK_NANOS = Time.MILLIS_FIVE_SECONDS * Time.NANOS_IN_MS;
+
     /////////////////////////////////////////////////////////////////
     // Fields
     /////////////////////////////////////////////////////////////////
 
-    private boolean alive = true;
-    private int idleThreads = 0;
-    private int max;
-    private int min;
-    private int numThreads = 0;
-    private LinkedList queue = new LinkedList();
+    private volatile boolean alive = true;
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final Object capacity = new Object();
+    private final ConcurrentLinkedDeque<DSThread> idleThreads = new ConcurrentLinkedDeque<>();
+    private volatile int max;
+    private volatile int maxQueue = -1;
+    private volatile int min;
+    private final AtomicInteger numThreads = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final LongAdder steals = new LongAdder();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder taken = new LongAdder();
     private String threadName;
-    private int totalCreated = 0;
+    private final AtomicInteger totalCreated = new AtomicInteger();
+    private volatile SaturationPolicy saturationPolicy = SaturationPolicy.CALLER_RUNS;
+    private volatile DSThread[] threads = new DSThread[0];
+    private final AtomicInteger waiting = new AtomicInteger();
 
     /////////////////////////////////////////////////////////////////
     // Constructors
@@ -71,19 +101,53 @@ class DSThreadPool {
      * Enqueue the runnable to be executed by a thread in the pool.  If the thread pool has been
      * destroyed this does nothing.
      */
-    public synchronized void enqueue(Runnable arg) {
-        if (alive) {
-            queue.add(arg);
-            updateThreads();
-            notify();
-        }
+    public void enqueue(Runnable arg) {
+        enqueue(arg, true);
+    }
+
+    /**
+     * Calls enqueue.
+     */
+    @Override
+    public void execute(Runnable arg) {
+        enqueue(arg);
+    }
+
+    /**
+     * The number of times a caller was blocked because the queue was full.
+     */
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    /**
+     * The number of times a runnable was executed on the calling thread because the queue was
+     * full.
+     */
+    public long getCallerRunsCount() {
+        return callerRuns.sum();
+    }
+
+    /**
+     * The number of threads currently parked waiting for work.
+     */
+    public int getIdleThreads() {
+        return idleThreads.size();
     }
 
     /**
      * The maximum number of threads to keep alive.  If 0 or less, the thread pool is unbounded.
      */
     public int getMaxThreads() {
-        return min;
+        return max;
+    }
+
+    /**
+     * The maximum number of queued runnables before the saturation policy is applied.  If 0 or
+     * less, the queue is unbounded.
+     */
+    public int getMaxQueueSize() {
+        return maxQueue;
     }
 
     /**
@@ -104,6 +168,47 @@ class DSThreadPool {
         return 2;
     }
 
+    /**
+     * The approximate number of runnables waiting to be executed.
+     */
+    public long getQueueSize() {
+        long ret = submitted.sum() - taken.sum();
+        return ret < 0 ? 0 : ret;
+    }
+
+    /**
+     * What happens when the queue is full, the default is CALLER_RUNS.
+     */
+    public SaturationPolicy getSaturationPolicy() {
+        return saturationPolicy;
+    }
+
+    /**
+     * The total number of runnables one thread took from the deque of another.
+     */
+    public long getStealCount() {
+        return steals.sum();
+    }
+
+    /**
+     * The number of threads currently alive in the pool.
+     */
+    public int getThreadCount() {
+        return numThreads.get();
+    }
+
+    /**
+     * Sets the maximum number of queued runnables before the saturation policy is applied.
+     *
+     * @param max If zero or less, the queue will be unbounded.
+     */
+    public void setMaxQueueSize(int max) {
+        this.maxQueue = max;
+        synchronized (capacity) {
+            capacity.notifyAll();
+        }
+    }
+
     /**
      * Sets the min and max number of threads.
      *
@@ -122,13 +227,28 @@ class DSThreadPool {
         this.max = max;
     }
 
+    /**
+     * What to do when the queue is full.
+     *
+     * @param policy Can not be null.
+     */
+    public void setSaturationPolicy(SaturationPolicy policy) {
+        if (policy == null) {
+            throw new NullPointerException("Null policy");
+        }
+        this.saturationPolicy = policy;
+    }
+
     /**
      * Permanently terminates the thread pool.
      */
     public void shutdown() {
         alive = false;
-        synchronized (this) {
-            notifyAll();
+        for (DSThread thread : threads) {
+            LockSupport.unpark(thread);
+        }
+        synchronized (capacity) {
+            capacity.notifyAll();
         }
     }
 
@@ -138,90 +258,285 @@ class DSThreadPool {
 
     @Override
     protected void finalize() {
-        alive = false;
-        synchronized (this) {
-            notifyAll();
-        }
+        shutdown();
     }
 
-    protected void updateThreads() {
-        if (idleThreads == 0) {
-            if ((max <= 0) || (numThreads < max)) {
-                numThreads++;
-                totalCreated++;
-                StringBuilder buf = new StringBuilder(threadName).append('-')
-                                                                 .append(totalCreated);
-                new DSThread(buf.toString()).start();
+    /**
+     * Wakes an idle thread, or if there aren't any, creates a new thread as long as the max
+     * has not been reached.
+     */
+    protected void signal() {
+        DSThread idle = idleThreads.pollFirst();
+        if (idle != null) {
+            LockSupport.unpark(idle);
+            return;
+        }
+        int count;
+        do {
+            count = numThreads.get();
+            if ((max > 0) && (count >= max)) {
+                return;
             }
+        } while (!numThreads.compareAndSet(count, count + 1));
+        StringBuilder buf = new StringBuilder(threadName).append('-')
+                                                         .append(totalCreated.incrementAndGet());
+        DSThread thread = new DSThread(buf.toString());
+        synchronized (this) {
+            DSThread[] ary = new DSThread[threads.length + 1];
+            System.arraycopy(threads, 0, ary, 0, threads.length);
+            ary[threads.length] = thread;
+            threads = ary;
         }
+        thread.start();
     }
 
-    /////////////////////////////////////////////////////////////////
-    // Methods - Package and in alphabetical order by method threadName.
-    /////////////////////////////////////////////////////////////////
-
     /////////////////////////////////////////////////////////////////
     // Methods - Private and in alphabetical order by method threadName.
     /////////////////////////////////////////////////////////////////
 
-    private Runnable dequeue() {
-        if (queue.size() == 0) {
+    /**
+     * Enqueues without applying the saturation policy, for the DSRuntime timer thread.
+     */
+    void enqueueUnbounded(Runnable arg) {
+        enqueue(arg, false);
+    }
+
+    /**
+     * Waits for the queue to drop below the given limit.
+     */
+    private void blockUntilCapacity(int limit) {
+        blocked.increment();
+        waiting.incrementAndGet();
+        try {
+            synchronized (capacity) {
+                while (alive && (maxQueue > 0) && (getQueueSize() >= limit)) {
+                    capacity.wait(100);
+                }
+            }
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Takes the next runnable for the given thread, or returns null if there is no work.
+     */
+    private Runnable dequeue(DSThread thread) {
+        Runnable ret = thread.deque.pollFirst();
+        if (ret == null) {
+            ret = queue.poll();
+        }
+        if (ret == null) {
+            ret = steal(thread);
+        }
+        if (ret != null) {
+            taken.increment();
+            if (waiting.get() > 0) {
+                synchronized (capacity) {
+                    capacity.notifyAll();
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param bounded Whether to apply the saturation policy when the queue is full.
+     */
+    private void enqueue(Runnable arg, boolean bounded) {
+        if (!alive) {
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        boolean poolThread = (thread instanceof DSThread) && (((DSThread) thread).getPool()
+                == this);
+        int limit = maxQueue;
+        if (bounded && (limit > 0) && (getQueueSize() >= limit)) {
+            if ((saturationPolicy == SaturationPolicy.CALLER_RUNS) || poolThread) {
+                callerRuns.increment();
+                safeRun(arg);
+                return;
+            }
+            blockUntilCapacity(limit);
+            if (!alive) {
+                return;
+            }
+        }
+        if (poolThread) {
+            ((DSThread) thread).deque.offerLast(arg);
+        } else {
+            queue.offer(arg);
+        }
+        submitted.increment();
+        signal();
+    }
+
+    private boolean hasWork(DSThread thread) {
+        if (!thread.deque.isEmpty() || !queue.isEmpty()) {
+            return true;
+        }
+        for (DSThread t : threads) {
+            if (!t.deque.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the thread from the pool, returns false if the thread should stay alive to
+     * satisfy the min.
+     */
+    private boolean remove(DSThread thread) {
+        int count;
+        do {
+            count = numThreads.get();
+            if (count <= min) {
+                return false;
+            }
+        } while (!numThreads.compareAndSet(count, count - 1));
+        removeThread(thread);
+        return true;
+    }
+
+    /**
+     * Removes the thread from the array used for stealing and hands off anything left in
+     * its deque.
+     */
+    private void removeThread(DSThread thread) {
+        synchronized (this) {
+            int len = threads.length;
+            for (int i = 0; i < len; i++) {
+                if (threads[i] == thread) {
+                    DSThread[] ary = new DSThread[len - 1];
+                    System.arraycopy(threads, 0, ary, 0, i);
+                    System.arraycopy(threads, i + 1, ary, i, len - i - 1);
+                    threads = ary;
+                    break;
+                }
+            }
+        }
+        Runnable r;
+        boolean signal = false;
+        while ((r = thread.deque.pollFirst()) != null) {
+            queue.offer(r);
+            signal = true;
+        }
+        if (signal && alive) {
+            signal();
+        }
+    }
+
+    private void safeRun(Runnable r) {
+        try {
+            r.run();
+        } catch (Exception x) {
+            Logger.getLogger("").log(Level.FINER, r.toString(), x);
+        }
+    }
+
+    /**
+     * Takes from the head of another thread's deque so runnables still start in about the
+     * order they were enqueued.  Starts at a random position so thieves spread out.
+     */
+    private Runnable steal(DSThread thief) {
+        DSThread[] ary = threads;
+        int len = ary.length;
+        if (len < 2) {
             return null;
         }
-        return (Runnable) queue.remove(0);
+        int start = ThreadLocalRandom.current().nextInt(len);
+        Runnable ret;
+        DSThread victim;
+        for (int i = 0; i < len; i++) {
+            victim = ary[(start + i) % len];
+            if (victim != thief) {
+                ret = victim.deque.pollFirst();
+                if (ret != null) {
+                    steals.increment();
+                    return ret;
+                }
+            }
+        }
+        return null;
     }
 
     /////////////////////////////////////////////////////////////////
     // Inner Classes - in alphabetical order by class threadName.
     /////////////////////////////////////////////////////////////////
 
+    /**
+     * What to do with a runnable when the queue is full.
+     */
+    public enum SaturationPolicy {
+
+        /**
+         * Wait for room in the queue, unless the caller is a pool thread in which case it
+         * runs the runnable itself.
+         */
+        BLOCK,
+
+        /**
+         * Run the runnable on the calling thread.
+         */
+        CALLER_RUNS,
+
+    }
+
     private class DSThread extends Thread {
 
+        final ConcurrentLinkedDeque<Runnable> deque = new ConcurrentLinkedDeque<>();
+
         public DSThread(String name) {
             super(name);
             setDaemon(true);
         }
 
+        DSThreadPool getPool() {
+            return DSThreadPool.this;
+        }
+
         @Override
         public void run() {
-            long start;
-            Runnable r = null;
+            long idleStart = System.currentTimeMillis();
+            Runnable r;
+            boolean removed = false;
             try {
                 while (alive) {
-                    start = System.currentTimeMillis();
-                    synchronized (DSThreadPool.this) {
-                        idleThreads++;
-                        while ((r == null) && alive) {
-                            r = dequeue();
-                            if (r == null) {
-                                if (((System.currentTimeMillis() - start) > Time.MILLIS_MINUTE) &&
-                                        (numThreads > min)) {
-                                    idleThreads--;
-                                    return;
-                                } else {
-                                    try {
-                                        DSThreadPool.this.wait(Time.MILLIS_FIVE_SECONDS);
-                                    } catch (Exception ignore) {
-                                    }
-                                }
-                            }
+                    r = dequeue(this);
+                    if (r != null) {
+                        //pass it on, a wake up may have been consumed by a thread that was
+                        //already on its way to find work
+                        if (getQueueSize() > 0) {
+                            signal();
                         }
-                        idleThreads--;
-                        DSThreadPool.this.notify();
-                        updateThreads();
+                        safeRun(r);
+                        idleStart = System.currentTimeMillis();
+                        continue;
                     }
-                    if (r != null) {
-                        try {
-                            r.run();
-                        } catch (Exception x) {
-                            Logger.getLogger("").log(Level.FINER, r.toString(), x);
+                    if ((System.currentTimeMillis() - idleStart) > Time.MILLIS_MINUTE) {
+                        if (remove(this)) {
+                            removed = true;
+                            return;
                         }
-                        r = null;
+                        idleStart = System.currentTimeMillis();
+                    }
+                    //advertise as idle before the final check so an enqueue can't be missed
+                    idleThreads.offerFirst(this);
+                    if (hasWork(this)) {
+                        idleThreads.remove(this);
+                        continue;
                     }
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                    idleThreads.remove(this);
                 }
             } finally {
-                synchronized (DSThreadPool.this) {
-                    numThreads--;
+                if (!removed) {
+                    idleThreads.remove(this);
+                    numThreads.decrementAndGet();
+                    removeThread(this);
                 }
             }
         }
@@ -1,9 +1,12 @@
 package org.iot.dsa.dslink;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import org.iot.dsa.node.DSIObject;
 
 /**
@@ -80,6 +83,14 @@ public interface DSITransport extends DSIObject {
      */
     Writer getTextOutput();
 
+    /**
+     * Whether write(ByteBuffer) can send a direct buffer without first copying it to an array,
+     * false by default.  Writers should only use direct buffers when this is true.
+     */
+    default boolean isDirectWrite() {
+        return false;
+    }
+
     /**
      * Whether or not the transport is open for reading and writing.
      */
@@ -131,6 +142,29 @@ public interface DSITransport extends DSIObject {
     public void write(char[] buf, int off, int len, boolean isLast);
      */
 
+    /**
+     * Writes the remaining bytes of the buffer as part of the current outbound message, only use
+     * if isText() is false.  The position of the buffer will be its limit when this returns.
+     * The default implementation copies the bytes to the binary output, which for a direct
+     * buffer means copying to an array first.  Transports that can send the buffer itself should
+     * override this and isDirectWrite().
+     */
+    default void write(ByteBuffer buf) {
+        int len = buf.remaining();
+        try {
+            if (buf.hasArray()) {
+                getBinaryOutput().write(buf.array(), buf.arrayOffset() + buf.position(), len);
+                buf.position(buf.limit());
+            } else {
+                byte[] tmp = new byte[len];
+                buf.get(tmp);
+                getBinaryOutput().write(tmp, 0, len);
+            }
+        } catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+    }
+
     /**
      * The size of the current outbound message (bytes for binary, chars for text).
      */
@@ -2,9 +2,13 @@ package org.iot.dsa.dslink;
 
 import java.io.File;
 import java.net.URL;
+import java.util.concurrent.Executor;
 import java.util.logging.Handler;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
+import org.iot.dsa.DSRuntime;
+import org.iot.dsa.DSThreadPool;
+import org.iot.dsa.DSThreadPool.SaturationPolicy;
 import org.iot.dsa.io.DSIReader;
 import org.iot.dsa.io.NodeDecoder;
 import org.iot.dsa.io.json.Json;
@@ -255,6 +259,7 @@ public abstract class DSLink extends DSNode implements Runnable {
     protected DSLink init(DSLinkOptions config) {
         this.options = config;
         DSLogger.DSA.setLevel(config.getLogLevel());
+        initRuntime(config);
         name = config.getLinkName();
         return this;
     }
@@ -266,4 +271,43 @@ public abstract class DSLink extends DSNode implements Runnable {
         }
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Private Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Applies the timer and thread pool configs to DSRuntime.
+     */
+    private void initRuntime(DSLinkOptions config) {
+        DSRuntime.setTimerResolution(config.getTimerResolution());
+        if (config.getVirtualThreads() && (DSRuntime.getExecutor() == DSRuntime.getThreadPool())) {
+            Executor exec = DSRuntime.newVirtualThreadExecutor("DSRuntime-virtual-");
+            if (exec == null) {
+                warn("Virtual threads require Java 21+, using the thread pool");
+            } else {
+                DSRuntime.setExecutor(exec);
+                info("Using virtual threads");
+            }
+        }
+        DSThreadPool pool = DSRuntime.getThreadPool();
+        int max = config.getConfig(DSLinkOptions.CFG_THREAD_POOL_MAX, pool.getMaxThreads());
+        if (max != pool.getMaxThreads()) {
+            int min = pool.getMinThreads();
+            if ((max > 0) && (max < min)) {
+                min = max;
+            }
+            pool.setMinMax(min, max);
+        }
+        pool.setMaxQueueSize(
+                config.getConfig(DSLinkOptions.CFG_THREAD_POOL_QUEUE, pool.getMaxQueueSize()));
+        String policy = config.getConfig(DSLinkOptions.CFG_THREAD_POOL_POLICY, null);
+        if (policy != null) {
+            if ("block".equalsIgnoreCase(policy)) {
+                pool.setSaturationPolicy(SaturationPolicy.BLOCK);
+            } else {
+                pool.setSaturationPolicy(SaturationPolicy.CALLER_RUNS);
+            }
+        }
+    }
+
 }
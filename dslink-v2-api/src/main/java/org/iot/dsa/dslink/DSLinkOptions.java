@@ -2,6 +2,7 @@ package org.iot.dsa.dslink;
 
 import java.io.File;
 import java.util.logging.Level;
+import org.iot.dsa.DSRuntime;
 import org.iot.dsa.io.json.Json;
 import org.iot.dsa.logging.DSLevel;
 import org.iot.dsa.node.DSMap;
@@ -32,9 +33,25 @@ public class DSLinkOptions {
     public static final String CFG_NAME = "name";
     public static final String CFG_NODE_FILE = "nodes";
 
+    public static final String CFG_COMPRESSION = "compression";
     public static final String CFG_CONNECTION_TYPE = "connectionType";
+    public static final String CFG_MESSAGE_BATCHING = "messageBatching";
+    public static final String CFG_POSITIONAL_UPDATES = "positionalUpdates";
     public static final String CFG_READ_TIMEOUT = "readTimeout";
     public static final String CFG_STABLE_DELAY = "stableDelay";
+    public static final String CFG_STRING_DICTIONARY = "stringDictionary";
+    public static final String CFG_SUBSCRIPTION_QUEUE_MAX = "subscriptionQueueMax";
+    public static final String CFG_SUBSCRIPTION_QUEUE_POLICY = "subscriptionQueuePolicy";
+    public static final String CFG_SUBSCRIPTION_QUEUE_TOTAL = "subscriptionQueueTotal";
+    public static final String CFG_SUBSCRIPTION_SPILL_FILE = "subscriptionSpillFile";
+    public static final String CFG_SUBSCRIPTION_SPILL_SIZE = "subscriptionSpillSize";
+    public static final String CFG_SUBSCRIPTION_WRITE_MAX = "subscriptionWriteMax";
+    public static final String CFG_SUBSCRIPTION_WRITE_QUANTUM = "subscriptionWriteQuantum";
+    public static final String CFG_THREAD_POOL_MAX = "threadPoolMax";
+    public static final String CFG_THREAD_POOL_POLICY = "threadPoolPolicy";
+    public static final String CFG_THREAD_POOL_QUEUE = "threadPoolQueue";
+    public static final String CFG_TIMER_RESOLUTION = "timerResolution";
+    public static final String CFG_VIRTUAL_THREADS = "virtualThreads";
     public static final String CFG_WS_TRANSPORT_FACTORY = "wsTransportFactory";
 
     ///////////////////////////////////////////////////////////////////////////
@@ -53,7 +70,9 @@ public class DSLinkOptions {
     private String mainType;
     private Boolean msgpack = null;
     private File nodesFile;
+    private Long timerResolution;
     private String token;
+    private Boolean virtualThreads = null;
 
     ///////////////////////////////////////////////////////////////////////////
     // Constructors
@@ -426,6 +445,23 @@ public class DSLinkOptions {
         return this;
     }
 
+    /**
+     * The granularity of DSRuntime timers in milliseconds, will attempt to use the config in
+     * dslink.json and fall back to DSRuntime.DEFAULT_TIMER_RESOLUTION.
+     */
+    public long getTimerResolution() {
+        if (timerResolution == null) {
+            timerResolution = getConfig(CFG_TIMER_RESOLUTION,
+                                        DSRuntime.DEFAULT_TIMER_RESOLUTION);
+        }
+        return timerResolution;
+    }
+
+    public DSLinkOptions setTimerResolution(long millis) {
+        timerResolution = millis;
+        return this;
+    }
+
     /**
      * Modifies the in-memory representation of dslink.json, but it will not be saved back to disk.
      */
@@ -471,6 +507,22 @@ public class DSLinkOptions {
         return this;
     }
 
+    /**
+     * Whether or not DSRuntime should run everything on virtual threads rather than the thread
+     * pool, false by default.  Requires Java 21+, older JVMs will fall back to the thread pool.
+     */
+    public boolean getVirtualThreads() {
+        if (virtualThreads == null) {
+            virtualThreads = getConfig(CFG_VIRTUAL_THREADS, false);
+        }
+        return virtualThreads;
+    }
+
+    public DSLinkOptions setVirtualThreads(boolean arg) {
+        virtualThreads = arg;
+        return this;
+    }
+
     /**
      * Whether or not -h or --help was provided.
      */
@@ -62,7 +62,7 @@ public abstract class AbstractReader implements DSIReader {
         }
         switch (last) {
             case BYTES:
-                return DSElement.make(valBytes);
+                return DSElement.make(getBytes());
             case BOOLEAN:
                 return DSElement.make(valBoolean);
             case DOUBLE:
@@ -76,7 +76,7 @@ public abstract class AbstractReader implements DSIReader {
             case NULL:
                 return DSElement.makeNull();
             case STRING:
-                return DSElement.make(valString);
+                return DSElement.make(getString());
         }
         throw new IllegalStateException("Not a value");
     }
@@ -102,7 +102,7 @@ public abstract class AbstractReader implements DSIReader {
                     ret.add(valBoolean);
                     break;
                 case BYTES:
-                    ret.add(DSElement.make(valBytes));
+                    ret.add(DSElement.make(getBytes()));
                     break;
                 case DOUBLE:
                     ret.add(valReal);
@@ -120,7 +120,7 @@ public abstract class AbstractReader implements DSIReader {
                     ret.addNull();
                     break;
                 case STRING:
-                    ret.add(valString);
+                    ret.add(getString());
                     break;
                 default:
                     throw new IllegalStateException(
@@ -155,7 +155,7 @@ public abstract class AbstractReader implements DSIReader {
         while (true) {
             switch (next()) {
                 case STRING:
-                    key = valString;
+                    key = getString();
                     break;
                 case END_MAP:
                 case END_INPUT:
@@ -174,7 +174,7 @@ public abstract class AbstractReader implements DSIReader {
                     ret.put(key, DSElement.make(valBoolean));
                     break;
                 case BYTES:
-                    ret.put(key, DSElement.make(valBytes));
+                    ret.put(key, DSElement.make(getBytes()));
                     break;
                 case DOUBLE:
                     ret.put(key, DSElement.make(valReal));
@@ -192,7 +192,7 @@ public abstract class AbstractReader implements DSIReader {
                     ret.putNull(key);
                     break;
                 case STRING:
-                    ret.put(key, DSElement.make(valString));
+                    ret.put(key, DSElement.make(getString()));
                     break;
                 default:
                     throw new IllegalStateException("Unexpected token in map: " + last);
@@ -2,10 +2,13 @@ package org.iot.dsa.io;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.TimeZone;
 import org.iot.dsa.node.DSElement;
 import org.iot.dsa.node.DSList;
 import org.iot.dsa.node.DSMap;
 import org.iot.dsa.node.DSMap.Entry;
+import org.iot.dsa.time.DSDateTime;
+import org.iot.dsa.time.TimeCodec;
 
 /**
  * Basic implementation of DSWriter.  Subclasses must implement the abstract methods which all start
@@ -32,6 +35,8 @@ public abstract class AbstractWriter implements Closeable, DSIWriter {
 
     private int depth = 0;
     private int last = LAST_INIT;
+    private StringBuilder timeBuf; //for the default writeTime
+    private char[] timeChars;
 
     /**
      * Subclasses can use this if applicable.
@@ -188,6 +193,35 @@ public abstract class AbstractWriter implements Closeable, DSIWriter {
         return this;
     }
 
+    @Override
+    public AbstractWriter value(DSDateTime arg) {
+        if (arg == null) {
+            return value((String) null);
+        }
+        try {
+            switch (last) {
+                case LAST_DONE:
+                    throw new IllegalStateException("Nesting error: " + arg);
+                case LAST_VAL:
+                case LAST_END:
+                    writeSeparator();
+                    if (prettyPrint) {
+                        writeNewLineIndent();
+                    }
+                    break;
+                case LAST_LIST:
+                    if (prettyPrint) {
+                        writeNewLineIndent();
+                    }
+            }
+            writeTime(arg);
+            last = LAST_VAL;
+        } catch (IOException x) {
+            throw new RuntimeException(x);
+        }
+        return this;
+    }
+
     @Override
     public AbstractWriter value(DSElement arg) {
         if (arg == null) {
@@ -374,6 +408,32 @@ public abstract class AbstractWriter implements Closeable, DSIWriter {
         return this;
     }
 
+    @Override
+    public AbstractWriter value(long timestamp, TimeZone timeZone) {
+        try {
+            switch (last) {
+                case LAST_DONE:
+                    throw new IllegalStateException("Nesting error: " + timestamp);
+                case LAST_VAL:
+                case LAST_END:
+                    writeSeparator();
+                    if (prettyPrint) {
+                        writeNewLineIndent();
+                    }
+                    break;
+                case LAST_LIST:
+                    if (prettyPrint) {
+                        writeNewLineIndent();
+                    }
+            }
+            writeTime(timestamp, (timeZone == null) ? TimeZone.getDefault() : timeZone);
+            last = LAST_VAL;
+        } catch (IOException x) {
+            throw new RuntimeException(x);
+        }
+        return this;
+    }
+
     @Override
     public AbstractWriter value(String arg) {
         try {
@@ -482,6 +542,28 @@ public abstract class AbstractWriter implements Closeable, DSIWriter {
      */
     protected abstract void writeSeparator() throws IOException;
 
+    /**
+     * Write the timestamp, which will never be null.  Writes the string encoding by default.
+     */
+    protected void writeTime(DSDateTime arg) throws IOException {
+        writeValue(arg.toString());
+    }
+
+    /**
+     * Write the timestamp, the timezone will never be null.  Writes the string encoding by
+     * default, without allocating.
+     */
+    protected void writeTime(long timestamp, TimeZone timeZone) throws IOException {
+        if (timeChars == null) {
+            timeChars = new char[TimeCodec.MAX_LENGTH];
+            timeBuf = new StringBuilder(TimeCodec.MAX_LENGTH);
+        }
+        int len = TimeCodec.encode(timestamp, timeZone, true, timeChars, 0);
+        timeBuf.setLength(0);
+        timeBuf.append(timeChars, 0, len);
+        writeValue(timeBuf);
+    }
+
     /**
      * Write the value, which will never be null.
      */
@@ -1,7 +1,9 @@
 package org.iot.dsa.io;
 
 import java.io.Closeable;
+import java.util.TimeZone;
 import org.iot.dsa.node.DSElement;
+import org.iot.dsa.time.DSDateTime;
 
 /**
  * An encoder that can be used to encode large graphs with or without object instances.
@@ -102,6 +104,20 @@ public interface DSIWriter extends Closeable {
      */
     DSIWriter reset();
 
+    /**
+     * Write a timestamp to the map or list.  If in a map, this must have been preceded by a call
+     * to key(String).  By default this writes the string encoding of the timestamp, but
+     * implementations can encode it without creating the string.
+     *
+     * @throws IllegalStateException when improperly called.
+     */
+    default DSIWriter value(DSDateTime arg) {
+        if (arg == null) {
+            return value((String) null);
+        }
+        return value(arg.toString());
+    }
+
     /**
      * Write a value to the map or list.  If in a map, this must have been preceded by a call to
      * key(String).  This can be used to encode an entire graph.
@@ -150,6 +166,21 @@ public interface DSIWriter extends Closeable {
      */
     DSIWriter value(long arg);
 
+    /**
+     * Write a timestamp to the map or list.  If in a map, this must have been preceded by a call
+     * to key(String).  This is the same as value(DSDateTime) without creating the DSDateTime.
+     *
+     * @param timestamp Java time.
+     * @param timeZone  The timezone to encode in, null for the default.
+     * @throws IllegalStateException when improperly called.
+     */
+    default DSIWriter value(long timestamp, TimeZone timeZone) {
+        if (timeZone == null) {
+            return value(DSDateTime.valueOf(timestamp));
+        }
+        return value(DSDateTime.valueOf(timestamp, timeZone));
+    }
+
     /**
      * Write a value to the map or list.  If in a map, this must have been preceded by a call to
      * key(String).
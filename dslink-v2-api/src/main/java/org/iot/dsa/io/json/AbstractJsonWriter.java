@@ -1,10 +1,13 @@
 package org.iot.dsa.io.json;
 
 import java.io.IOException;
+import java.util.TimeZone;
 import org.iot.dsa.io.AbstractWriter;
 import org.iot.dsa.io.DSIWriter;
 import org.iot.dsa.node.DSBytes;
 import org.iot.dsa.node.DSElement;
+import org.iot.dsa.time.DSDateTime;
+import org.iot.dsa.time.TimeCodec;
 import org.iot.dsa.util.DSException;
 
 /**
@@ -27,8 +30,19 @@ public abstract class AbstractJsonWriter extends AbstractWriter
     private static final char[] C_T = new char[]{'\\', 't'};
     private static final char[] C_TRUE = new char[]{'t', 'r', 'u', 'e'};
     private static final char[] C_U = new char[]{'\\', 'u'};
+    private static final char[] C_LONG_MIN = String.valueOf(Long.MIN_VALUE).toCharArray();
     private static final char[] HEX =
             {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    private static final long MAX_EXACT_LONG = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17
+    };
+
+    // Fields
+    // ------
+
+    private char[] chars = new char[TimeCodec.MAX_LENGTH + 2]; //numbers and timestamps
 
     // Public Methods
     // --------------
@@ -83,9 +97,14 @@ public abstract class AbstractJsonWriter extends AbstractWriter
         writeValue(DSBytes.encode(arg));
     }
 
+    /**
+     * Integral values are written as longs.  Other values are written with the fewest fraction
+     * digits that parse back to the same double, which is usually shorter than Double.toString,
+     * and only very large, very small or very precise values fall back to Double.toString.
+     */
     @Override
     protected void write(double arg) throws IOException {
-        if ((arg % 1) == 0) {
+        if (((arg % 1) == 0) && (Math.abs(arg) < MAX_EXACT_LONG)) {
             write((long) arg);
         } else if (Double.isInfinite(arg)) {
             if (arg < 0) {
@@ -95,14 +114,34 @@ public abstract class AbstractJsonWriter extends AbstractWriter
             }
         } else if (Double.isNaN(arg)) {
             append(DBL_NAN);
-        } else {
-            append(String.valueOf(arg));
+        } else if (!writeDecimal(arg)) {
+            append(Double.toString(arg));
         }
     }
 
+    /**
+     * Formats the digits directly into the output.
+     */
     @Override
     protected void write(long arg) throws IOException {
-        append(String.valueOf(arg));
+        if (arg == Long.MIN_VALUE) {
+            append(C_LONG_MIN, 0, C_LONG_MIN.length);
+            return;
+        }
+        char[] chars = this.chars;
+        int idx = chars.length;
+        boolean neg = arg < 0;
+        if (neg) {
+            arg = -arg;
+        }
+        do {
+            chars[--idx] = (char) ('0' + (arg % 10));
+            arg /= 10;
+        } while (arg > 0);
+        if (neg) {
+            chars[--idx] = '-';
+        }
+        append(chars, idx, chars.length - idx);
     }
 
     @Override
@@ -149,6 +188,30 @@ public abstract class AbstractJsonWriter extends AbstractWriter
         append(',');
     }
 
+    /**
+     * Formats the ISO 8601 encoding directly into the output.
+     */
+    @Override
+    protected void writeTime(DSDateTime arg) throws IOException {
+        if (arg.isNull()) {
+            writeValue(arg.toString());
+            return;
+        }
+        writeTime(arg.timeInMillis(), arg.getTimeZone());
+    }
+
+    /**
+     * Formats the ISO 8601 encoding directly into the output.
+     */
+    @Override
+    protected void writeTime(long timestamp, TimeZone timeZone) throws IOException {
+        char[] chars = this.chars;
+        chars[0] = '"';
+        int len = TimeCodec.encode(timestamp, timeZone, true, chars, 1);
+        chars[len++] = '"';
+        append(chars, 0, len);
+    }
+
     @Override
     protected void writeValue(CharSequence arg) throws IOException {
         writeString(arg);
@@ -157,6 +220,51 @@ public abstract class AbstractJsonWriter extends AbstractWriter
     // Private Methods
     // ---------------
 
+    /**
+     * Writes a finite, non integral double using the fewest fraction digits that parse back to
+     * the same value.  Both the scaled mantissa and the power of ten are exact doubles, so the
+     * division is correctly rounded and equality proves the decimal round trips.
+     *
+     * @return False if the value is out of range for this method.
+     */
+    private boolean writeDecimal(double arg) throws IOException {
+        double abs = Math.abs(arg);
+        if ((abs < 1e-3) || (abs >= 1e15)) {
+            return false;
+        }
+        long mantissa = 0;
+        int scale = 1;
+        for (int len = POWERS_OF_TEN.length; scale < len; scale++) {
+            double pow = POWERS_OF_TEN[scale];
+            mantissa = Math.round(abs * pow);
+            if (mantissa >= MAX_EXACT_LONG) {
+                return false;
+            }
+            if ((mantissa / pow) == abs) {
+                break;
+            }
+        }
+        if (scale == POWERS_OF_TEN.length) {
+            return false;
+        }
+        char[] chars = this.chars;
+        int idx = chars.length;
+        for (int i = 0; i < scale; i++) {
+            chars[--idx] = (char) ('0' + (mantissa % 10));
+            mantissa /= 10;
+        }
+        chars[--idx] = '.';
+        do {
+            chars[--idx] = (char) ('0' + (mantissa % 10));
+            mantissa /= 10;
+        } while (mantissa > 0);
+        if (arg < 0) {
+            chars[--idx] = '-';
+        }
+        append(chars, idx, chars.length - idx);
+        return true;
+    }
+
     /**
      * Encodes a string.
      */
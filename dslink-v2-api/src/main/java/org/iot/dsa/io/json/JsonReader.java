@@ -7,6 +7,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.CharBuffer;
 import org.iot.dsa.io.AbstractReader;
 import org.iot.dsa.io.DSIReader;
 import org.iot.dsa.node.DSBytes;
@@ -14,6 +15,10 @@ import org.iot.dsa.node.DSBytes;
 /**
  * Json implementation of DSReader.  The same instance can be re-used with the setInput methods.
  * This class is not thread safe.
+ * <p>
+ * Numbers are parsed directly from the token characters.  Short strings, which includes most
+ * map keys, are interned in a small cache owned by the reader.  Longer strings are only
+ * converted to a String if asked for, use getCharSequence() to examine them without doing so.
  *
  * @author Aaron Hansen
  * @see DSIReader
@@ -24,13 +29,23 @@ public class JsonReader extends AbstractReader implements DSIReader, JsonConstan
     // ---------
 
     private static final int BUFLEN = 8192;
+    private static final int CACHE_SIZE = 256; //must be a power of 2
+    private static final int MAX_CACHED_LEN = 32;
+    private static final int MAX_FAST_DIGITS = 15; //exactly representable as a double
+    private static final double[] POWERS_OF_TEN = new double[]{
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
 
     // Fields
     // ---------
 
     private char[] buf = new char[BUFLEN];
+    private CharBuffer bufView;
     private int buflen = 0;
+    private String[] cache = new String[CACHE_SIZE];
     private Input in;
+    private boolean stringPending = false;
 
     // Constructors
     // ------------
@@ -73,8 +88,38 @@ public class JsonReader extends AbstractReader implements DSIReader, JsonConstan
         }
     }
 
+    /**
+     * Returns the string value without creating a String, unless it was already created.  The
+     * returned sequence is only valid until the next call to next() and should not be retained.
+     */
+    public CharSequence getCharSequence() {
+        if (last() != Token.STRING) {
+            throw new IllegalStateException("Not a string");
+        }
+        if (stringPending) {
+            if ((bufView == null) || (bufView.array() != buf)) {
+                bufView = CharBuffer.wrap(buf);
+            }
+            bufView.clear();
+            bufView.limit(buflen);
+            return bufView;
+        }
+        return valString;
+    }
+
+    @Override
+    public String getString() {
+        if (stringPending && (last() == Token.STRING)) {
+            valString = new String(buf, 0, buflen);
+            stringPending = false;
+        }
+        return super.getString();
+    }
+
     @Override
     public Token next() {
+        stringPending = false;
+        buflen = 0;
         try {
             int ch;
             boolean hasValue = false;
@@ -116,27 +161,29 @@ public class JsonReader extends AbstractReader implements DSIReader, JsonConstan
                     // values
                     case '"':
                         readString();
-                        String str = valString;
                         hasValue = true;
-                        if ((str.length() > 0) && (str.charAt(0) == '\u001B')) {
-                            if (DSBytes.isBytes(str)) {
-                                setNextValue(DSBytes.decode(str));
-                                break;
-                            }
-                            if (str.equals(DBL_NEG_INF)) {
-                                setNextValue(Double.NEGATIVE_INFINITY);
-                                break;
-                            }
-                            if (str.equals(DBL_POS_INF)) {
-                                setNextValue(Double.POSITIVE_INFINITY);
-                                break;
-                            }
-                            if (str.equals(DBL_NAN)) {
-                                setNextValue(Double.NaN);
-                                break;
-                            }
+                        if ((buflen == 0) || (buf[0] != '\u001B')) {
+                            setNextString();
+                            break;
+                        }
+                        String str = new String(buf, 0, buflen);
+                        if (DSBytes.isBytes(str)) {
+                            setNextValue(DSBytes.decode(str));
+                            break;
+                        }
+                        if (str.equals(DBL_NEG_INF)) {
+                            setNextValue(Double.NEGATIVE_INFINITY);
+                            break;
                         }
-                        setNextValue(valString);
+                        if (str.equals(DBL_POS_INF)) {
+                            setNextValue(Double.POSITIVE_INFINITY);
+                            break;
+                        }
+                        if (str.equals(DBL_NAN)) {
+                            setNextValue(Double.NaN);
+                            break;
+                        }
+                        setNextValue(str);
                         break;
                     case 't':
                         validate(in.read(), 'r');
@@ -250,10 +297,116 @@ public class JsonReader extends AbstractReader implements DSIReader, JsonConstan
         buf[buflen++] = ch;
     }
 
-    private String bufToString() {
-        String ret = new String(buf, 0, buflen);
-        buflen = 0;
-        return ret;
+    /**
+     * Parses the number in buf without creating a String.  Falls back to the JDK when the
+     * number can't be parsed exactly, such as more than 15 significant digits in a double.
+     */
+    private Token parseNumber(boolean hasDecimal) {
+        char[] buf = this.buf;
+        int len = buflen;
+        int i = 0;
+        boolean negative = false;
+        if ((len > 0) && (buf[0] == '-')) {
+            negative = true;
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int significant = 0;
+        int scale = 0;
+        char ch;
+        for (; i < len; i++) {
+            ch = buf[i];
+            if ((ch < '0') || (ch > '9')) {
+                break;
+            }
+            digits++;
+            if ((mantissa != 0) || (ch != '0')) {
+                if (++significant > 18) {
+                    return parseNumberSlow(hasDecimal);
+                }
+            }
+            mantissa = (mantissa * 10) + (ch - '0');
+        }
+        if (!hasDecimal) {
+            if ((i != len) || (digits == 0)) {
+                return parseNumberSlow(false);
+            }
+            return setNextValue(negative ? -mantissa : mantissa);
+        }
+        if ((i < len) && (buf[i] == '.')) {
+            for (i++; i < len; i++) {
+                ch = buf[i];
+                if ((ch < '0') || (ch > '9')) {
+                    break;
+                }
+                digits++;
+                scale++;
+                if ((mantissa != 0) || (ch != '0')) {
+                    if (++significant > MAX_FAST_DIGITS) {
+                        return parseNumberSlow(true);
+                    }
+                }
+                mantissa = (mantissa * 10) + (ch - '0');
+            }
+        }
+        if (digits == 0) {
+            return parseNumberSlow(true);
+        }
+        if (significant > MAX_FAST_DIGITS) {
+            return parseNumberSlow(true);
+        }
+        int exp = 0;
+        if ((i < len) && ((buf[i] == 'e') || (buf[i] == 'E'))) {
+            boolean negExp = false;
+            if (++i < len) {
+                if (buf[i] == '-') {
+                    negExp = true;
+                    i++;
+                } else if (buf[i] == '+') {
+                    i++;
+                }
+            }
+            int expDigits = 0;
+            for (; i < len; i++) {
+                ch = buf[i];
+                if ((ch < '0') || (ch > '9') || (++expDigits > 3)) {
+                    return parseNumberSlow(true);
+                }
+                exp = (exp * 10) + (ch - '0');
+            }
+            if (expDigits == 0) {
+                return parseNumberSlow(true);
+            }
+            if (negExp) {
+                exp = -exp;
+            }
+        }
+        if (i != len) {
+            return parseNumberSlow(true);
+        }
+        exp -= scale;
+        double val = mantissa;
+        if (exp < 0) {
+            if (exp < -22) {
+                return parseNumberSlow(true);
+            }
+            val = val / POWERS_OF_TEN[-exp];
+        } else if (exp > 0) {
+            if (exp > 22) {
+                return parseNumberSlow(true);
+            }
+            val = val * POWERS_OF_TEN[exp];
+        }
+        return setNextValue(negative ? -val : val);
+    }
+
+    private Token parseNumberSlow(boolean hasDecimal) {
+        String str = new String(buf, 0, buflen);
+        if (hasDecimal) {
+            return setNextValue(Double.parseDouble(str));
+        }
+        return setNextValue(Long.parseLong(str));
     }
 
     /**
@@ -322,11 +475,9 @@ public class JsonReader extends AbstractReader implements DSIReader, JsonConstan
                     hasMore = false;
             }
         }
-        if (hasDecimal) {
-            return setNextValue(Double.parseDouble(bufToString()));
-        }
-        long l = Long.parseLong(bufToString());
-        return setNextValue(l);
+        Token ret = parseNumber(hasDecimal);
+        buflen = 0;
+        return ret;
     }
 
     private void readString() throws IOException {
@@ -365,7 +516,6 @@ public class JsonReader extends AbstractReader implements DSIReader, JsonConstan
             bufAppend(ch);
             ch = (char) in.read();
         }
-        valString = bufToString();
     }
 
     private char readUnicode() throws IOException {
@@ -409,6 +559,38 @@ public class JsonReader extends AbstractReader implements DSIReader, JsonConstan
         return (char) ret;
     }
 
+    /**
+     * Sets the string in buf as the next value.  Short strings are interned, longer strings are
+     * not created unless asked for.
+     */
+    private Token setNextString() {
+        int len = buflen;
+        if (len > MAX_CACHED_LEN) {
+            setNextValue("");
+            stringPending = true;
+            return last();
+        }
+        char[] buf = this.buf;
+        int hash = 0;
+        for (int i = 0; i < len; i++) {
+            hash = 31 * hash + buf[i];
+        }
+        int idx = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        String str = cache[idx];
+        if ((str != null) && (str.length() == len)) {
+            int i = 0;
+            while ((i < len) && (str.charAt(i) == buf[i])) {
+                i++;
+            }
+            if (i == len) {
+                return setNextValue(str);
+            }
+        }
+        str = new String(buf, 0, len);
+        cache[idx] = str;
+        return setNextValue(str);
+    }
+
     private static void validate(int ch1, int ch2) {
         if (ch1 != ch2) {
             throw new IllegalStateException("Expecting " + (char) ch2 + ", not " + (char) ch1);
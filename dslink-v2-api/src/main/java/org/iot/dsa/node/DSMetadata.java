@@ -14,6 +14,11 @@ public class DSMetadata {
     public static final String ACTION_GROUP = "actionGroup";
     public static final String ACTION_GROUP_DISPLAY = "actionGroupSubTitle";
     public static final String BOOLEAN_RANGE = "booleanRange";
+    /**
+     * Subscription updates that change a numeric value by less than this are not sent.  Either
+     * a number, or a string ending with % for a percentage of the last value sent.
+     */
+    public static final String DEADBAND = "deadband";
     public static final String DESCRIPTION = "description";
     public static final String DEFAULT = "default";
     public static final String DISPLAY_NAME = "displayName";
@@ -28,6 +33,10 @@ public class DSMetadata {
      * Min numeric value
      */
     public static final String MIN = "min";
+    /**
+     * Minimum milliseconds between subscription updates.
+     */
+    public static final String MIN_INTERVAL = "minInterval";
     /**
      * Text to show in empty textfields.
      */
@@ -102,6 +111,29 @@ public class DSMetadata {
         return this;
     }
 
+    /**
+     * The subscription deadband, or null.  Either a number, or a string ending with %.
+     */
+    public DSElement getDeadband() {
+        return map.get(DEADBAND);
+    }
+
+    /**
+     * An absolute subscription deadband.
+     */
+    public DSMetadata setDeadband(double arg) {
+        map.put(DEADBAND, arg);
+        return this;
+    }
+
+    /**
+     * A subscription deadband that is a percentage of the last value sent.
+     */
+    public DSMetadata setDeadbandPercent(double arg) {
+        map.put(DEADBAND, arg + "%");
+        return this;
+    }
+
     /**
      * The default value for an action parameter, or null.
      */
@@ -264,6 +296,18 @@ public class DSMetadata {
         return this;
     }
 
+    /**
+     * Minimum milliseconds between subscription updates, or null.
+     */
+    public DSElement getMinInterval() {
+        return map.get(MIN_INTERVAL);
+    }
+
+    public DSMetadata setMinInterval(long millis) {
+        map.put(MIN_INTERVAL, millis);
+        return this;
+    }
+
     /**
      * Not the name in the parent node, but used for things such as columns and parameters.
      */
@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import org.iot.dsa.DSRuntime;
 import org.iot.dsa.dslink.ActionResults;
 import org.iot.dsa.dslink.DSIResponder;
@@ -247,6 +248,7 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
     ///////////////////////////////////////////////////////////////////////////
 
     private Map<String, DSInfo> childMap;
+    private volatile Map<DSInfo<?>, Subscription[]> childSubscriptions;
     private DSNode defaultInstance;
     private DSInfo<?> firstChild;
     private DSInfo<DSNode> infoInParent;
@@ -255,7 +257,7 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
     private String path;
     private int size = 0;
     private int state = 1; //See STATE_*
-    private Subscription subscription;
+    private volatile Subscription[] subscriptions;
 
     ///////////////////////////////////////////////////////////////////////////
     // Public Methods
@@ -756,7 +758,11 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
      * True if there are any subscribers.
      */
     public boolean isSubscribed() {
-        return subscription != null;
+        if (subscriptions != null) {
+            return true;
+        }
+        Map<DSInfo<?>, Subscription[]> map = childSubscriptions;
+        return (map != null) && !map.isEmpty();
     }
 
     /**
@@ -1128,12 +1134,22 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
         }
         fire(STOPPED_EVENT, null, null);
         synchronized (mutex) {
-            Subscription sub = subscription;
-            while (sub != null) {
-                sub.close();
-                sub = sub.next;
+            Subscription[] subs = subscriptions;
+            if (subs != null) {
+                for (Subscription sub : subs) {
+                    sub.close();
+                }
+            }
+            subscriptions = null;
+            Map<DSInfo<?>, Subscription[]> map = childSubscriptions;
+            if (map != null) {
+                for (Subscription[] childSubs : map.values()) {
+                    for (Subscription sub : childSubs) {
+                        sub.close();
+                    }
+                }
+                childSubscriptions = null;
             }
-            subscription = null;
         }
         state = DSUtil.setBit(state, STATE_STABLE, false);
         state = DSUtil.setBit(state, STATE_STOPPED, true);
@@ -1146,14 +1162,15 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
 
     /**
      * This is a convenience that creates a filter for the given event and or child.  Only non-null
-     * events and children are filtered.
+     * events and children are filtered.  When the child is non-null, the subscription is indexed
+     * by that child and will not be visited for events about other children.
      *
      * @param subscriber Required.
      * @param event      Optional.
      * @param child      Optional.
      */
     public DSISubscription subscribe(DSISubscriber subscriber, DSEvent event, DSInfo<?> child) {
-        return subscribe(new DSEventFilter(subscriber, event, child));
+        return subscribe(new DSEventFilter(subscriber, event, child), child);
     }
 
     /**
@@ -1162,22 +1179,43 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
      * @param subscriber Required.
      */
     public DSISubscription subscribe(DSISubscriber subscriber) {
+        return subscribe(subscriber, null);
+    }
+
+    /**
+     * Subscribes to the events of a single child.  The subscriber will only receive events
+     * fired with the given child, which avoids visiting every subscriber of a node with many
+     * subscribed values when only one of them changes.  Only creates a subscription if not
+     * already subscribed to the same child.
+     *
+     * @param subscriber Required.
+     * @param child      Optional, if null the subscriber receives all events.
+     */
+    public DSISubscription subscribe(DSISubscriber subscriber, DSInfo<?> child) {
         if (subscriber == null) {
             throw new NullPointerException("Null subscriber");
         }
-        boolean firstSubscription = subscription == null;
         Subscription sub;
+        boolean firstSubscription;
         synchronized (mutex) {
-            sub = subscription;
-            while (sub != null) {
-                if (sub.subscriber == subscriber) {
-                    return sub;
+            firstSubscription = !isSubscribed();
+            Subscription[] subs = getSubscriptions(child);
+            int len = 0;
+            if (subs != null) {
+                for (Subscription tmp : subs) {
+                    if (tmp.subscriber == subscriber) {
+                        return tmp;
+                    }
                 }
-                sub = sub.next;
+                len = subs.length;
             }
-            sub = new Subscription(subscriber);
-            sub.next = subscription;
-            subscription = sub;
+            sub = new Subscription(subscriber, child);
+            Subscription[] newSubs = new Subscription[len + 1];
+            if (len > 0) {
+                System.arraycopy(subs, 0, newSubs, 0, len);
+            }
+            newSubs[len] = sub;
+            setSubscriptions(child, newSubs);
         }
         try {
             onSubscribe(sub);
@@ -1241,7 +1279,8 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
     }
 
     /**
-     * Notifies subscribers of the event.
+     * Notifies subscribers of the event.  Subscribers of all events are notified first, then
+     * subscribers of the specific child, if any.
      *
      * @param event Must not be null.
      * @param child Can be null.
@@ -1256,14 +1295,12 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
         }
         trace(trace() ? String
                 .format("event=%s, child=%s, data=%s", event.getEventId(), child, data) : null);
-        Subscription sub = subscription;
-        while (sub != null) {
-            try {
-                sub.getSubscriber().onEvent(event, this, child, data);
-            } catch (Exception x) {
-                error(getPath(), x);
+        fire(subscriptions, event, child, data);
+        if (child != null) {
+            Map<DSInfo<?>, Subscription[]> map = childSubscriptions;
+            if (map != null) {
+                fire(map.get(child), event, child, data);
             }
-            sub = sub.next;
         }
     }
 
@@ -1553,6 +1590,37 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
         }
     }
 
+    /**
+     * Notifies each subscription in the array, which can be null.
+     */
+    private void fire(Subscription[] subs, DSEvent event, DSInfo<?> child, DSIValue data) {
+        if (subs == null) {
+            return;
+        }
+        for (Subscription sub : subs) {
+            try {
+                sub.getSubscriber().onEvent(event, this, child, data);
+            } catch (Exception x) {
+                error(getPath(), x);
+            }
+        }
+    }
+
+    /**
+     * The current subscriptions for the child, or for all events if the child is null.  The
+     * array must not be modified, it is replaced whenever subscriptions are added or removed.
+     */
+    private Subscription[] getSubscriptions(DSInfo<?> child) {
+        if (child == null) {
+            return subscriptions;
+        }
+        Map<DSInfo<?>, Subscription[]> map = childSubscriptions;
+        if (map == null) {
+            return null;
+        }
+        return map.get(child);
+    }
+
     private void notifyRemoved(DSNode node) {
         DSInfo<?> info = node.getFirstInfo();
         while (info != null) {
@@ -1570,20 +1638,24 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
 
     private void remove(Subscription toRemove) {
         Subscription removed = null;
+        boolean lastSubscription = false;
         synchronized (mutex) {
-            Subscription sub = subscription;
-            Subscription prev = null;
-            while (sub != null) {
-                if (sub == toRemove) {
-                    removed = sub;
-                    if (prev == null) {
-                        subscription = subscription.next;
-                    } else {
-                        prev.next = sub.next;
+            Subscription[] subs = getSubscriptions(toRemove.child);
+            if (subs != null) {
+                for (int i = 0, len = subs.length; i < len; i++) {
+                    if (subs[i] == toRemove) {
+                        removed = toRemove;
+                        Subscription[] newSubs = null;
+                        if (len > 1) {
+                            newSubs = new Subscription[len - 1];
+                            System.arraycopy(subs, 0, newSubs, 0, i);
+                            System.arraycopy(subs, i + 1, newSubs, i, len - i - 1);
+                        }
+                        setSubscriptions(toRemove.child, newSubs);
+                        lastSubscription = !isSubscribed();
+                        break;
                     }
                 }
-                prev = sub;
-                sub = sub.next;
             }
         }
         if (removed != null) {
@@ -1592,7 +1664,7 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
             } catch (Exception x) {
                 error(getParent(), x);
             }
-            if (subscription == null) {
+            if (lastSubscription) {
                 try {
                     onUnsubscribed();
                 } catch (Exception x) {
@@ -1602,6 +1674,32 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
         }
     }
 
+    /**
+     * Publishes a new array of subscriptions for the child, or for all events if the child is
+     * null.  Null or empty removes them.  Must be called while holding the mutex.
+     */
+    private void setSubscriptions(DSInfo<?> child, Subscription[] subs) {
+        if ((subs != null) && (subs.length == 0)) {
+            subs = null;
+        }
+        if (child == null) {
+            subscriptions = subs;
+            return;
+        }
+        Map<DSInfo<?>, Subscription[]> map = childSubscriptions;
+        if (subs == null) {
+            if (map != null) {
+                map.remove(child);
+            }
+            return;
+        }
+        if (map == null) {
+            map = new ConcurrentHashMap<>();
+            childSubscriptions = map;
+        }
+        map.put(child, subs);
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Inner Classes
     ///////////////////////////////////////////////////////////////////////////
@@ -1684,12 +1782,13 @@ public class DSNode extends DSLogger implements DSIObject, Iterable<DSInfo<?>> {
      */
     private class Subscription implements DSISubscription {
 
-        Subscription next;
+        DSInfo<?> child;
         boolean open = true;
         DSISubscriber subscriber;
 
-        Subscription(DSISubscriber subscriber) {
+        Subscription(DSISubscriber subscriber, DSInfo<?> child) {
             this.subscriber = subscriber;
+            this.child = child;
         }
 
         @Override
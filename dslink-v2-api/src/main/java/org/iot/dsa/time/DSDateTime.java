@@ -58,12 +58,12 @@ public class DSDateTime extends DSValue implements DSISetAction {
         this.timeZone = timeZone;
     }
 
+    /**
+     * The timezone is only decoded from the string if it's asked for.
+     */
     DSDateTime(String string) {
         this.string = string;
-        Calendar cal = Time.decode(string, null);
-        this.millis = cal.getTimeInMillis();
-        this.timeZone = cal.getTimeZone();
-        Time.recycle(cal);
+        this.millis = TimeCodec.decode(string);
     }
 
     DSDateTime(String string, Long millis) {
@@ -145,7 +145,10 @@ public class DSDateTime extends DSValue implements DSISetAction {
 
     public TimeZone getTimeZone() {
         if (timeZone == null) {
-            return TimeZone.getDefault();
+            if ((string == null) || isNull()) {
+                return TimeZone.getDefault();
+            }
+            timeZone = TimeCodec.decodeTimeZone(string);
         }
         return timeZone;
     }
@@ -375,11 +378,9 @@ public class DSDateTime extends DSValue implements DSISetAction {
     @Override
     public String toString() {
         if (string == null) {
-            if (timeZone != null) {
-                string = Time.encode(millis, timeZone).toString();
-            } else {
-                string = Time.encode(millis, true).toString();
-            }
+            char[] buf = new char[TimeCodec.MAX_LENGTH];
+            int len = TimeCodec.encode(millis, getTimeZone(), true, buf, 0);
+            string = new String(buf, 0, len);
         }
         return string;
     }
@@ -603,11 +604,9 @@ public class DSDateTime extends DSValue implements DSISetAction {
                     parameter.put(DSMetadata.DEFAULT, dt.getSecond());
                     break;
                 case TIMEZONE:
-                    if (dt.timeZone != null) {
-                        DSTimezone tz = DSTimezone.valueOf(dt.getTimeZone());
-                        if ((tz != null) && !tz.isDefault()) {
-                            parameter.put(DSMetadata.DEFAULT, tz.toElement());
-                        }
+                    DSTimezone tz = DSTimezone.valueOf(dt.getTimeZone());
+                    if ((tz != null) && !tz.isDefault()) {
+                        parameter.put(DSMetadata.DEFAULT, tz.toElement());
                     }
                     break;
             }
@@ -420,15 +420,13 @@ public class Time {
     }
 
     /**
-     * This is a convenience that uses reuses and recycles a calendar instance to get the time in
-     * millis.
+     * Converts a DSA encoded timestamp into Java time, without using a Calendar.  If the
+     * timestamp does not specify a timezone, the default timezone is used.
+     *
+     * @see TimeCodec#decode(CharSequence)
      */
     public static long decode(String timestamp) {
-        Calendar cal = getCalendar();
-        decode(timestamp, cal);
-        long millis = cal.getTimeInMillis();
-        recycle(cal);
-        return millis;
+        return TimeCodec.decode(timestamp);
     }
 
     /**
@@ -522,10 +520,7 @@ public class Time {
      * @return The buffer containing the encoding.
      */
     public static StringBuilder encode(long timestamp, boolean encodeTzOffset) {
-        Calendar cal = getCalendar(timestamp);
-        StringBuilder buf = encode(cal, encodeTzOffset, new StringBuilder());
-        recycle(cal);
-        return buf;
+        return TimeCodec.encode(timestamp, TimeZone.getDefault(), encodeTzOffset, null);
     }
 
     /**
@@ -537,10 +532,7 @@ public class Time {
      * @return The buffer containing the encoding.
      */
     public static StringBuilder encode(long timestamp, TimeZone timeZone) {
-        Calendar cal = getCalendar(timestamp, timeZone);
-        StringBuilder buf = encode(cal, true, new StringBuilder());
-        recycle(cal);
-        return buf;
+        return TimeCodec.encode(timestamp, timeZone, true, null);
     }
 
     /**
@@ -554,10 +546,7 @@ public class Time {
      * @return The buffer containing the encoding.
      */
     public static StringBuilder encode(long timestamp, boolean encodeTzOffset, StringBuilder buf) {
-        Calendar cal = getCalendar(timestamp);
-        buf = encode(cal, encodeTzOffset, buf);
-        recycle(cal);
-        return buf;
+        return TimeCodec.encode(timestamp, TimeZone.getDefault(), encodeTzOffset, buf);
     }
 
     /**
@@ -644,6 +633,22 @@ public class Time {
         return buf;
     }
 
+    /**
+     * Encodes a DSA timestamp, with the timezone offset, directly into a char array without
+     * using a Calendar.  The array must have room for TimeCodec.MAX_LENGTH chars after the
+     * offset.
+     *
+     * @param timestamp What to encode.
+     * @param timeZone  Timezone to encode.
+     * @param buf       Where to encode.
+     * @param off       The index in buf to start at.
+     * @return The index in buf after the last char written.
+     * @see TimeCodec#encode(long, TimeZone, boolean, char[], int)
+     */
+    public static int encode(long timestamp, TimeZone timeZone, char[] buf, int off) {
+        return TimeCodec.encode(timestamp, timeZone, true, buf, off);
+    }
+
     /**
      * Converts a Java Calendar into a number safe for file names: YYMMDDHHMMSS. If seconds align to
      * 00, then they will be omitted.  Time.alignMinutes can be used to achieve that.
@@ -0,0 +1,482 @@
+package org.iot.dsa.time;
+
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Calendar;
+import java.util.Map;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes and decodes DSA timestamps directly between Java time and chars, without a Calendar.
+ * DSA encoding is based on ISO 8601 but allows for an unspecified timezone.
+ * <p>
+ * Timezone offsets are cached per timezone along with the span of time between the surrounding
+ * offset transitions, so most timestamps don't have to consult the timezone at all.  The cache is
+ * keyed by timezone ID and bounded, timezones beyond the bound, or that aren't a JDK or
+ * SimpleTimeZone, are asked for every offset.  Dates
+ * before the Gregorian cutover, and years that can't be expressed in four digits, are delegated
+ * to the Calendar based methods in Time.
+ * <p>
+ * All methods are thread safe.
+ *
+ * @author Aaron Hansen
+ */
+public class TimeCodec {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Constants
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The maximum number of chars an encoding can use, including the timezone offset and
+     * years of more than four digits.
+     */
+    public static final int MAX_LENGTH = 40;
+
+    private static final long DAYS_0000_TO_1970 = 719468;
+    private static final long MAX_MILLIS = 253402300799999L; //9999-12-31T23:59:59.999Z
+    private static final int MAX_ZONES = 256;
+    private static final long MIN_MILLIS = -12212553600000L; //1583-01-01T00:00:00.000Z
+    private static final TimeZone UTC = TimeZone.getTimeZone("GMT");
+    private static final Class<?> ZONE_INFO = UTC.getClass();
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final Map<Integer, TimeZone> offsetZones = new ConcurrentHashMap<>();
+    private static final Map<String, Zone> zones = new ConcurrentHashMap<>();
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ///////////////////////////////////////////////////////////////////////////
+
+    private TimeCodec() {
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Decodes a timestamp into Java time.  If the timestamp does not specify a timezone offset,
+     * it is interpreted in the default timezone.
+     *
+     * @throws IllegalArgumentException If the timestamp is invalid.
+     */
+    public static long decode(CharSequence timestamp) {
+        return decode(timestamp, TimeZone.getDefault());
+    }
+
+    /**
+     * Decodes a timestamp into Java time.
+     *
+     * @param timestamp The encoded timestamp.
+     * @param timeZone  Used if the timestamp does not specify a timezone offset.
+     * @throws IllegalArgumentException If the timestamp is invalid.
+     */
+    public static long decode(CharSequence timestamp, TimeZone timeZone) {
+        try {
+            int len = timestamp.length();
+            int year = digits(timestamp, 0, 4);
+            validateChar(timestamp, 4, '-');
+            int month = digits(timestamp, 5, 2);
+            validateChar(timestamp, 7, '-');
+            int day = digits(timestamp, 8, 2);
+            validateChar(timestamp, 10, 'T');
+            int hour = digits(timestamp, 11, 2);
+            validateChar(timestamp, 13, ':');
+            int minute = digits(timestamp, 14, 2);
+            validateChar(timestamp, 16, ':');
+            int second = digits(timestamp, 17, 2);
+            int idx = 19;
+            int millis = 0;
+            if ((len > idx) && (timestamp.charAt(idx) == '.')) {
+                millis = digits(timestamp, idx + 1, 3);
+                idx += 4;
+            }
+            //more than 3 millis digits is possible
+            char ch;
+            while (idx < len) {
+                ch = timestamp.charAt(idx);
+                if ((ch == 'Z') || (ch == '+') || (ch == '-')) {
+                    break;
+                }
+                idx++;
+            }
+            if ((year < 1583) || (month < 1) || (month > 12) || (day < 1) || (day > 31)) {
+                return decodeCalendar(timestamp, timeZone);
+            }
+            long local = (daysFromCivil(year, month, day) * Time.MILLIS_DAY)
+                    + (hour * Time.MILLIS_HOUR)
+                    + (minute * Time.MILLIS_MINUTE)
+                    + (second * Time.MILLIS_SECOND)
+                    + millis;
+            if (idx >= len) {
+                return local - getLocalOffset(timeZone, local);
+            }
+            return local - decodeOffset(timestamp, idx);
+        } catch (IllegalArgumentException x) {
+            throw x;
+        } catch (Exception x) {
+            throw new IllegalArgumentException("Invalid timestamp: " + timestamp);
+        }
+    }
+
+    /**
+     * Returns the timezone represented by the offset in the timestamp.  This is the default
+     * timezone if the timestamp has no offset, or if the offset matches the default timezone at
+     * that time.  Z is always GMT.
+     *
+     * @throws IllegalArgumentException If the timestamp is invalid.
+     */
+    public static TimeZone decodeTimeZone(CharSequence timestamp) {
+        TimeZone def = TimeZone.getDefault();
+        int len = timestamp.length();
+        int idx = 19;
+        char ch;
+        while (idx < len) {
+            ch = timestamp.charAt(idx);
+            if ((ch == 'Z') || (ch == '+') || (ch == '-')) {
+                break;
+            }
+            idx++;
+        }
+        if (idx >= len) {
+            return def;
+        }
+        int offset;
+        try {
+            offset = decodeOffset(timestamp, idx);
+        } catch (Exception x) {
+            throw new IllegalArgumentException("Invalid timestamp: " + timestamp);
+        }
+        if (timestamp.charAt(idx) == 'Z') {
+            return UTC;
+        }
+        if (offset == getOffset(def, decode(timestamp, def))) {
+            return def;
+        }
+        TimeZone ret = offsetZones.get(offset);
+        if (ret == null) {
+            ret = new SimpleTimeZone(offset, "Offset" + offset);
+            offsetZones.put(offset, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Encodes a timestamp into a char array.
+     *
+     * @param timestamp      What to encode.
+     * @param timeZone       The timezone to encode the timestamp in.
+     * @param encodeTzOffset Whether or not to encode the timezone offset.
+     * @param buf            Where to encode, must have room for MAX_LENGTH chars after off.
+     * @param off            The index in buf to start at.
+     * @return The index in buf after the last char written.
+     */
+    public static int encode(long timestamp,
+                             TimeZone timeZone,
+                             boolean encodeTzOffset,
+                             char[] buf,
+                             int off) {
+        if ((timestamp < MIN_MILLIS) || (timestamp > MAX_MILLIS)) {
+            StringBuilder tmp = encodeCalendar(timestamp, timeZone, encodeTzOffset);
+            int len = tmp.length();
+            tmp.getChars(0, len, buf, off);
+            return off + len;
+        }
+        int offset = getOffset(timeZone, timestamp);
+        long local = timestamp + offset;
+        long days = Math.floorDiv(local, Time.MILLIS_DAY);
+        int millis = (int) Math.floorMod(local, Time.MILLIS_DAY);
+        //civil date from days since the epoch, proleptic gregorian
+        long z = days + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(z, 146097);
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        if ((year < 1583) || (year > 9999)) { //the local time crossed a limit
+            StringBuilder tmp = encodeCalendar(timestamp, timeZone, encodeTzOffset);
+            int len = tmp.length();
+            tmp.getChars(0, len, buf, off);
+            return off + len;
+        }
+        off = encodeDigits(year / 100, buf, off);
+        off = encodeDigits(year % 100, buf, off);
+        buf[off++] = '-';
+        off = encodeDigits(month, buf, off);
+        buf[off++] = '-';
+        off = encodeDigits(day, buf, off);
+        buf[off++] = 'T';
+        off = encodeDigits(millis / Time.MILLIS_HOUR, buf, off);
+        buf[off++] = ':';
+        off = encodeDigits((millis / Time.MILLIS_MINUTE) % 60, buf, off);
+        buf[off++] = ':';
+        off = encodeDigits((millis / Time.MILLIS_SECOND) % 60, buf, off);
+        buf[off++] = '.';
+        millis %= 1000;
+        buf[off++] = (char) ('0' + (millis / 100));
+        off = encodeDigits(millis % 100, buf, off);
+        if (!encodeTzOffset) {
+            return off;
+        }
+        if (offset == 0) {
+            buf[off++] = 'Z';
+        } else {
+            if (offset < 0) {
+                buf[off++] = '-';
+                offset = -offset;
+            } else {
+                buf[off++] = '+';
+            }
+            off = encodeDigits(offset / Time.MILLIS_HOUR, buf, off);
+            buf[off++] = ':';
+            off = encodeDigits((offset % Time.MILLIS_HOUR) / Time.MILLIS_MINUTE, buf, off);
+        }
+        return off;
+    }
+
+    /**
+     * Encodes a timestamp into a StringBuilder.
+     *
+     * @param timestamp      What to encode.
+     * @param timeZone       The timezone to encode the timestamp in.
+     * @param encodeTzOffset Whether or not to encode the timezone offset.
+     * @param buf            The buffer to append to, can be null.
+     * @return The buf argument, or if that was null, a new StringBuilder.
+     */
+    public static StringBuilder encode(long timestamp,
+                                       TimeZone timeZone,
+                                       boolean encodeTzOffset,
+                                       StringBuilder buf) {
+        if (buf == null) {
+            buf = new StringBuilder(MAX_LENGTH);
+        }
+        char[] chars = new char[MAX_LENGTH];
+        int len = encode(timestamp, timeZone, encodeTzOffset, chars, 0);
+        return buf.append(chars, 0, len);
+    }
+
+    /**
+     * The offset from UTC of the timezone at the given time, in milliseconds.  This is the
+     * same as TimeZone.getOffset(long), but is cached.
+     */
+    public static int getOffset(TimeZone timeZone, long timestamp) {
+        String id = timeZone.getID();
+        Zone zone = zones.get(id);
+        if ((zone == null) || !zone.isSame(timeZone)) {
+            Class<?> type = timeZone.getClass();
+            if ((type != ZONE_INFO) && (type != SimpleTimeZone.class)) {
+                return timeZone.getOffset(timestamp);
+            }
+            if ((zone == null) && (zones.size() >= MAX_ZONES)) {
+                return timeZone.getOffset(timestamp);
+            }
+            //replaces a zone with the same id but different rules
+            zone = new Zone((TimeZone) timeZone.clone());
+            zones.put(id, zone);
+        }
+        return zone.getOffset(timestamp);
+    }
+
+    /**
+     * Days since the epoch of the proleptic gregorian date.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        if (month <= 2) {
+            year--;
+        }
+        long era = Math.floorDiv(year, 400);
+        int yoe = (int) (year - era * 400);
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Uses a Calendar to decode, for dates outside the range of this class.
+     */
+    private static long decodeCalendar(CharSequence timestamp, TimeZone timeZone) {
+        Calendar cal = Time.getCalendar();
+        cal.setTimeZone(timeZone);
+        Time.decode(timestamp.toString(), cal);
+        long millis = cal.getTimeInMillis();
+        Time.recycle(cal);
+        return millis;
+    }
+
+    /**
+     * Decodes the timezone offset that begins at the given index, Z or [+/-]hh[:mm].
+     */
+    private static int decodeOffset(CharSequence timestamp, int idx) {
+        char sign = timestamp.charAt(idx++);
+        if (sign == 'Z') {
+            return 0;
+        }
+        if ((sign != '+') && (sign != '-')) {
+            throw new IllegalStateException();
+        }
+        int offset = digits(timestamp, idx, 2) * Time.MILLIS_HOUR;
+        idx += 2;
+        //minutes are optional in 8601
+        if (idx < timestamp.length()) {
+            validateChar(timestamp, idx, ':');
+            offset += digits(timestamp, idx + 1, 2) * Time.MILLIS_MINUTE;
+        }
+        if (sign == '-') {
+            return -offset;
+        }
+        return offset;
+    }
+
+    /**
+     * Converts the chars to an int, throws an IllegalStateException if any is not a digit.
+     */
+    private static int digits(CharSequence chars, int off, int len) {
+        int ret = 0;
+        char ch;
+        for (int i = off, end = off + len; i < end; i++) {
+            ch = chars.charAt(i);
+            if ((ch < '0') || (ch > '9')) {
+                throw new IllegalStateException();
+            }
+            ret = (ret * 10) + (ch - '0');
+        }
+        return ret;
+    }
+
+    /**
+     * Uses a Calendar to encode, for dates outside the range of this class.
+     */
+    private static StringBuilder encodeCalendar(long timestamp,
+                                                TimeZone timeZone,
+                                                boolean encodeTzOffset) {
+        Calendar cal = Time.getCalendar(timestamp, timeZone);
+        StringBuilder buf = Time.encode(cal, encodeTzOffset, new StringBuilder());
+        Time.recycle(cal);
+        return buf;
+    }
+
+    /**
+     * Writes the two least significant digits of the value.
+     */
+    private static int encodeDigits(int value, char[] buf, int off) {
+        buf[off++] = (char) ('0' + ((value / 10) % 10));
+        buf[off++] = (char) ('0' + (value % 10));
+        return off;
+    }
+
+    /**
+     * The offset of the timezone for a local time, resolved the way a Calendar does.  A local
+     * time that occurs twice, when the clocks go back, uses the offset after the transition.
+     * One that never occurs, when the clocks go forward, uses the offset before it.
+     *
+     * @param local The local time as if it were UTC.
+     */
+    private static int getLocalOffset(TimeZone timeZone, long local) {
+        int before = getOffset(timeZone, local - Time.MILLIS_DAY);
+        int after = getOffset(timeZone, local + Time.MILLIS_DAY);
+        if ((before == after) || (getOffset(timeZone, local - after) == after)) {
+            return after;
+        }
+        return before;
+    }
+
+    private static void validateChar(CharSequence chars, int idx, char ch) {
+        if (chars.charAt(idx) != ch) {
+            throw new IllegalStateException();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The offset of a timezone over the span of time between two transitions.
+     */
+    private static class Span {
+
+        final long end;   //exclusive
+        final int offset;
+        final long start; //inclusive
+
+        Span(long start, long end, int offset) {
+            this.start = start;
+            this.end = end;
+            this.offset = offset;
+        }
+
+    }
+
+    /**
+     * Caches the most recently used span of a timezone.
+     */
+    private static class Zone {
+
+        private ZoneRules rules;
+        private volatile Span span;
+        private final TimeZone timeZone;
+
+        Zone(TimeZone timeZone) {
+            this.timeZone = timeZone;
+            if ((timeZone instanceof SimpleTimeZone) && !timeZone.useDaylightTime()) {
+                span = new Span(Long.MIN_VALUE, Long.MAX_VALUE, timeZone.getRawOffset());
+                return;
+            }
+            try {
+                rules = timeZone.toZoneId().getRules();
+            } catch (Exception ignore) {
+                //custom timezone, every offset comes from the timezone itself
+            }
+        }
+
+        int getOffset(long timestamp) {
+            Span span = this.span;
+            if ((span != null) && (timestamp >= span.start) && (timestamp < span.end)) {
+                return span.offset;
+            }
+            int offset = timeZone.getOffset(timestamp);
+            if (rules == null) {
+                return offset;
+            }
+            Instant instant = Instant.ofEpochMilli(timestamp);
+            if ((rules.getOffset(instant).getTotalSeconds() * 1000) != offset) {
+                //the rules don't agree with the timezone, don't trust their transitions
+                return offset;
+            }
+            long start = Long.MIN_VALUE;
+            long end = Long.MAX_VALUE;
+            //transitions are on whole seconds, a fraction includes one at the timestamp
+            ZoneOffsetTransition trans = rules.previousTransition(
+                    Instant.ofEpochMilli(timestamp + 1));
+            if (trans != null) {
+                start = trans.toEpochSecond() * 1000;
+            }
+            trans = rules.nextTransition(instant);
+            if (trans != null) {
+                end = trans.toEpochSecond() * 1000;
+            }
+            this.span = new Span(start, end, offset);
+            return offset;
+        }
+
+        /**
+         * Whether the timezone is the same type and has the same rules as the one cached.
+         */
+        boolean isSame(TimeZone timeZone) {
+            return (timeZone.getClass() == this.timeZone.getClass())
+                    && timeZone.hasSameRules(this.timeZone);
+        }
+
+    }
+
+}
@@ -3,16 +3,30 @@ package org.iot.dsa.dslink.websocket;
 import com.acuity.iot.dsa.dslink.sys.cert.SysCertService;
 import com.acuity.iot.dsa.dslink.transport.DSTransportWs;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import javax.websocket.ClientEndpoint;
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.Extension;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
 import org.glassfish.tyrus.client.ClientManager;
 import org.glassfish.tyrus.client.ClientProperties;
 import org.glassfish.tyrus.client.SslContextConfigurator;
 import org.glassfish.tyrus.client.SslEngineConfigurator;
+import org.glassfish.tyrus.core.frame.Frame;
+import org.glassfish.tyrus.ext.extension.deflate.PerMessageDeflateExtension;
 import org.iot.dsa.util.DSException;
 
 /**
  * Websocket client implementation of DSTextTransport based on Tyrus, the reference implementation
  * of JSR 356.
+ * <p>
+ * When compression is enabled, permessage-deflate (RFC 7692) is offered to the broker.  Brokers
+ * that don't accept it simply leave messages uncompressed.
  *
  * @author Aaron Hansen
  */
@@ -47,10 +61,82 @@ public class ClientTransport extends DSTransportWs {
                 client.getProperties()
                       .put(ClientProperties.SSL_ENGINE_CONFIGURATOR, sslEngineConfigurator);
             }
-            client.connectToServer(this, connUri);
+            if (isCompression()) {
+                //extensions can only be offered with a programmatic endpoint
+                ClientEndpointConfig config = ClientEndpointConfig.Builder
+                        .create()
+                        .extensions(Collections.<Extension>singletonList(new DeflateExtension()))
+                        .build();
+                client.connectToServer(new Adapter(), config, connUri);
+            } else {
+                client.connectToServer(this, connUri);
+            }
         } catch (Exception x) {
             DSException.throwRuntime(x);
         }
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Routes the programmatic endpoint callbacks to the annotated methods of the transport.
+     */
+    private class Adapter extends Endpoint {
+
+        @Override
+        public void onClose(Session session, CloseReason reason) {
+            ClientTransport.this.onClose(reason);
+        }
+
+        @Override
+        public void onError(Session session, Throwable err) {
+            ClientTransport.this.onError(err);
+        }
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            session.addMessageHandler(ByteBuffer.class, new MessageHandler.Partial<ByteBuffer>() {
+                @Override
+                public void onMessage(ByteBuffer buf, boolean isLast) {
+                    ClientTransport.this.onMessage(buf, isLast);
+                }
+            });
+            session.addMessageHandler(String.class, new MessageHandler.Partial<String>() {
+                @Override
+                public void onMessage(String msgPart, boolean isLast) {
+                    ClientTransport.this.onMessage(msgPart, isLast);
+                }
+            });
+            ClientTransport.this.onOpen(session, config);
+        }
+
+    }
+
+    /**
+     * Reports the compression ratio and cost of each frame to the transport.
+     */
+    private class DeflateExtension extends PerMessageDeflateExtension {
+
+        @Override
+        public Frame processIncoming(ExtensionContext context, Frame frame) {
+            long start = System.nanoTime();
+            Frame ret = super.processIncoming(context, frame);
+            addCompressionStats(ret.getPayloadLength(), frame.getPayloadLength(),
+                                System.nanoTime() - start);
+            return ret;
+        }
+
+        @Override
+        public Frame processOutgoing(ExtensionContext context, Frame frame) {
+            long start = System.nanoTime();
+            Frame ret = super.processOutgoing(context, frame);
+            addCompressionStats(frame.getPayloadLength(), ret.getPayloadLength(),
+                                System.nanoTime() - start);
+            return ret;
+        }
+
+    }
+
 }
@@ -0,0 +1,139 @@
+package com.acuity.iot.dsa.dslink.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Recycles byte buffers so outbound frames can be handed to the transport without allocating,
+ * or copying into, another buffer.  Buffers are direct unless the transport can't send them
+ * as is (DSITransport.isDirectWrite()), in which case heap buffers avoid copying them to an
+ * array.  Direct buffers are expensive to allocate and are only reclaimed by the garbage
+ * collector, so they should be reused.
+ * <p>
+ * Intended to be owned by a single session.  Buffers larger than the max pooled size are not
+ * retained so a single large message doesn't pin memory for the life of the session.
+ *
+ * @author Aaron Hansen
+ */
+public class DSBufferPool {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Class Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    public static final int DEFAULT_MAX_BUFFERS = 4;
+    public static final int MAX_POOLED_SIZE = 1024 * 1024;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private long allocations = 0;
+    private boolean direct = true;
+    private ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+    private int maxBuffers;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ///////////////////////////////////////////////////////////////////////////
+
+    public DSBufferPool() {
+        this(DEFAULT_MAX_BUFFERS);
+    }
+
+    /**
+     * @param maxBuffers The maximum number of idle buffers to retain.
+     */
+    public DSBufferPool(int maxBuffers) {
+        this.maxBuffers = maxBuffers;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Discards all idle buffers.
+     */
+    public synchronized void clear() {
+        free.clear();
+    }
+
+    /**
+     * The number of buffers that have been allocated, for monitoring how well the pool is
+     * working.
+     */
+    public synchronized long getAllocations() {
+        return allocations;
+    }
+
+    /**
+     * The number of idle buffers in the pool.
+     */
+    public synchronized int getSize() {
+        return free.size();
+    }
+
+    /**
+     * Whether new buffers are direct, true by default.
+     */
+    public synchronized boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Returns a buffer to the pool, it must not be used by the caller afterwards.
+     */
+    public synchronized void recycle(ByteBuffer buf) {
+        if ((buf == null) || (buf.capacity() > MAX_POOLED_SIZE)) {
+            return;
+        }
+        if (buf.isDirect() != direct) { //taken before setDirect
+            return;
+        }
+        if (free.size() >= maxBuffers) {
+            return;
+        }
+        buf.clear();
+        free.push(buf);
+    }
+
+    /**
+     * Whether new buffers are direct, idle buffers are discarded when this changes.  Direct
+     * buffers only avoid a copy if the transport can send them as is.
+     */
+    public synchronized DSBufferPool setDirect(boolean direct) {
+        if (this.direct != direct) {
+            this.direct = direct;
+            free.clear();
+        }
+        return this;
+    }
+
+    /**
+     * Returns a cleared buffer with at least the given capacity, from the pool if possible.
+     */
+    public synchronized ByteBuffer take(int minCapacity) {
+        Iterator<ByteBuffer> it = free.iterator();
+        ByteBuffer buf;
+        while (it.hasNext()) {
+            buf = it.next();
+            if (buf.capacity() >= minCapacity) {
+                it.remove();
+                return buf;
+            }
+        }
+        int size = DEFAULT_BUFFER_SIZE;
+        while (size < minCapacity) {
+            size <<= 1;
+        }
+        allocations++;
+        if (direct) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        return ByteBuffer.allocate(size);
+    }
+
+}
@@ -14,6 +14,11 @@ import org.iot.dsa.util.DSException;
 /**
  * MsgPack implementation of DSReader.  The same instance can be re-used with the setInput method.
  * This class is not thread safe.
+ * <p>
+ * Strings and bytes are read into reusable scratch buffers and only decoded or copied when
+ * asked for, so skipped values cost nothing.  Short strings, such as the keys repeated in every
+ * message, are served from a small cache of previously decoded strings.  Use getCharSequence() to
+ * examine a string value without creating a String.
  *
  * @author Aaron Hansen
  * @see DSIReader
@@ -23,12 +28,23 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
     // Fields
     // ---------
 
+    private static final int CACHE_SIZE = 256; //must be a power of 2
+    private static final int MAX_CACHED_LEN = 32;
+
     private ByteBuffer byteBuffer;
     private byte[] bytes;
+    private boolean bytesPending = false;
+    private byte[][] cacheBytes = new byte[CACHE_SIZE][];
+    private String[] cacheStrings = new String[CACHE_SIZE];
     private CharBuffer charBuffer;
+    private char[] chars;
+    private CharBuffer charsView;
     private CharsetDecoder decoder = DSString.UTF8.newDecoder();
     private Frame frame;
     private InputStream in;
+    private int pendingLen;
+    private Frame spareFrames;
+    private boolean stringPending = false;
     private boolean wasValue = true;
 
     // Constructors
@@ -53,6 +69,43 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
         }
     }
 
+    /**
+     * Returns the bytes value, the array is a copy and can be retained.
+     */
+    @Override
+    public byte[] getBytes() {
+        if (bytesPending && (last() == Token.BYTES)) {
+            byte[] ret = new byte[pendingLen];
+            System.arraycopy(bytes, 0, ret, 0, pendingLen);
+            valBytes = ret;
+            bytesPending = false;
+        }
+        return super.getBytes();
+    }
+
+    /**
+     * Returns the string value without creating a String, unless it was cached.  The returned
+     * sequence is only valid until the next call to next() and should not be retained.
+     */
+    public CharSequence getCharSequence() {
+        if (last() != Token.STRING) {
+            throw new IllegalStateException("Not a string");
+        }
+        if (stringPending) {
+            return decode(pendingLen);
+        }
+        return valString;
+    }
+
+    @Override
+    public String getString() {
+        if (stringPending && (last() == Token.STRING)) {
+            valString = decodeString(pendingLen);
+            stringPending = false;
+        }
+        return super.getString();
+    }
+
     public static boolean isFixInt(byte b) {
         int v = b & 0xff;
         return v <= 0x7f || v >= 0xe0;
@@ -72,13 +125,15 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
 
     @Override
     public Token next() {
+        stringPending = false;
+        bytesPending = false;
         if (frame != null) {
             //check to see if we've read all the children of the parent list/map.
             if (frame.map) {
                 //don't count keys, only values
                 if (wasValue) {
                     if (!frame.next()) {
-                        frame = frame.parent;
+                        popFrame();
                         setEndMap();
                         return last();
                     }
@@ -86,7 +141,7 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
                 wasValue = !wasValue;
             } else {
                 if (!frame.next()) {
-                    frame = frame.parent;
+                    popFrame();
                     setEndList();
                     return last();
                 }
@@ -149,12 +204,8 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
     }
 
     public String readUTF(int len) throws IOException {
-        byte[] bytes = readBytes(len);
-        ByteBuffer byteBuf = getByteBuffer(bytes, 0, len);
-        CharBuffer charBuf = getCharBuffer(len);
-        decoder.decode(byteBuf, charBuf, false);
-        charBuf.flip();
-        return charBuf.toString();
+        readBytes(len);
+        return decodeString(len);
     }
 
     @Override
@@ -171,6 +222,76 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
         return reset();
     }
 
+    // Private Methods
+    // ---------------
+
+    /**
+     * Decodes the given number of UTF-8 bytes in the scratch buffer into a reusable char buffer.
+     * ASCII, which includes all DSA keys, is copied without the charset decoder.
+     */
+    private CharBuffer decode(int len) {
+        byte[] bytes = this.bytes;
+        if ((chars == null) || (chars.length < len)) {
+            int tmp = 1024;
+            while (tmp < len) {
+                tmp += 1024;
+            }
+            chars = new char[tmp];
+            charsView = CharBuffer.wrap(chars);
+        }
+        char[] chars = this.chars;
+        for (int i = 0; i < len; i++) {
+            byte b = bytes[i];
+            if (b < 0) {
+                ByteBuffer byteBuf = getByteBuffer(bytes, 0, len);
+                CharBuffer charBuf = getCharBuffer(len);
+                decoder.decode(byteBuf, charBuf, false);
+                decoder.reset();
+                charBuf.flip();
+                return charBuf;
+            }
+            chars[i] = (char) b;
+        }
+        charsView.clear();
+        charsView.limit(len);
+        return charsView;
+    }
+
+    /**
+     * Returns a String for the given number of UTF-8 bytes in the scratch buffer.  Short strings
+     * are cached by their bytes so repeated keys are only decoded once.
+     */
+    private String decodeString(int len) {
+        if (len == 0) {
+            return "";
+        }
+        if (len > MAX_CACHED_LEN) {
+            return decode(len).toString();
+        }
+        byte[] bytes = this.bytes;
+        int hash = len;
+        for (int i = 0; i < len; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int idx = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        byte[] cached = cacheBytes[idx];
+        if ((cached != null) && (cached.length == len)) {
+            int i = 0;
+            while ((i < len) && (cached[i] == bytes[i])) {
+                i++;
+            }
+            if (i == len) {
+                return cacheStrings[idx];
+            }
+        }
+        String ret = decode(len).toString();
+        cached = new byte[len];
+        System.arraycopy(bytes, 0, cached, 0, len);
+        cacheBytes[idx] = cached;
+        cacheStrings[idx] = ret;
+        return ret;
+    }
+
     /**
      * Returns a byte buffer wrapping the given bytes and ready for reading (getting).  Attempts to
      * reuse the same buffer.
@@ -222,8 +343,34 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
     }
 
     /**
-     * Reads bytes into an array that is guaranteed to be at least the given size but will probably
-     * be longer.
+     * Ends the current list or map frame and keeps it for reuse.
+     */
+    private void popFrame() {
+        Frame done = frame;
+        frame = done.parent;
+        done.parent = spareFrames;
+        spareFrames = done;
+    }
+
+    /**
+     * Pushes a new list or map frame, reusing a previously popped frame if possible.
+     */
+    private void pushFrame(int size, boolean map) {
+        Frame ret = spareFrames;
+        if (ret == null) {
+            ret = new Frame();
+        } else {
+            spareFrames = ret.parent;
+        }
+        ret.map = map;
+        ret.size = size;
+        ret.parent = frame;
+        frame = ret;
+    }
+
+    /**
+     * Reads bytes into the scratch array that is guaranteed to be at least the given size but will
+     * probably be longer.
      */
     private byte[] readBytes(int size) throws IOException {
         if ((bytes == null) || (bytes.length < size)) {
@@ -233,8 +380,13 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
             }
             bytes = new byte[tmp];
         }
-        if (in.read(bytes, 0, size) != size) {
-            throw new IOException("Unexpected end of input");
+        int off = 0;
+        while (off < size) {
+            int len = in.read(bytes, off, size - off);
+            if (len <= 0) {
+                throw new IOException("Unexpected end of input");
+            }
+            off += len;
         }
         return bytes;
     }
@@ -254,9 +406,11 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
             default:
                 throw new IllegalStateException("Unknown bytes: " + b);
         }
-        byte[] bytes = new byte[size];
-        in.read(bytes);
-        return setNextValue(bytes);
+        readBytes(size);
+        setNextValue(bytes);
+        pendingLen = size;
+        bytesPending = true;
+        return last();
     }
 
     private Token readList(byte b) {
@@ -275,7 +429,7 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
                     throw new IllegalStateException("Unknown list type: " + b);
             }
         }
-        frame = new Frame(size, false);
+        pushFrame(size, false);
         return setBeginList();
     }
 
@@ -295,7 +449,7 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
                     throw new IllegalStateException("Unknown map type: " + b);
             }
         }
-        frame = new Frame(size, true);
+        pushFrame(size, true);
         return setBeginMap();
     }
 
@@ -340,25 +494,25 @@ public class MsgpackReader extends AbstractReader implements DSIReader, MsgpackC
                     throw new IllegalStateException("Unknown string type: " + b);
             }
         }
-        setNextValue(readUTF(size));
+        readBytes(size);
+        if (size <= MAX_CACHED_LEN) {
+            return setNextValue(decodeString(size));
+        }
+        setNextValue("");
+        pendingLen = size;
+        stringPending = true;
         return last();
     }
 
     // Inner Classes
     // -------------
 
-    private class Frame {
+    private static class Frame {
 
         boolean map;
         Frame parent;
         int size;
 
-        Frame(int size, boolean map) {
-            this.map = map;
-            this.size = size;
-            this.parent = frame;
-        }
-
         public boolean next() {
             return --size >= 0;
         }
@@ -4,8 +4,12 @@ import com.acuity.iot.dsa.dslink.io.msgpack.MsgpackReader;
 import com.acuity.iot.dsa.dslink.io.msgpack.MsgpackWriter;
 import com.acuity.iot.dsa.dslink.protocol.message.OutboundMessage;
 import com.acuity.iot.dsa.dslink.protocol.responder.DSResponder;
+import com.acuity.iot.dsa.dslink.util.DSHistogram;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.iot.dsa.DSRuntime;
 import org.iot.dsa.conn.DSConnection;
 import org.iot.dsa.conn.DSIConnectionDescendant;
@@ -17,6 +21,7 @@ import org.iot.dsa.io.DSIReader;
 import org.iot.dsa.io.DSIWriter;
 import org.iot.dsa.io.json.Json;
 import org.iot.dsa.node.DSBool;
+import org.iot.dsa.node.DSDouble;
 import org.iot.dsa.node.DSInfo;
 import org.iot.dsa.node.DSLong;
 import org.iot.dsa.node.DSNode;
@@ -38,6 +43,9 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
     protected static final String LAST_ACK_SENT = "Ack Sent";
     protected static final String LAST_MID_RCVD = "MID Rcvd";
     protected static final String LAST_MID_SENT = "MID Sent";
+    protected static final String LATENCY_P50 = "Latency P50";
+    protected static final String LATENCY_P99 = "Latency P99";
+    protected static final String LATENCY_P999 = "Latency P999";
     protected static final String REQ_QUEUE = "Request Queue";
     protected static final String RES_QUEUE = "Response Queue";
     protected static final String REQUESTER = "Requester";
@@ -60,18 +68,24 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
     private long lastTimeRecv;
     private long lastTimeSend;
     private long lastUpdateStats;
+    private DSHistogram latency = new DSHistogram();
     private int maxMissingAcks;
     private int midRcvd = 0;
     private int midSent = 0;
     private int nextMessage = 1;
     private DSIReader reader;
     private Receiver receiver = new Receiver();
-    private ConcurrentLinkedQueue<OutboundMessage> reqQueue = new ConcurrentLinkedQueue<>();
+    private OutboundQueue reqQueue = new OutboundQueue();
     private DSInfo<?> requesterAllowed = getInfo(REQUESTER_ALLOWED);
-    private ConcurrentLinkedQueue<OutboundMessage> resQueue = new ConcurrentLinkedQueue<>();
+    private OutboundQueue resQueue = new OutboundQueue();
     private Sender sender = new Sender();
+    private int sentSize = 0;
+    private long[] sentTimes = new long[64]; //only used by the sender
     private DSInfo<?> statAckRcvd = getInfo(LAST_ACK_RCVD);
     private DSInfo<?> statAckSent = getInfo(LAST_ACK_SENT);
+    private DSInfo<?> statLatencyP50 = getInfo(LATENCY_P50);
+    private DSInfo<?> statLatencyP99 = getInfo(LATENCY_P99);
+    private DSInfo<?> statLatencyP999 = getInfo(LATENCY_P999);
     private DSInfo<?> statMidRcvd = getInfo(LAST_MID_SENT);
     private DSInfo<?> statMidSent = getInfo(LAST_MID_SENT);
     private DSInfo<?> statReqQ = getInfo(REQ_QUEUE);
@@ -134,6 +148,11 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
         synchronized (receiver) {
             receiver.notify();
         }
+        //messages waiting on an ack may now be writable
+        boolean woke = reqQueue.wake();
+        if (resQueue.wake() || woke) {
+            sendMessage();
+        }
     }
 
     /**
@@ -193,6 +212,14 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
         return getConnection().getTransport();
     }
 
+    /**
+     * Nanoseconds from when subscription updates were queued to when the message containing
+     * them was written to the transport, since the last connection.
+     */
+    public DSHistogram getUpdateLatency() {
+        return latency;
+    }
+
     public DSIWriter getWriter() {
         if (writer == null) {
             DSITransport transport = getConnection().getTransport();
@@ -256,6 +283,19 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
         DSRuntime.run(sender);
     }
 
+    /**
+     * Called by the sender as each subscription update is encoded.  The latency is recorded
+     * once the message containing it has been written to the transport.
+     *
+     * @param enqueued System.nanoTime() when the update was queued.
+     */
+    public void updateSent(long enqueued) {
+        if (sentSize == sentTimes.length) {
+            sentTimes = Arrays.copyOf(sentTimes, sentSize * 2);
+        }
+        sentTimes[sentSize++] = enqueued;
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Protected Methods
     ///////////////////////////////////////////////////////////////////////////
@@ -291,20 +331,34 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
         declareDefault(LAST_MID_SENT, DSLong.valueOf(0))
                 .setReadOnly(true)
                 .setTransient(true);
+        declareDefault(LATENCY_P50, DSDouble.valueOf(0),
+                       "Median ms from a value update to the transport")
+                .setReadOnly(true)
+                .setTransient(true);
+        declareDefault(LATENCY_P99, DSDouble.valueOf(0),
+                       "99th percentile ms from a value update to the transport")
+                .setReadOnly(true)
+                .setTransient(true);
+        declareDefault(LATENCY_P999, DSDouble.valueOf(0),
+                       "99.9th percentile ms from a value update to the transport")
+                .setReadOnly(true)
+                .setTransient(true);
     }
 
     /**
-     * Can return null.
+     * Returns the next request that can be written, or null.  Requests that can't be written
+     * are set aside until the next ack is received.
      */
     protected OutboundMessage dequeueOutgoingRequest() {
-        return reqQueue.poll();
+        return reqQueue.poll(this);
     }
 
     /**
-     * Can return null.
+     * Returns the next response that can be written, or null.  Responses that can't be
+     * written are set aside until the next ack is received.
      */
     protected OutboundMessage dequeueOutgoingResponse() {
-        return resQueue.poll();
+        return resQueue.poll(this);
     }
 
     /**
@@ -358,21 +412,7 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
         if (waitingForAcks()) {
             return false;
         }
-        if (!resQueue.isEmpty()) {
-            for (OutboundMessage msg : resQueue) {
-                if (msg.canWrite(this)) {
-                    return true;
-                }
-            }
-        }
-        if (!reqQueue.isEmpty()) {
-            for (OutboundMessage msg : reqQueue) {
-                if (msg.canWrite(this)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return resQueue.hasWritable(this) || reqQueue.hasWritable(this);
     }
 
     protected int numOutgoingRequests() {
@@ -389,6 +429,7 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
     protected void onConnected() {
         connected = true;
         lastTimeRecv = lastTimeSend = System.currentTimeMillis();
+        latency.reset();
         sendMessage();
     }
 
@@ -425,12 +466,18 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
         updateTimer = null;
     }
 
+    /**
+     * Puts a dequeued request back at the head of the queue.
+     */
     protected void requeueOutgoingRequest(OutboundMessage arg) {
-        reqQueue.add(arg);
+        reqQueue.requeue(arg);
     }
 
+    /**
+     * Puts a dequeued response back at the head of the queue.
+     */
     protected void requeueOutgoingResponse(OutboundMessage arg) {
-        resQueue.add(arg);
+        resQueue.requeue(arg);
     }
 
     /**
@@ -453,6 +500,9 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
             put(statResQ, DSLong.valueOf(resQueue.size()));
             put(statMidRcvd, DSLong.valueOf(midRcvd));
             put(statMidSent, DSLong.valueOf(midSent));
+            put(statLatencyP50, toMillis(latency.getPercentile(50)));
+            put(statLatencyP99, toMillis(latency.getPercentile(99)));
+            put(statLatencyP999, toMillis(latency.getPercentile(99.9)));
             lastUpdateStats = now;
         }
     }
@@ -475,6 +525,27 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
     // Private Methods
     ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Records the latency of the updates in the message just written to the transport.
+     */
+    private void recordSent() {
+        if (sentSize == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < sentSize; i++) {
+            latency.record(now - sentTimes[i]);
+        }
+        sentSize = 0;
+    }
+
+    /**
+     * Nanos to millis, to the microsecond.
+     */
+    private static DSDouble toMillis(long nanos) {
+        return DSDouble.valueOf(Math.round(nanos / 1000d) / 1000d);
+    }
+
     private void verifyLastRead() throws IOException {
         if ((System.currentTimeMillis() - lastTimeRecv) > MSG_TIMEOUT) {
             throw new IOException("No message received in " + MSG_TIMEOUT + "ms");
@@ -511,6 +582,100 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
     // Inner Classes
     ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Outbound messages split into those that are ready and those that can't be written until
+     * an ack is received.  A message is only checked with canWrite when it reaches the head of
+     * the queue, and blocked messages are only checked again after an ack.  Previously the
+     * entire queue was scanned before every send, which is quadratic on deep queues such as
+     * after a reconnect.  Only the sender removes messages.
+     */
+    private static class OutboundQueue {
+
+        private ArrayDeque<OutboundMessage> blocked = new ArrayDeque<>();
+        private ConcurrentLinkedQueue<OutboundMessage> ready = new ConcurrentLinkedQueue<>();
+        private AtomicInteger size = new AtomicInteger();
+        private ArrayDeque<OutboundMessage> woken = new ArrayDeque<>();
+
+        void add(OutboundMessage msg) {
+            ready.add(msg);
+            size.incrementAndGet();
+        }
+
+        synchronized void clear() {
+            ready.clear();
+            blocked.clear();
+            woken.clear();
+            size.set(0);
+        }
+
+        synchronized boolean hasWritable(DSSession session) {
+            return peek(session) != null;
+        }
+
+        synchronized OutboundMessage poll(DSSession session) {
+            OutboundMessage ret = peek(session);
+            if (ret != null) {
+                if (ret == woken.peekFirst()) {
+                    woken.pollFirst();
+                } else {
+                    ready.poll();
+                }
+                size.decrementAndGet();
+            }
+            return ret;
+        }
+
+        synchronized void requeue(OutboundMessage msg) {
+            woken.addFirst(msg);
+            size.incrementAndGet();
+        }
+
+        int size() {
+            return size.get();
+        }
+
+        /**
+         * Moves blocked messages ahead of the ready messages so they are checked again. Returns
+         * true if there were any.
+         */
+        synchronized boolean wake() {
+            if (blocked.isEmpty()) {
+                return false;
+            }
+            if (woken.isEmpty()) {
+                ArrayDeque<OutboundMessage> tmp = woken;
+                woken = blocked;
+                blocked = tmp;
+            } else {
+                woken.addAll(blocked);
+                blocked.clear();
+            }
+            return true;
+        }
+
+        /**
+         * Returns the head writable message without removing it.  Messages that can't be
+         * written are moved to the blocked list.
+         */
+        private OutboundMessage peek(DSSession session) {
+            OutboundMessage msg;
+            while ((msg = woken.peekFirst()) != null) {
+                if (msg.canWrite(session)) {
+                    return msg;
+                }
+                blocked.addLast(woken.pollFirst());
+            }
+            while ((msg = ready.peek()) != null) {
+                if (msg.canWrite(session)) {
+                    return msg;
+                }
+                blocked.addLast(ready.poll());
+            }
+            return null;
+        }
+
+    }
+
     private class Receiver implements Runnable {
 
         private boolean interest = false;
@@ -530,21 +695,29 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
                 interest = false;
                 recving = true;
             }
+            boolean again;
             try {
                 do {
                     verifyLastSend();
                     doRecvMessage();
                     getConnection().connOk();
                     lastTimeRecv = System.currentTimeMillis();
-                } while (interest);
+                    synchronized (receiver) {
+                        again = interest;
+                        interest = false;
+                        recving = again;
+                    }
+                } while (again);
             } catch (Exception x) {
+                synchronized (receiver) {
+                    recving = false;
+                }
                 if (connected) {
                     connected = false;
                     debug(x);
                     getConnection().connDown(DSException.makeMessage(x));
                 }
             }
-            recving = false;
         }
     }
 
@@ -563,24 +736,40 @@ public abstract class DSSession extends DSNode implements DSIConnectionDescendan
                 interest = false;
                 sending = true;
             }
+            boolean done = false;
             try {
-                verifyLastRead();
-                while (hasSomethingToSend()) {
-                    doSendMessage();
-                    getConnection().connOk();
-                    lastTimeSend = System.currentTimeMillis();
-                }
-            } catch (Exception x) {
-                if (connected) {
-                    connected = false;
-                    debug(x);
-                    getConnection().connDown(DSException.makeMessage(x));
+                //loop rather than resubmit, a saturated pool runs resubmits on this stack
+                while (!done) {
+                    try {
+                        verifyLastRead();
+                        while (hasSomethingToSend()) {
+                            doSendMessage();
+                            recordSent();
+                            getConnection().connOk();
+                            lastTimeSend = System.currentTimeMillis();
+                        }
+                    } catch (Exception x) {
+                        sentSize = 0;
+                        if (connected) {
+                            connected = false;
+                            debug(x);
+                            getConnection().connDown(DSException.makeMessage(x));
+                        }
+                    }
+                    synchronized (sender) {
+                        done = !interest;
+                        interest = false;
+                        if (done) {
+                            sending = false;
+                        }
+                    }
                 }
             } finally {
-                sending = false;
-            }
-            if (interest) {
-                DSRuntime.run(this);
+                if (!done) { //an error escaped
+                    synchronized (sender) {
+                        sending = false;
+                    }
+                }
             }
         }
 
@@ -4,6 +4,7 @@ import com.acuity.iot.dsa.dslink.protocol.DSSession;
 import com.acuity.iot.dsa.dslink.protocol.message.MessageWriter;
 import com.acuity.iot.dsa.dslink.protocol.message.OutboundMessage;
 import com.acuity.iot.dsa.dslink.protocol.requester.DSOutboundSubscription.State;
+import com.acuity.iot.dsa.dslink.util.DSIntMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -44,8 +45,7 @@ public class DSOutboundSubscriptions extends DSNode implements OutboundMessage {
     private final ConcurrentLinkedQueue<DSOutboundSubscription> pendingUnsubscribe =
             new ConcurrentLinkedQueue<>();
     private DSRequester requester;
-    private final Map<Integer, DSOutboundSubscription> sidMap =
-            new ConcurrentHashMap<>();
+    private final DSIntMap<DSOutboundSubscription> sidMap = new DSIntMap<>();
 
     ///////////////////////////////////////////////////////////////////////////
     // Constructors
@@ -68,7 +68,25 @@ public class DSOutboundSubscriptions extends DSNode implements OutboundMessage {
         return requester;
     }
 
+    /**
+     * Decodes the ISO 8601 timestamp and calls the other handleUpdate.
+     */
     public void handleUpdate(int sid, String ts, String sts, DSElement value) {
+        DSDateTime timestamp = null;
+        if ((ts != null) && !ts.isEmpty()) {
+            timestamp = DSDateTime.valueOf(ts);
+        }
+        handleUpdate(sid, timestamp, sts, value);
+    }
+
+    /**
+     * Delivers an update to the subscription with the given sid.
+     *
+     * @param ts    If null, the current time will be used.
+     * @param sts   If null, ok will be used.
+     * @param value If null, DSNull will be used.
+     */
+    public void handleUpdate(int sid, DSDateTime ts, String sts, DSElement value) {
         if (sid < 0) {
             debug(debug() ? "Update missing sid" : null);
             return;
@@ -78,11 +96,9 @@ public class DSOutboundSubscriptions extends DSNode implements OutboundMessage {
             debug(debug() ? ("Unexpected subscription sid " + sid) : null);
             return;
         }
-        DSDateTime timestamp;
-        if ((ts == null) || ts.isEmpty()) {
+        DSDateTime timestamp = ts;
+        if (timestamp == null) {
             timestamp = DSDateTime.now();
-        } else {
-            timestamp = DSDateTime.valueOf(ts);
         }
         DSStatus status = DSStatus.ok;
         if (sts != null) {
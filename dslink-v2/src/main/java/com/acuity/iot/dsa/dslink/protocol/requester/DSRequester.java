@@ -2,11 +2,9 @@ package com.acuity.iot.dsa.dslink.protocol.requester;
 
 import com.acuity.iot.dsa.dslink.protocol.DSSession;
 import com.acuity.iot.dsa.dslink.protocol.message.OutboundMessage;
+import com.acuity.iot.dsa.dslink.util.DSIntMap;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.iot.dsa.DSRuntime;
 import org.iot.dsa.dslink.DSIRequester;
@@ -41,7 +39,7 @@ public abstract class DSRequester extends DSNode implements DSIRequester {
 
     private Map<String, DSOutboundListStub> lists = new HashMap<>();
     private AtomicInteger nextRid = new AtomicInteger();
-    private Map<Integer, DSOutboundStub> requests = new ConcurrentHashMap<>();
+    private DSIntMap<DSOutboundStub> requests = new DSIntMap<>();
     private DSSession session;
     private DSOutboundSubscriptions subscriptions = makeSubscriptions();
     private DSRuntime.Timer updateTimer;
@@ -117,17 +115,16 @@ public abstract class DSRequester extends DSNode implements DSIRequester {
     }
 
     public void onDisconnected() {
-        Iterator<Entry<Integer, DSOutboundStub>> it = requests.entrySet().iterator();
-        Map.Entry<Integer, DSOutboundStub> me;
-        while (it.hasNext()) {
-            me = it.next();
-            if (!(me.getValue() instanceof DSOutboundListStub)) {
+        DSOutboundStub stub;
+        for (int rid : requests.keys()) {
+            stub = requests.get(rid);
+            if ((stub != null) && !(stub instanceof DSOutboundListStub)) {
                 try {
-                    me.getValue().getHandler().onClose();
+                    stub.getHandler().onClose();
                 } catch (Exception x) {
                     error(getPath(), x);
                 }
-                it.remove();
+                requests.remove(rid);
             }
         }
         subscriptions.onDisconnected();
@@ -147,7 +144,7 @@ public abstract class DSRequester extends DSNode implements DSIRequester {
         return req;
     }
 
-    public void removeRequest(Integer rid) {
+    public void removeRequest(int rid) {
         Object obj = requests.remove(rid);
         if (obj instanceof DSOutboundListStub) {
             DSOutboundListStub stub = (DSOutboundListStub) obj;
@@ -192,7 +189,7 @@ public abstract class DSRequester extends DSNode implements DSIRequester {
         return nextRid.incrementAndGet();
     }
 
-    protected DSOutboundStub getRequest(Integer rid) {
+    protected DSOutboundStub getRequest(int rid) {
         return requests.get(rid);
     }
 
@@ -54,8 +54,9 @@ public class DSInboundList extends DSInboundRequest
     private DSMap cacheMap = new DSMap();
     private DSMetadata cacheMeta = new DSMetadata(cacheMap);
     private boolean enqueued = false;
+    private String requestPath; //getPath is relative to a DSIResponder target
     private ListCloseHandler response;
-    private boolean sendStreamOpen = false;
+    private volatile boolean sendStreamOpen = false;
     private StreamState state = StreamState.CLOSED;
     private DSISubscription subscription;
     private DSTarget target;
@@ -86,8 +87,9 @@ public class DSInboundList extends DSInboundRequest
         }
         if (isOpen()) {
             //we don't actually close the stream because an object could be added back at this path
-            send("$disconnectedTs", DSDateTime.now().toElement());
+            //stream open must be set before the send, the write can happen right away
             sendStreamOpen = true;
+            send("$disconnectedTs", DSDateTime.now().toElement());
             state = StreamState.DISCONNECTED;
         }
     }
@@ -208,7 +210,10 @@ public class DSInboundList extends DSInboundRequest
         }
         try {
             state = StreamState.OPEN;
-            target = new DSTarget(getPath(), getLink().getRootNode());
+            if (requestPath == null) {
+                requestPath = getPath();
+            }
+            target = new DSTarget(requestPath, getLink().getRootNode());
             if (target.isResponder()) {
                 DSIResponder responder = (DSIResponder) target.getTarget();
                 setPath(target.getPath());
@@ -3,6 +3,10 @@ package com.acuity.iot.dsa.dslink.protocol.responder;
 import com.acuity.iot.dsa.dslink.protocol.DSSession;
 import com.acuity.iot.dsa.dslink.protocol.message.DSTarget;
 import com.acuity.iot.dsa.dslink.protocol.message.MessageWriter;
+import com.acuity.iot.dsa.dslink.util.DSHistogram;
+import java.util.ArrayList;
+import java.util.TimeZone;
+import org.iot.dsa.DSRuntime;
 import org.iot.dsa.dslink.DSIResponder;
 import org.iot.dsa.dslink.responder.InboundSubscribeRequest;
 import org.iot.dsa.dslink.responder.SubscriptionCloseHandler;
@@ -11,6 +15,7 @@ import org.iot.dsa.node.DSElement;
 import org.iot.dsa.node.DSIStatus;
 import org.iot.dsa.node.DSIValue;
 import org.iot.dsa.node.DSInfo;
+import org.iot.dsa.node.DSMetadata;
 import org.iot.dsa.node.DSNode;
 import org.iot.dsa.node.DSNull;
 import org.iot.dsa.node.DSStatus;
@@ -22,12 +27,36 @@ import org.iot.dsa.time.DSDateTime;
 
 /**
  * Subscribe implementation for the responder.
+ * <p>
+ * The queue of a qos 1 or 2 subscription is bounded by the limits of the manager.  When a limit
+ * is reached, either the oldest update is dropped or the newest update replaces the last one
+ * queued.  While disconnected, qos 2 updates go to the spill file of the manager, if it has
+ * one, and are replayed when the path is subscribed again.
+ * <p>
+ * The queue is a ring of parallel arrays: Java time and status bits are primitives, only the
+ * value is a reference.  The timezone of a timestamp is only kept, in another array, once an
+ * update has one.  Nothing is allocated per update, the ring only grows when there is a
+ * backlog, and it is returned to its initial size once a large backlog has been written.  The
+ * spill file does not keep timezones, replayed timestamps are in the default timezone.
+ * <p>
+ * Before anything is queued, updates can be filtered by a deadband and a minimum interval, which
+ * come from the subscribe request or the metadata of the target (DSMetadata.DEADBAND and
+ * DSMetadata.MIN_INTERVAL), the request taking precedence.  Numeric values that changed less
+ * than the deadband are discarded.  Updates arriving sooner than the minimum interval are held,
+ * only the newest, and queued when the interval expires.  Status changes always pass.
  *
  * @author Aaron Hansen
  */
 public class DSInboundSubscription extends DSInboundRequest
         implements DSISubscriber, InboundSubscribeRequest {
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Class Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int SHRINK_CAPACITY = 64;
+
     ///////////////////////////////////////////////////////////////////////////
     // Instance Fields
     ///////////////////////////////////////////////////////////////////////////
@@ -35,19 +64,44 @@ public class DSInboundSubscription extends DSInboundRequest
     private int ackRequired = 0;
     private DSInfo<?> child;
     private SubscriptionCloseHandler closeHandler;
+    private double deadband = 0;
+    private boolean deadbandPercent = false;
+    private boolean deadbandRequested = false;
     private boolean enqueued = false;
+    private long[] enqueueTimes;
+    private DSStatus heldStatus;
+    private DSRuntime.Timer heldTimer;
+    private TimeZone heldTimeZone;
+    private long heldTimestamp;
+    private DSIValue heldValue;
+    private long lastQueued;
+    private int lastStatus = DSStatus.OK;
+    private double lastValue = Double.NaN;
     private DSInboundSubscriptions manager;
+    private int messageId;
+    private int messageWrites;
+    private long minInterval = 0;
+    private boolean minIntervalRequested = false;
     private int qos;
+    private int queueHead = 0;
+    private int queueSize = 0;
     private Integer sid;
     private StreamState state = StreamState.CLOSED;
+    private int[] statuses;
     private DSISubscription subscription;
-    private Update updateHead;
-    private Update updateTail;
+    private TimeZone[] timeZones; //null until an update has a timezone
+    private long[] timestamps;
+    private Update update = new Update(); //only used by the writing thread
+    private DSIValue[] values;
 
     ///////////////////////////////////////////////////////////////////////////
     // Constructors
     ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Nothing is subscribed until init is called, so the options of the request can be set
+     * before the first update.
+     */
     protected DSInboundSubscription(DSInboundSubscriptions manager,
                                     Integer sid,
                                     String path,
@@ -59,7 +113,6 @@ public class DSInboundSubscription extends DSInboundRequest
         setPath(path);
         this.qos = qos;
         setLink(manager.getLink());
-        init();
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -99,18 +152,29 @@ public class DSInboundSubscription extends DSInboundRequest
         state = StreamState.DISCONNECTED;
     }
 
+    /**
+     * Numeric values that change less than this are not sent, zero by default.
+     */
+    public double getDeadband() {
+        return deadband;
+    }
+
+    /**
+     * The minimum milliseconds between updates, zero by default.
+     */
+    public long getMinInterval() {
+        return minInterval;
+    }
+
     public int getQos() {
         return qos;
     }
 
-    public DSInboundSubscription setQos(int val) {
-        synchronized (this) {
-            if (val == 0) {
-                updateHead = updateTail;
-            }
-            qos = val;
-        }
-        return this;
+    /**
+     * The number of updates waiting to be sent.
+     */
+    public synchronized int getQueueSize() {
+        return queueSize;
     }
 
     /**
@@ -121,8 +185,11 @@ public class DSInboundSubscription extends DSInboundRequest
         return sid;
     }
 
-    public void setSubscriptionId(Integer id) {
-        sid = id;
+    /**
+     * Whether or not the deadband is a percentage of the last value sent.
+     */
+    public boolean isDeadbandPercent() {
+        return deadbandPercent;
     }
 
     public boolean isOpen() {
@@ -137,7 +204,7 @@ public class DSInboundSubscription extends DSInboundRequest
 
     @Override
     public void onEvent(DSEvent event, DSNode node, DSInfo<?> child, DSIValue data) {
-        DSDateTime dt = DSDateTime.now();
+        long now = System.currentTimeMillis();
         DSStatus status = DSStatus.ok;
         switch (event.getEventId()) {
             case DSNode.CHILD_REMOVED:
@@ -162,12 +229,71 @@ public class DSInboundSubscription extends DSInboundRequest
                     if (data instanceof DSIStatus) {
                         status = ((DSIStatus) data).getStatus();
                     }
-                    update(dt, value, status);
+                    update(now, value, status);
                 }
                 break;
         }
     }
 
+    /**
+     * Set by the subscribe request, this takes precedence over metadata.
+     *
+     * @param value   Zero to disable.
+     * @param percent True if the value is a percentage of the last value sent.
+     */
+    public DSInboundSubscription setDeadband(double value, boolean percent) {
+        synchronized (this) {
+            deadband = value;
+            deadbandPercent = percent;
+            deadbandRequested = true;
+        }
+        return this;
+    }
+
+    /**
+     * Set by the subscribe request, this takes precedence over metadata.
+     *
+     * @param arg A number, or a number followed by % for a percentage of the last value sent.
+     */
+    public DSInboundSubscription setDeadband(String arg) {
+        return setDeadband(parseDeadband(arg), arg.trim().endsWith("%"));
+    }
+
+    /**
+     * Set by the subscribe request, this takes precedence over metadata.
+     *
+     * @param millis Zero to disable.
+     */
+    public DSInboundSubscription setMinInterval(long millis) {
+        synchronized (this) {
+            minInterval = millis;
+            minIntervalRequested = true;
+        }
+        return this;
+    }
+
+    public DSInboundSubscription setQos(int val) {
+        synchronized (this) {
+            if (qos > 0) {
+                manager.addQueued(-queueSize);
+            }
+            if (val == 0) {
+                while (queueSize > 1) { //keep the newest
+                    removeHead();
+                }
+            }
+            qos = val;
+            if (qos > 0) {
+                manager.addQueued(queueSize);
+            }
+        }
+        return this;
+    }
+
+    public synchronized void setSubscriptionId(Integer id) {
+        sid = id;
+    }
+
     @Override
     public String toString() {
         return "Subscription (" + getSubscriptionId() + ") " + getPath();
@@ -178,35 +304,7 @@ public class DSInboundSubscription extends DSInboundRequest
      */
     @Override
     public void update(DSDateTime timestamp, DSIValue value, DSStatus status) {
-        if (qos == 0) {
-            synchronized (this) {
-                if (updateHead == null) {
-                    updateHead = new Update();
-                }
-                updateHead.set(timestamp, value, status);
-                if (enqueued) {
-                    return;
-                }
-                enqueued = true;
-            }
-        } else {
-            Update update = new Update().set(timestamp, value, status);
-            synchronized (this) {
-                if (updateHead == null) {
-                    updateHead = updateTail = update;
-                } else {
-                    updateTail.next = update;
-                    updateTail = update;
-                }
-                if (enqueued) {
-                    return;
-                }
-                enqueued = true;
-            }
-        }
-        if (sid != 0) { //0 if the connection was disconnected
-            manager.enqueue(this);
-        }
+        update(timestamp.timeInMillis(), timestamp.getTimeZone(), value, status);
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -214,22 +312,44 @@ public class DSInboundSubscription extends DSInboundRequest
     ///////////////////////////////////////////////////////////////////////////
 
     /**
-     * Remove an update from the queue.
+     * Remove the oldest update from the queue.  At qos 0 the last update stays in its slot so
+     * the current value can be sent again when the path is resubscribed.
+     *
+     * @param bucket Where to copy the update.
+     * @return False if there was nothing to send.
      */
-    protected synchronized Update dequeue() {
-        if (updateHead == null) {
-            return null;
+    protected synchronized boolean dequeue(Update bucket) {
+        if (queueSize == 0) {
+            if ((qos > 0) || (values == null) || (values[queueHead] == null)) {
+                return false;
+            }
+        }
+        bucket.set(timestamps[queueHead],
+                   (timeZones == null) ? null : timeZones[queueHead],
+                   values[queueHead],
+                   statuses[queueHead]);
+        if (queueSize == 0) { //sending the current value again
+            bucket.enqueued = System.nanoTime();
+        } else {
+            bucket.enqueued = enqueueTimes[queueHead];
         }
-        Update ret = updateHead;
-        if (updateHead == updateTail) {
-            updateHead = updateTail = null;
+        if (qos == 0) {
+            queueSize = 0;
         } else {
-            updateHead = updateHead.next;
+            removeHead();
+            manager.addQueued(-1);
         }
-        ret.next = null;
-        return ret;
+        return true;
+    }
+
+    protected DSInboundSubscriptions getManager() {
+        return manager;
     }
 
+    /**
+     * Subscribes to the target, which usually queues its current value.  Called by the manager
+     * once the subscription is configured, and again when the target is replaced.
+     */
     protected void init() {
         if (subscription != null) {
             subscription.close();
@@ -257,6 +377,9 @@ public class DSInboundSubscription extends DSInboundRequest
                     theNode = (DSNode) obj;
                     if (obj instanceof DSIValue) {
                         child = null;
+                        if (theNode.getInfo() != null) {
+                            applyMetadata(theNode.getInfo());
+                        }
                         this.subscription = theNode.subscribe((event, node, child, data) -> {
                             if (child == null) {
                                 DSInboundSubscription.this.onEvent(event, node, null, data);
@@ -270,7 +393,8 @@ public class DSInboundSubscription extends DSInboundRequest
                     DSInfo<?> info = path.getTargetInfo();
                     theNode = info.getParent();
                     child = info;
-                    this.subscription = theNode.subscribe(DSInboundSubscription.this);
+                    applyMetadata(info);
+                    this.subscription = theNode.subscribe(DSInboundSubscription.this, info);
                     onEvent(DSNode.VALUE_CHANGED_EVENT, theNode, info, info.getElement());
                 }
             }
@@ -280,7 +404,9 @@ public class DSInboundSubscription extends DSInboundRequest
     }
 
     /**
-     * Encodes one or more updates.
+     * Encodes one or more updates, at most the write quantum of the manager per call and its
+     * write max per message.  The enqueue time of each is passed to the session so it can
+     * measure the latency to the transport.
      *
      * @param writer Where to encode.
      * @param buf    For encoding timestamps.
@@ -292,35 +418,46 @@ public class DSInboundSubscription extends DSInboundRequest
         if (qos > 0) {
             ackRequired = session.getMidSent();
         }
-        Update update = dequeue();
-        int count = 500;
-        while (update != null) {
+        int message = manager.getMessageId();
+        if (message != messageId) {
+            messageId = message;
+            messageWrites = 0;
+        }
+        int count = Math.min(manager.getWriteQuantum(), manager.getWriteMax() - messageWrites);
+        Update update = this.update;
+        DSHistogram latency = manager.getWriteLatency();
+        long now = System.nanoTime();
+        while ((count > 0) && dequeue(update)) {
             write(update, writer, buf);
+            latency.record(now - update.enqueued);
+            session.updateSent(update.enqueued);
+            update.value = null;
+            count--;
+            messageWrites++;
             if ((qos == 0) || session.shouldEndMessage()) {
                 break;
             }
-            if (--count >= 0) {
-                update = dequeue();
-            } else {
-                update = null;
-            }
         }
         synchronized (this) {
-            if (updateHead == null) {
-                if (qos == 0) {
-                    //reuse instance
-                    updateHead = update;
+            if (queueSize == 0) {
+                if ((qos > 0) && (values != null) && (values.length > SHRINK_CAPACITY)) {
+                    allocate(INITIAL_CAPACITY);
                 }
                 enqueued = false;
                 return;
             }
+            if (sid == 0) { //disconnected, resubscribing will enqueue it
+                enqueued = false;
+                return;
+            }
         }
         manager.enqueue(this);
     }
 
     /**
      * Encode a single update.  This is implemented for v1 and will need to be overridden for
-     * v2.
+     * v2.  In positional mode the update is [sid, value, ts] with the status appended only if
+     * it isn't ok, otherwise it is a map.
      *
      * @param update The udpate to write.
      * @param writer Where to write.
@@ -328,12 +465,23 @@ public class DSInboundSubscription extends DSInboundRequest
      */
     protected void write(Update update, MessageWriter writer, StringBuilder buf) {
         DSIWriter out = writer.getWriter();
+        if (manager.isPositional()) {
+            out.beginList();
+            out.value(getSubscriptionId());
+            out.value(update.value.toElement());
+            out.value(update.timestamp, update.timeZone);
+            if (update.status != DSStatus.OK) {
+                out.value(update.getStatus().toString());
+            }
+            out.endList();
+            return;
+        }
         out.beginMap();
         out.key("sid").value(getSubscriptionId());
-        out.key("ts").value(update.timestamp.toString());
+        out.key("ts").value(update.timestamp, update.timeZone);
         out.key("value").value(update.value.toElement());
-        if ((update.status != null) && !update.status.isOk()) {
-            out.key("status").value(update.status.toString());
+        if (update.status != DSStatus.OK) {
+            out.key("status").value(update.getStatus().toString());
         }
         out.endMap();
     }
@@ -342,6 +490,30 @@ public class DSInboundSubscription extends DSInboundRequest
     // Package / Private Methods
     ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Discards the queue.
+     */
+    synchronized void clearQueue() {
+        releaseTimer();
+        if (qos > 0) {
+            manager.addQueued(-queueSize);
+        }
+        while (queueSize > 0) {
+            removeHead();
+        }
+        if (values != null) {
+            values[queueHead] = null;
+        }
+    }
+
+    /**
+     * Whether or not the subscription has written as many updates as allowed in the given
+     * message.
+     */
+    boolean isWriteCapped(int message) {
+        return (message == messageId) && (messageWrites >= manager.getWriteMax());
+    }
+
     /**
      * The connection was dropped or the requester closed the subscription.
      */
@@ -350,19 +522,416 @@ public class DSInboundSubscription extends DSInboundRequest
         close();
     }
 
+    /**
+     * Inserts updates replayed from the spill file ahead of anything queued.  If there are more
+     * than the queue limit allows, the oldest are dropped.
+     *
+     * @return True if the caller needs to enqueue the subscription with the manager.
+     */
+    synchronized boolean replay(ArrayList<Update> updates) {
+        int first = 0;
+        int len = updates.size();
+        while ((first < len) && manager.isQueueFull(queueSize + len - first - 1)) {
+            manager.onDropped();
+            first++;
+        }
+        if (first == len) {
+            return false;
+        }
+        ensureCapacity(queueSize + len - first);
+        int mask = values.length - 1;
+        long now = System.nanoTime();
+        Update update;
+        for (int i = len; --i >= first; ) {
+            update = updates.get(i);
+            queueHead = (queueHead - 1) & mask;
+            enqueueTimes[queueHead] = now;
+            timestamps[queueHead] = update.timestamp;
+            setTimeZone(queueHead, update.timeZone);
+            values[queueHead] = update.value;
+            statuses[queueHead] = update.status;
+            queueSize++;
+        }
+        manager.addQueued(len - first);
+        if (enqueued) {
+            return false;
+        }
+        enqueued = true;
+        return sid != 0;
+    }
+
+    /**
+     * Moves the queue to the spill file, stopping if an update can't be spilled.
+     */
+    synchronized void spillQueue() {
+        while (queueSize > 0) {
+            if (!manager.spill(getPath(), timestamps[queueHead], values[queueHead],
+                               DSStatus.valueOf(statuses[queueHead]))) {
+                return;
+            }
+            removeHead();
+            manager.addQueued(-1);
+        }
+    }
+
+    /**
+     * Applies the deadband and minimum interval, then queues the update.  The timestamp is
+     * Java time in the default timezone.
+     */
+    void update(long millis, DSIValue value, DSStatus status) {
+        update(millis, null, value, status);
+    }
+
+    /**
+     * Applies the deadband and minimum interval, then queues the update.
+     *
+     * @param millis   Java time.
+     * @param timeZone Of the timestamp, null for the default.
+     */
+    void update(long millis, TimeZone timeZone, DSIValue value, DSStatus status) {
+        if (((deadband > 0) || (minInterval > 0))
+                && !filter(millis, timeZone, value, status)) {
+            return;
+        }
+        queue(millis, timeZone, value, status);
+    }
+
+    /**
+     * Appends to the ring, growing it if full.  Caller must synchronize.
+     */
+    private void add(long timestamp, TimeZone timeZone, DSIValue value, int status) {
+        ensureCapacity(queueSize + 1);
+        queueSize++;
+        set(queueSize - 1, timestamp, timeZone, value, status);
+        enqueueTimes[(queueHead + queueSize - 1) & (values.length - 1)] = System.nanoTime();
+    }
+
+    /**
+     * Replaces the ring with an empty one of the given capacity, which must be a power of two.
+     * Caller must synchronize.
+     */
+    private void allocate(int capacity) {
+        enqueueTimes = new long[capacity];
+        timeZones = null;
+        timestamps = new long[capacity];
+        statuses = new int[capacity];
+        values = new DSIValue[capacity];
+        queueHead = 0;
+    }
+
+    /**
+     * Reads the deadband and minimum interval from the metadata of the target, except for
+     * those set by the request.
+     */
+    private void applyMetadata(DSInfo<?> info) {
+        if (deadbandRequested && minIntervalRequested) {
+            return;
+        }
+        DSMetadata meta = new DSMetadata(DSMetadata.getMetadata(info, null));
+        synchronized (this) {
+            if (!minIntervalRequested) {
+                DSElement arg = meta.getMinInterval();
+                minInterval = ((arg != null) && arg.isNumber()) ? arg.toLong() : 0;
+            }
+            if (!deadbandRequested) {
+                DSElement arg = meta.getDeadband();
+                deadband = 0;
+                deadbandPercent = false;
+                if ((arg != null) && !arg.isNull()) {
+                    try {
+                        deadband = parseDeadband(arg.toString());
+                        deadbandPercent = arg.toString().trim().endsWith("%");
+                    } catch (NumberFormatException x) {
+                        warn(getPath(), x);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Doubles the ring until it can hold the given number of updates, keeping their order.
+     * Caller must synchronize.
+     */
+    private void ensureCapacity(int size) {
+        if (values == null) {
+            int capacity = (qos == 0) ? 1 : INITIAL_CAPACITY;
+            while (capacity < size) {
+                capacity <<= 1;
+            }
+            allocate(capacity);
+            return;
+        }
+        int capacity = values.length;
+        if (capacity >= size) {
+            return;
+        }
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        long[] oldEnqueueTimes = enqueueTimes;
+        TimeZone[] oldTimeZones = timeZones;
+        long[] oldTimestamps = timestamps;
+        int[] oldStatuses = statuses;
+        DSIValue[] oldValues = values;
+        int oldHead = queueHead;
+        int mask = oldValues.length - 1;
+        allocate(capacity);
+        if (oldTimeZones != null) {
+            timeZones = new TimeZone[capacity];
+        }
+        for (int i = 0, idx; i < queueSize; i++) {
+            idx = (oldHead + i) & mask;
+            enqueueTimes[i] = oldEnqueueTimes[idx];
+            if (oldTimeZones != null) {
+                timeZones[i] = oldTimeZones[idx];
+            }
+            timestamps[i] = oldTimestamps[idx];
+            statuses[i] = oldStatuses[idx];
+            values[i] = oldValues[idx];
+        }
+    }
+
+    /**
+     * Returns true if the update should be queued now.  Otherwise it was within the deadband
+     * of the last value and discarded, or it came too soon and is held until the minimum
+     * interval expires, replacing any update already held.
+     */
+    private synchronized boolean filter(long millis,
+                                        TimeZone timeZone,
+                                        DSIValue value,
+                                        DSStatus status) {
+        int bits = (status == null) ? DSStatus.OK : status.getBits();
+        boolean statusChanged = bits != lastStatus;
+        lastStatus = bits;
+        double num = Double.NaN;
+        if (deadband > 0) {
+            num = toDouble(value);
+            if (!statusChanged && !Double.isNaN(num) && !Double.isNaN(lastValue)) {
+                double band = deadbandPercent ? Math.abs(lastValue * deadband / 100) : deadband;
+                if (Math.abs(num - lastValue) < band) {
+                    return false;
+                }
+            }
+        }
+        if (minInterval > 0) {
+            long now = System.currentTimeMillis();
+            if (!statusChanged && ((now - lastQueued) < minInterval)) {
+                heldTimestamp = millis;
+                heldTimeZone = timeZone;
+                heldValue = value;
+                heldStatus = status;
+                if (heldTimer == null) {
+                    heldTimer = DSRuntime.runDelayed(this::releaseHeld,
+                                                     lastQueued + minInterval - now);
+                }
+                return false;
+            }
+            lastQueued = now;
+            releaseTimer();
+        }
+        if (deadband > 0) { //only once it is sure to be queued, not while held
+            lastValue = num;
+        }
+        return true;
+    }
+
+    private static double parseDeadband(String arg) {
+        arg = arg.trim();
+        if (arg.endsWith("%")) {
+            arg = arg.substring(0, arg.length() - 1);
+        }
+        return Double.parseDouble(arg);
+    }
+
+    /**
+     * Queues an update that has passed the filters.
+     */
+    private void queue(long millis, TimeZone timeZone, DSIValue value, DSStatus status) {
+        int bits = (status == null) ? DSStatus.OK : status.getBits();
+        if (qos == 0) {
+            synchronized (this) {
+                if (queueSize > 0) {
+                    set(queueSize - 1, millis, timeZone, value, bits);
+                } else {
+                    add(millis, timeZone, value, bits);
+                }
+                if (enqueued) {
+                    return;
+                }
+                enqueued = true;
+            }
+        } else {
+            synchronized (this) {
+                //the manager sets the id and replays the spill file under this lock
+                if ((sid == 0) && (qos == 2) && manager.spill(getPath(), millis, value, status)) {
+                    return;
+                }
+                if ((queueSize > 0) && manager.isQueueFull(queueSize)) {
+                    manager.onDropped();
+                    if (manager.isQueueCollapse()) {
+                        set(queueSize - 1, millis, timeZone, value, bits);
+                        return;
+                    }
+                    removeHead();
+                    manager.addQueued(-1);
+                }
+                add(millis, timeZone, value, bits);
+                manager.addQueued(1);
+                if (enqueued) {
+                    return;
+                }
+                enqueued = true;
+            }
+        }
+        if (sid != 0) { //0 if the connection was disconnected
+            manager.enqueue(this);
+        }
+    }
+
+    /**
+     * Queues the update held back by the minimum interval.
+     */
+    private void releaseHeld() {
+        long millis;
+        TimeZone timeZone;
+        DSIValue value;
+        DSStatus status;
+        synchronized (this) {
+            heldTimer = null;
+            if (heldValue == null) {
+                return;
+            }
+            millis = heldTimestamp;
+            timeZone = heldTimeZone;
+            value = heldValue;
+            status = heldStatus;
+            heldTimeZone = null;
+            heldValue = null;
+            heldStatus = null;
+            lastQueued = System.currentTimeMillis();
+            if (deadband > 0) {
+                lastValue = toDouble(value);
+            }
+        }
+        queue(millis, timeZone, value, status);
+    }
+
+    /**
+     * Discards any held update and its timer.  Caller must synchronize.
+     */
+    private void releaseTimer() {
+        if (heldTimer != null) {
+            heldTimer.cancel();
+            heldTimer = null;
+        }
+        heldTimeZone = null;
+        heldValue = null;
+        heldStatus = null;
+    }
+
+    /**
+     * Drops the oldest update, the caller is responsible for the count of the manager.  Caller
+     * must synchronize.
+     */
+    private void removeHead() {
+        values[queueHead] = null;
+        if (timeZones != null) {
+            timeZones[queueHead] = null;
+        }
+        queueHead = (queueHead + 1) & (values.length - 1);
+        queueSize--;
+    }
+
+    /**
+     * Sets the slot at the given offset from the head.  Caller must synchronize.
+     */
+    private void set(int offset, long timestamp, TimeZone timeZone, DSIValue value, int status) {
+        int idx = (queueHead + offset) & (values.length - 1);
+        timestamps[idx] = timestamp;
+        setTimeZone(idx, timeZone);
+        values[idx] = value;
+        statuses[idx] = status;
+    }
+
+    /**
+     * Sets the timezone of the slot, the array is only allocated once one isn't null.  Caller
+     * must synchronize.
+     */
+    private void setTimeZone(int idx, TimeZone timeZone) {
+        if (timeZones == null) {
+            if (timeZone == null) {
+                return;
+            }
+            timeZones = new TimeZone[values.length];
+        }
+        timeZones[idx] = timeZone;
+    }
+
+    /**
+     * The numeric value for the deadband, or NaN.
+     */
+    private static double toDouble(DSIValue value) {
+        DSElement elm = (value == null) ? null : value.toElement();
+        return ((elm != null) && elm.isNumber()) ? elm.toDouble() : Double.NaN;
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Inner Classes
     ///////////////////////////////////////////////////////////////////////////
 
-    protected static class Update {
+    /**
+     * A single update, copied out of the queue for writing.  Instances are reused so they
+     * should not be held on to.
+     */
+    public static class Update {
+
+        /**
+         * System.nanoTime() when it was queued.
+         */
+        public long enqueued;
+
+        /**
+         * Status bits, see DSStatus.
+         */
+        public int status;
+
+        /**
+         * The timezone of the timestamp, null for the default.
+         */
+        public TimeZone timeZone;
+
+        /**
+         * Java time.
+         */
+        public long timestamp;
 
-        Update next;
-        public DSStatus status;
-        public DSDateTime timestamp;
         public DSIValue value;
 
-        Update set(DSDateTime timestamp, DSIValue value, DSStatus status) {
+        public DSStatus getStatus() {
+            return DSStatus.valueOf(status);
+        }
+
+        /**
+         * Creates a new instance, prefer the timestamp field.
+         */
+        public DSDateTime getTimestamp() {
+            if (timeZone == null) {
+                return DSDateTime.valueOf(timestamp);
+            }
+            return DSDateTime.valueOf(timestamp, timeZone);
+        }
+
+        /**
+         * Sets the fields with the default timezone.
+         */
+        public Update set(long timestamp, DSIValue value, int status) {
+            return set(timestamp, null, value, status);
+        }
+
+        public Update set(long timestamp, TimeZone timeZone, DSIValue value, int status) {
             this.timestamp = timestamp;
+            this.timeZone = timeZone;
             this.value = value;
             this.status = status;
             return this;
@@ -3,14 +3,44 @@ package com.acuity.iot.dsa.dslink.protocol.responder;
 import com.acuity.iot.dsa.dslink.protocol.DSSession;
 import com.acuity.iot.dsa.dslink.protocol.message.MessageWriter;
 import com.acuity.iot.dsa.dslink.protocol.message.OutboundMessage;
+import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundSubscription.Update;
+import com.acuity.iot.dsa.dslink.util.DSHistogram;
+import com.acuity.iot.dsa.dslink.util.DSIntMap;
+import com.acuity.iot.dsa.dslink.util.DSPathTrie;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.iot.dsa.DSRuntime;
 import org.iot.dsa.dslink.DSLink;
+import org.iot.dsa.dslink.DSLinkOptions;
+import org.iot.dsa.node.DSDouble;
+import org.iot.dsa.node.DSIValue;
+import org.iot.dsa.node.DSInfo;
+import org.iot.dsa.node.DSLong;
 import org.iot.dsa.node.DSNode;
+import org.iot.dsa.node.DSStatus;
 
 /**
  * Subscribe implementation for the responder.
+ * <p>
+ * The queues of qos 1 and 2 subscriptions are bounded per subscription and in total.  The
+ * limits and the policy for a full queue (drop the oldest update, or collapse into the newest)
+ * are link configs.  If a spill file is configured, qos 2 updates that arrive while
+ * disconnected are written there instead of the heap and replayed in order when the path is
+ * subscribed again, even after a restart.  The location and size of the file are link configs
+ * as well.
+ * <p>
+ * Subscriptions with updates to send take turns writing them.  Each turn writes at most the
+ * write quantum, after which the subscription goes to the back of the line if it has more.  A
+ * subscription can take several turns in a message, but once it has written the write max it
+ * waits for the next message.  So a few busy subscriptions can not crowd out the rest, which
+ * can be verified with the enqueue to write latency histogram.
  *
  * @author Aaron Hansen
  */
@@ -20,26 +50,58 @@ public class DSInboundSubscriptions extends DSNode implements OutboundMessage {
     // Class Fields
     ///////////////////////////////////////////////////////////////////////////
 
+    public static final int DEFAULT_QUEUE_MAX = 1000;
+    public static final int DEFAULT_QUEUE_TOTAL = 100000;
+    public static final int DEFAULT_WRITE_MAX = 100;
+    public static final int DEFAULT_WRITE_QUANTUM = 10;
+
+    protected static final String DROPPED = "Dropped";
+    protected static final String QUEUED = "Queued";
+    protected static final String WRITE_LATENCY_P50 = "Write Latency P50";
+    protected static final String WRITE_LATENCY_P99 = "Write Latency P99";
+    protected static final String WRITE_LATENCY_P999 = "Write Latency P999";
+
     private static final Integer ZERO = Integer.valueOf(0);
 
     ///////////////////////////////////////////////////////////////////////////
     // Instance Fields
     ///////////////////////////////////////////////////////////////////////////
 
+    private ArrayList<DSInboundSubscription> deferred = new ArrayList<>();
+    private AtomicLong dropped = new AtomicLong();
     private boolean enqueued = false;
+    private int messageId = 0;
     private ConcurrentLinkedQueue<DSInboundSubscription> outbound =
             new ConcurrentLinkedQueue<>();
     private Map<String, DSInboundSubscription> pathMap =
             new ConcurrentHashMap<>();
+    private DSPathTrie<DSInboundSubscription> pathTrie = new DSPathTrie<>();
+    private boolean positional = false;
+    private boolean queueCollapse = false;
+    private int queueMax = DEFAULT_QUEUE_MAX;
+    private int queueTotal = DEFAULT_QUEUE_TOTAL;
+    private AtomicInteger queued = new AtomicInteger();
     private DSResponder responder;
-    private Map<Integer, DSInboundSubscription> sidMap =
-            new ConcurrentHashMap<>();
+    private DSIntMap<DSInboundSubscription> sidMap = new DSIntMap<>();
+    private DSSpillFile spill;
+    private DSInfo<?> statDropped = getInfo(DROPPED);
+    private DSInfo<?> statQueued = getInfo(QUEUED);
+    private DSInfo<?> statWriteP50 = getInfo(WRITE_LATENCY_P50);
+    private DSInfo<?> statWriteP99 = getInfo(WRITE_LATENCY_P99);
+    private DSInfo<?> statWriteP999 = getInfo(WRITE_LATENCY_P999);
     private StringBuilder timestampBuffer = new StringBuilder();//used by the subs
+    private DSRuntime.Timer updateTimer;
+    private DSHistogram writeLatency = new DSHistogram();
+    private int writeMax = DEFAULT_WRITE_MAX;
+    private int writeQuantum = DEFAULT_WRITE_QUANTUM;
 
     ///////////////////////////////////////////////////////////////////////////
     // Constructors
     ///////////////////////////////////////////////////////////////////////////
 
+    public DSInboundSubscriptions() {
+    }
+
     public DSInboundSubscriptions(DSResponder responder) {
         this.responder = responder;
     }
@@ -64,33 +126,167 @@ public class DSInboundSubscriptions extends DSNode implements OutboundMessage {
         return false;
     }
 
+    /**
+     * The number of updates dropped because a queue, or the spill file, was full.
+     */
+    public long getDropped() {
+        DSSpillFile file = spill;
+        if (file == null) {
+            return dropped.get();
+        }
+        return dropped.get() + file.getDropped();
+    }
+
+    /**
+     * The number of updates waiting to be sent, across all subscriptions.
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
     public DSResponder getResponder() {
         return responder;
     }
 
+    /**
+     * The spill file for qos 2 updates, or null.
+     */
+    public DSSpillFile getSpillFile() {
+        return spill;
+    }
+
+    /**
+     * Nanoseconds from when updates were queued to when they were written.
+     */
+    public DSHistogram getWriteLatency() {
+        return writeLatency;
+    }
+
+    /**
+     * The maximum number of updates a subscription can write in a single message.
+     */
+    public int getWriteMax() {
+        return writeMax;
+    }
+
+    /**
+     * The maximum number of updates a subscription writes before the next one has a turn.
+     */
+    public int getWriteQuantum() {
+        return writeQuantum;
+    }
+
+    /**
+     * Whether or not updates are encoded as lists rather than maps, which saves the bytes of the
+     * keys.  Configured with DSLinkOptions.CFG_POSITIONAL_UPDATES, false by default.
+     */
+    public boolean isPositional() {
+        return positional;
+    }
+
+    /**
+     * Whether or not a full queue replaces its newest update, rather than dropping the oldest.
+     */
+    public boolean isQueueCollapse() {
+        return queueCollapse;
+    }
+
+    public DSInboundSubscriptions setPositional(boolean arg) {
+        positional = arg;
+        return this;
+    }
+
+    /**
+     * Limits the queues of qos 1 and 2 subscriptions.
+     *
+     * @param max      The maximum queue size of a single subscription.
+     * @param total    The maximum of all queues combined.
+     * @param collapse True to replace the newest update of a full queue, false to drop the
+     *                 oldest.
+     */
+    public DSInboundSubscriptions setQueueLimits(int max, int total, boolean collapse) {
+        queueMax = max;
+        queueTotal = total;
+        queueCollapse = collapse;
+        return this;
+    }
+
+    /**
+     * Set the file where qos 2 updates go while disconnected, null to disable.  Any previous
+     * file is closed.
+     */
+    public DSInboundSubscriptions setSpillFile(DSSpillFile file) {
+        if ((spill != null) && (spill != file)) {
+            spill.close();
+        }
+        spill = file;
+        return this;
+    }
+
+    /**
+     * Limits how many updates a subscription writes at a time.
+     *
+     * @param quantum Updates per turn.
+     * @param max     Updates per message, over one or more turns.
+     */
+    public DSInboundSubscriptions setWriteLimits(int quantum, int max) {
+        writeQuantum = Math.max(1, quantum);
+        writeMax = Math.max(writeQuantum, max);
+        return this;
+    }
+
     /**
      * Create or update a subscription.
      */
     public DSInboundSubscription subscribe(Integer sid, String path, int qos) {
+        return subscribe(sid, path, qos, null);
+    }
+
+    /**
+     * Create or update a subscription.
+     *
+     * @param options Applies the options of the request, such as a deadband, before the first
+     *                update is queued.  Can be null.
+     */
+    public DSInboundSubscription subscribe(Integer sid,
+                                           String path,
+                                           int qos,
+                                           Consumer<DSInboundSubscription> options) {
         DSInboundSubscription subscription = pathMap.get(path);
         if (subscription != null) {
             debug(debug() ? String.format("Updating (sid=%s,qos=%s) %s", sid, qos, path)
                           : null);
-            if (!sid.equals(subscription.getSubscriptionId())) {
-                sidMap.remove(subscription.getSubscriptionId());
-                subscription.setSubscriptionId(sid);
-                sidMap.put(sid, subscription);
-            }
-            if (qos != subscription.getQos()) {
-                subscription.setQos(qos);
+            //updates spill under the subscription lock, so none can be appended to the file
+            //after it is drained and before the subscription has an id
+            synchronized (subscription) {
+                if (!sid.equals(subscription.getSubscriptionId())) {
+                    sidMap.remove(subscription.getSubscriptionId());
+                    subscription.setSubscriptionId(sid);
+                    sidMap.put(sid, subscription);
+                }
+                if (qos != subscription.getQos()) {
+                    subscription.setQos(qos);
+                }
+                if (options != null) {
+                    options.accept(subscription);
+                }
+                replay(subscription);
             }
             enqueue(subscription); //resend current
         } else {
             debug(debug() ? String.format("Subscribing (sid=%s,qos=%s) %s", sid, qos, path)
                           : null);
             subscription = makeSubscription(sid, path, qos);
+            if (options != null) {
+                options.accept(subscription);
+            }
+            subscription.init();
             sidMap.put(sid, subscription);
             pathMap.put(path, subscription);
+            pathTrie.put(path, subscription);
+            if (replay(subscription)) {
+                enqueue(subscription);
+            }
         }
         return subscription;
     }
@@ -98,32 +294,43 @@ public class DSInboundSubscriptions extends DSNode implements OutboundMessage {
     /**
      * Remove the subscription and call onClose.
      */
-    public void unsubscribe(Integer sid) {
+    public void unsubscribe(int sid) {
         DSInboundSubscription subscription = sidMap.remove(sid);
         if (subscription != null) {
             debug(debug() ? String.format("Unsubscribe (sid=%s) %s ", sid, subscription.getPath())
                           : null);
             pathMap.remove(subscription.getPath());
+            pathTrie.remove(subscription);
             try {
                 subscription.onClose();
             } catch (Exception x) {
                 debug(debug() ? subscription.toString() : null, x);
             }
+            subscription.clearQueue();
         }
     }
 
     @Override
     public boolean write(DSSession session, MessageWriter writer) {
         writeBegin(writer);
+        int message = ++messageId;
         DSInboundSubscription sub;
         while (!responder.shouldEndMessage()) {
             sub = outbound.poll();
             if (sub == null) {
                 break;
             }
+            if (sub.isWriteCapped(message)) {
+                deferred.add(sub);
+                continue;
+            }
             sub.write(session, writer, timestampBuffer);
         }
         writeEnd(writer);
+        if (!deferred.isEmpty()) {
+            outbound.addAll(deferred);
+            deferred.clear();
+        }
         synchronized (this) {
             if (outbound.isEmpty()) {
                 enqueued = false;
@@ -138,6 +345,30 @@ public class DSInboundSubscriptions extends DSNode implements OutboundMessage {
     // Protected Methods
     ///////////////////////////////////////////////////////////////////////////
 
+    @Override
+    protected void declareDefaults() {
+        super.declareDefaults();
+        declareDefault(DROPPED, DSLong.valueOf(0),
+                       "Updates dropped because a queue, or the spill file, was full")
+                .setReadOnly(true)
+                .setTransient(true);
+        declareDefault(QUEUED, DSLong.valueOf(0), "Updates waiting to be sent")
+                .setReadOnly(true)
+                .setTransient(true);
+        declareDefault(WRITE_LATENCY_P50, DSDouble.valueOf(0),
+                       "Median ms from an update being queued to being written")
+                .setReadOnly(true)
+                .setTransient(true);
+        declareDefault(WRITE_LATENCY_P99, DSDouble.valueOf(0),
+                       "99th percentile ms from an update being queued to being written")
+                .setReadOnly(true)
+                .setTransient(true);
+        declareDefault(WRITE_LATENCY_P999, DSDouble.valueOf(0),
+                       "99.9th percentile ms from an update being queued to being written")
+                .setReadOnly(true)
+                .setTransient(true);
+    }
+
     /**
      * Add to the outbound queue if not already enqueued.
      */
@@ -153,7 +384,7 @@ public class DSInboundSubscriptions extends DSNode implements OutboundMessage {
     }
 
     /**
-     * Returns a DSInboundSubscription for v1.
+     * Returns a DSInboundSubscription for v1, subscribe calls init on it.
      *
      * @param sid  Subscription ID.
      * @param path Path being subscribed to.
@@ -164,6 +395,33 @@ public class DSInboundSubscriptions extends DSNode implements OutboundMessage {
     }
 
     protected void onConnected() {
+        DSLinkOptions options = getLink().getOptions();
+        positional = options.getConfig(DSLinkOptions.CFG_POSITIONAL_UPDATES, false);
+        setQueueLimits(
+                options.getConfig(DSLinkOptions.CFG_SUBSCRIPTION_QUEUE_MAX, DEFAULT_QUEUE_MAX),
+                options.getConfig(DSLinkOptions.CFG_SUBSCRIPTION_QUEUE_TOTAL, DEFAULT_QUEUE_TOTAL),
+                "collapse".equalsIgnoreCase(
+                        options.getConfig(DSLinkOptions.CFG_SUBSCRIPTION_QUEUE_POLICY, null)));
+        setWriteLimits(
+                options.getConfig(DSLinkOptions.CFG_SUBSCRIPTION_WRITE_QUANTUM,
+                                  DEFAULT_WRITE_QUANTUM),
+                options.getConfig(DSLinkOptions.CFG_SUBSCRIPTION_WRITE_MAX, DEFAULT_WRITE_MAX));
+        if (spill == null) {
+            String path = options.getConfig(DSLinkOptions.CFG_SUBSCRIPTION_SPILL_FILE, null);
+            if ((path != null) && !path.isEmpty()) {
+                File file = new File(path);
+                if (!file.isAbsolute() && (options.getHome() != null)) {
+                    file = new File(options.getHome(), path);
+                }
+                int size = options.getConfig(DSLinkOptions.CFG_SUBSCRIPTION_SPILL_SIZE,
+                                             DSSpillFile.DEFAULT_SIZE);
+                try {
+                    spill = new DSSpillFile(file, size);
+                } catch (Exception x) {
+                    error(file.getPath(), x);
+                }
+            }
+        }
     }
 
     /**
@@ -177,7 +435,12 @@ public class DSInboundSubscriptions extends DSNode implements OutboundMessage {
                 unsubscribe(sub.getSubscriptionId());
             } else {
                 sidMap.remove(sub.getSubscriptionId());
-                sub.setSubscriptionId(0);
+                synchronized (sub) { //spill the queue before any new update
+                    sub.setSubscriptionId(0);
+                    if (spill != null) {
+                        sub.spillQueue();
+                    }
+                }
             }
         }
         synchronized (this) {
@@ -186,6 +449,25 @@ public class DSInboundSubscriptions extends DSNode implements OutboundMessage {
         }
     }
 
+    @Override
+    protected void onSubscribed() {
+        updateTimer = DSRuntime.run(this::updateStats, 0, 1000);
+    }
+
+    @Override
+    protected void onUnsubscribed() {
+        updateTimer.cancel();
+        updateTimer = null;
+    }
+
+    protected void updateStats() {
+        put(statDropped, DSLong.valueOf(getDropped()));
+        put(statQueued, DSLong.valueOf(getQueued()));
+        put(statWriteP50, toMillis(writeLatency.getPercentile(50)));
+        put(statWriteP99, toMillis(writeLatency.getPercentile(99)));
+        put(statWriteP999, toMillis(writeLatency.getPercentile(99.9)));
+    }
+
     /**
      * Override point for v2.
      */
@@ -209,16 +491,76 @@ public class DSInboundSubscriptions extends DSNode implements OutboundMessage {
     // Package / Private Methods
     ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Adjusts the total number of queued updates.
+     */
+    void addQueued(int count) {
+        if (count != 0) {
+            queued.addAndGet(count);
+        }
+    }
+
+    /**
+     * Incremented for each message written.
+     */
+    int getMessageId() {
+        return messageId;
+    }
+
     DSLink getLink() {
         return responder.getConnection().getLink();
     }
 
+    /**
+     * Whether or not a queue of the given size is at a limit.
+     */
+    boolean isQueueFull(int size) {
+        return (size >= queueMax) || (queued.get() >= queueTotal);
+    }
+
+    void onDropped() {
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * Re-initializes the subscriptions whose path starts with the given path.
+     */
     void refresh(String path) {
-        for (DSInboundSubscription sub : pathMap.values()) {
-            if (sub.getPath().startsWith(path)) {
-                sub.init();
-            }
+        List<DSInboundSubscription> subs = pathTrie.collect(path, null);
+        for (int i = 0, len = subs.size(); i < len; i++) {
+            subs.get(i).init();
+        }
+    }
+
+    /**
+     * Moves updates for the subscription's path from the spill file to its queue.
+     *
+     * @return True if the subscription needs to be enqueued.
+     */
+    private boolean replay(DSInboundSubscription subscription) {
+        if ((spill == null) || (subscription.getQos() < 2)) {
+            return false;
+        }
+        ArrayList<Update> updates = new ArrayList<>();
+        if (spill.take(subscription.getPath(), updates) > 0) {
+            return subscription.replay(updates);
+        }
+        return false;
+    }
+
+    /**
+     * Appends the update to the spill file, returns false if there isn't one or the update
+     * can't fit.
+     */
+    boolean spill(String path, long timestamp, DSIValue value, DSStatus status) {
+        if (spill == null) {
+            return false;
         }
+        return spill.append(path, timestamp, value, status);
+    }
+
+    private static DSDouble toMillis(long nanos) {
+        return DSDouble.valueOf(Math.round(nanos / 1000d) / 1000d);
     }
 
 }
@@ -3,11 +3,12 @@ package com.acuity.iot.dsa.dslink.protocol.responder;
 import com.acuity.iot.dsa.dslink.protocol.DSSession;
 import com.acuity.iot.dsa.dslink.protocol.DSStream;
 import com.acuity.iot.dsa.dslink.protocol.message.OutboundMessage;
+import com.acuity.iot.dsa.dslink.util.DSIntMap;
+import com.acuity.iot.dsa.dslink.util.DSPathTrie;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.TreeSet;
+import org.iot.dsa.DSRuntime;
 import org.iot.dsa.dslink.DSLink;
 import org.iot.dsa.dslink.DSLinkConnection;
 import org.iot.dsa.node.DSNode;
@@ -19,14 +20,23 @@ import org.iot.dsa.node.DSNode;
  */
 public abstract class DSResponder extends DSNode {
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Class Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    protected static final String SUBSCRIPTIONS = "Subscriptions";
+
     ///////////////////////////////////////////////////////////////////////////
     // Instance Fields
     ///////////////////////////////////////////////////////////////////////////
 
     private DSLinkConnection connection;
-    private ConcurrentHashMap<Integer, DSStream> inboundRequests = new ConcurrentHashMap<>();
+    private DSIntMap<DSStream> inboundRequests = new DSIntMap<>();
     private DSLink link;
+    private DSPathTrie<DSInboundList> lists = new DSPathTrie<>();
+    private TreeSet<String> pendingUpdates = new TreeSet<>();
     private DSSession session;
+    private boolean updateScheduled = false;
 
     /////////////////////////////////////////////////////////////////
     // Constructors
@@ -57,7 +67,7 @@ public abstract class DSResponder extends DSNode {
         return link;
     }
 
-    public Map<Integer, DSStream> getRequests() {
+    public DSIntMap<DSStream> getRequests() {
         return inboundRequests;
     }
 
@@ -65,6 +75,11 @@ public abstract class DSResponder extends DSNode {
         return session;
     }
 
+    /**
+     * The inbound subscriptions, public for monitoring their queues.
+     */
+    public abstract DSInboundSubscriptions getSubscriptions();
+
     /**
      * V2 override point, default returns true.
      */
@@ -78,21 +93,26 @@ public abstract class DSResponder extends DSNode {
 
     public void onDisconnected() {
         getSubscriptions().onDisconnected();
-        Iterator<Entry<Integer, DSStream>> it = inboundRequests.entrySet().iterator();
-        Map.Entry<Integer, DSStream> me;
-        while (it.hasNext()) {
-            me = it.next();
+        DSStream stream;
+        for (int rid : inboundRequests.keys()) {
+            stream = removeRequest(rid);
+            if (stream == null) {
+                continue;
+            }
             try {
-                me.getValue().onClose(me.getKey());
+                stream.onClose(rid);
             } catch (Exception x) {
                 error(getPath(), x);
             }
-            it.remove();
         }
     }
 
-    public DSStream removeRequest(Integer rid) {
-        return inboundRequests.remove(rid);
+    public DSStream removeRequest(int rid) {
+        DSStream ret = inboundRequests.remove(rid);
+        if (ret instanceof DSInboundList) {
+            lists.remove((DSInboundList) ret);
+        }
+        return ret;
     }
 
     public abstract void sendClose(int rid);
@@ -111,28 +131,79 @@ public abstract class DSResponder extends DSNode {
         return session.shouldEndMessage();
     }
 
+    /**
+     * Refreshes the subscriptions and lists whose path starts with the given path.  This is
+     * asynchronous, paths that arrive before the refresh runs are coalesced, so a burst of adds
+     * to a subtree only refreshes the affected streams once.
+     */
     public void update(String path) {
-        getSubscriptions().refresh(path);
-        ArrayList<?> list = new ArrayList<>(inboundRequests.values());
-        DSInboundList req;
-        for (Object o : list) {
-            if (o instanceof DSInboundList) {
-                req = (DSInboundList) o;
-                if (req.getPath().startsWith(path)) {
-                    req.run();
-                }
+        synchronized (pendingUpdates) {
+            //Because there is never a prefix of another path in the set, if any path in the set
+            //is a prefix of this one, it is the floor.
+            String floor = pendingUpdates.floor(path);
+            if ((floor != null) && path.startsWith(floor)) {
+                return;
+            }
+            String tmp = pendingUpdates.higher(path);
+            while ((tmp != null) && tmp.startsWith(path)) {
+                pendingUpdates.remove(tmp);
+                tmp = pendingUpdates.higher(tmp);
             }
+            pendingUpdates.add(path);
+            if (updateScheduled) {
+                return;
+            }
+            updateScheduled = true;
         }
+        DSRuntime.run(this::processUpdates);
     }
 
     /////////////////////////////////////////////////////////////////
     // Protected Methods
     /////////////////////////////////////////////////////////////////
 
-    protected abstract DSInboundSubscriptions getSubscriptions();
+    @Override
+    protected void onStarted() {
+        super.onStarted();
+        put(SUBSCRIPTIONS, getSubscriptions()).setTransient(true).setLocked(true);
+    }
 
-    protected DSStream putRequest(Integer rid, DSStream request) {
+    protected DSStream putRequest(int rid, DSStream request) {
+        if (request instanceof DSInboundList) {
+            DSInboundList list = (DSInboundList) request;
+            lists.put(list.getPath(), list);
+        }
         return inboundRequests.put(rid, request);
     }
 
+    /////////////////////////////////////////////////////////////////
+    // Private Methods
+    /////////////////////////////////////////////////////////////////
+
+    /**
+     * Refreshes the streams of all pending update paths.
+     */
+    private void processUpdates() {
+        String[] paths;
+        synchronized (pendingUpdates) {
+            paths = pendingUpdates.toArray(new String[pendingUpdates.size()]);
+            pendingUpdates.clear();
+            updateScheduled = false;
+        }
+        List<DSInboundList> bucket = new ArrayList<>();
+        for (String path : paths) {
+            try {
+                getSubscriptions().refresh(path);
+                bucket.clear();
+                lists.collect(path, bucket);
+                //indexed and resolved by the requested path, not the one from a DSIResponder
+                for (DSInboundList req : bucket) {
+                    req.run();
+                }
+            } catch (Exception x) {
+                error(getPath(), x);
+            }
+        }
+    }
+
 }
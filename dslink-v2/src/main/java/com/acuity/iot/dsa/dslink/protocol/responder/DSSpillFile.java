@@ -0,0 +1,329 @@
+package com.acuity.iot.dsa.dslink.protocol.responder;
+
+import com.acuity.iot.dsa.dslink.io.msgpack.MsgpackReader;
+import com.acuity.iot.dsa.dslink.io.msgpack.MsgpackWriter;
+import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundSubscription.Update;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.iot.dsa.node.DSElement;
+import org.iot.dsa.node.DSIValue;
+import org.iot.dsa.node.DSStatus;
+import org.iot.dsa.node.DSString;
+import org.iot.dsa.util.DSException;
+
+/**
+ * A memory mapped log of qos 2 subscription updates that could not be sent because the
+ * connection was down.  Records are appended in order and replayed, per path, when the path is
+ * subscribed again, which may be after the link restarts.
+ * <p>
+ * The file is a header (magic, end offset) followed by records.  Each record is the length of
+ * its body followed by the path, timestamp, status and msgpack encoded value.  A negative length
+ * marks a record that has been replayed, and the file is emptied once every record has been.
+ * Writes go to the OS page cache so they survive the process, but not necessarily the machine.
+ * <p>
+ * When an append doesn't fit, the records that haven't been replayed are compacted to the front
+ * of the file.  If that isn't enough, the oldest are dropped, the same as a full subscription
+ * queue, so a path that is never subscribed again can't pin the file.
+ * <p>
+ * The offsets of the records that haven't been replayed are indexed by path, so taking the
+ * records of a path doesn't scan the file.  The index is rebuilt when the file is opened or
+ * compacted.
+ *
+ * @author Aaron Hansen
+ */
+public class DSSpillFile {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Class Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static final int DEFAULT_SIZE = 64 * 1024 * 1024;
+
+    private static final int HEADER = 8;
+    private static final int MAGIC = 0x44535350; //DSSP
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private MappedByteBuffer buf;
+    private FileChannel channel;
+    private long dropped;
+    private Map<String, Offsets> index = new HashMap<>();
+    private int live;
+    private MsgpackReader reader = new MsgpackReader();
+    private MsgpackWriter writer = new MsgpackWriter();
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Opens or creates the file.
+     *
+     * @param file Where to spill.
+     * @param size The maximum size of the file, new records are rejected once it is full.
+     */
+    public DSSpillFile(File file, int size) {
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if ((buf.getInt(0) != MAGIC) || (getEnd() < HEADER) || (getEnd() > size)) {
+                buf.putInt(0, MAGIC);
+                setEnd(HEADER);
+            }
+            int len;
+            for (int pos = HEADER, end = getEnd(); pos < end; pos += 4 + Math.abs(len)) {
+                len = buf.getInt(pos);
+                if ((len == 0) || (len == Integer.MIN_VALUE) || (pos + 4 + Math.abs(len) > end)) {
+                    setEnd(pos); //a partial record
+                    break;
+                }
+                if (len > 0) {
+                    index(pos);
+                    live++;
+                }
+            }
+        } catch (IOException x) {
+            DSException.throwRuntime(x);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Appends an update, compacting the file or dropping the oldest records to make room.
+     *
+     * @param timestamp Java time.
+     * @return False if the file is closed or the record is larger than the file.
+     */
+    public synchronized boolean append(String path,
+                                       long timestamp,
+                                       DSIValue value,
+                                       DSStatus status) {
+        if (buf == null) {
+            return false;
+        }
+        byte[] pathBytes = path.getBytes(DSString.UTF8);
+        byte[] stsBytes = status.toString().getBytes(DSString.UTF8);
+        writer.reset();
+        writer.value(value.toElement());
+        byte[] valueBytes = writer.toByteArray();
+        int len = 2 + pathBytes.length + 8 + 2 + stsBytes.length + 4 + valueBytes.length;
+        int pos = getEnd();
+        if ((pos + 4 + len) > buf.capacity()) {
+            if (!compact(4 + len)) {
+                return false;
+            }
+            pos = getEnd();
+        }
+        index(path, pos);
+        buf.position(pos);
+        buf.putInt(len);
+        buf.putShort((short) pathBytes.length);
+        buf.put(pathBytes);
+        buf.putLong(timestamp);
+        buf.putShort((short) stsBytes.length);
+        buf.put(stsBytes);
+        buf.putInt(valueBytes.length);
+        buf.put(valueBytes);
+        setEnd(buf.position());
+        live++;
+        return true;
+    }
+
+    public synchronized void close() {
+        if (buf == null) {
+            return;
+        }
+        buf.force();
+        buf = null;
+        index.clear();
+        try {
+            channel.close();
+        } catch (IOException x) {
+            DSException.throwRuntime(x);
+        }
+    }
+
+    /**
+     * The number of records dropped to make room for newer ones since the file was opened.
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * The number of records that haven't been replayed.
+     */
+    public synchronized int getSize() {
+        return live;
+    }
+
+    /**
+     * Removes the records for the path and adds them to the bucket in the order they were
+     * appended.
+     *
+     * @return The number of records added to the bucket.
+     */
+    public synchronized int take(String path, List<Update> bucket) {
+        if (buf == null) {
+            return 0;
+        }
+        Offsets offsets = index.remove(path);
+        if (offsets == null) {
+            return 0;
+        }
+        int pos;
+        for (int i = 0; i < offsets.size; i++) {
+            pos = offsets.items[i];
+            bucket.add(read(pos + 4 + 2 + buf.getShort(pos + 4)));
+            buf.putInt(pos, -buf.getInt(pos));
+        }
+        live -= offsets.size;
+        if (live == 0) {
+            setEnd(HEADER);
+        }
+        return offsets.size;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Package / Private Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Moves the records that haven't been replayed to the front of the file, first dropping the
+     * oldest if they wouldn't leave room for the given number of bytes.  Rebuilds the index.
+     *
+     * @return False if the bytes can't fit even in an empty file.
+     */
+    private boolean compact(int room) {
+        int capacity = buf.capacity();
+        if ((HEADER + room) > capacity) {
+            return false;
+        }
+        int end = getEnd();
+        int used = 0;
+        int len;
+        for (int pos = HEADER; pos < end; pos += 4 + Math.abs(len)) {
+            len = buf.getInt(pos);
+            if (len > 0) {
+                used += 4 + len;
+            }
+        }
+        for (int pos = HEADER; (HEADER + used + room) > capacity; pos += 4 + Math.abs(len)) {
+            len = buf.getInt(pos);
+            if (len > 0) {
+                buf.putInt(pos, -len);
+                used -= 4 + len;
+                live--;
+                dropped++;
+            }
+        }
+        index.clear();
+        byte[] tmp = new byte[Math.min(used, 8192)];
+        int dst = HEADER;
+        int chunk;
+        for (int pos = HEADER; pos < end; pos += 4 + Math.abs(len)) {
+            len = buf.getInt(pos);
+            if (len < 0) {
+                continue;
+            }
+            if (dst < pos) { //the destination is always behind the source
+                for (int i = 0, size = 4 + len; i < size; i += chunk) {
+                    chunk = Math.min(tmp.length, size - i);
+                    buf.position(pos + i);
+                    buf.get(tmp, 0, chunk);
+                    buf.position(dst + i);
+                    buf.put(tmp, 0, chunk);
+                }
+            }
+            index(dst);
+            dst += 4 + len;
+        }
+        setEnd(dst);
+        return true;
+    }
+
+    private int getEnd() {
+        return buf.getInt(4);
+    }
+
+    /**
+     * Adds the record at the position to the index, reading its path from the file.
+     */
+    private void index(int pos) {
+        byte[] bytes = new byte[buf.getShort(pos + 4)];
+        buf.position(pos + 6);
+        buf.get(bytes);
+        index(new String(bytes, DSString.UTF8), pos);
+    }
+
+    /**
+     * Adds the record at the position to the index of the path.
+     */
+    private void index(String path, int pos) {
+        Offsets offsets = index.get(path);
+        if (offsets == null) {
+            offsets = new Offsets();
+            index.put(path, offsets);
+        }
+        offsets.add(pos);
+    }
+
+    private Update read(int pos) {
+        long ts = buf.getLong(pos);
+        pos += 8;
+        byte[] bytes = new byte[buf.getShort(pos)];
+        pos += 2;
+        buf.position(pos);
+        buf.get(bytes);
+        int status = DSStatus.valueOf(new String(bytes, DSString.UTF8)).getBits();
+        bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        reader.setInput(new ByteArrayInputStream(bytes));
+        DSElement value = reader.getElement();
+        return new Update().set(ts, value, status);
+    }
+
+    private void setEnd(int end) {
+        buf.putInt(4, end);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The offsets of the records of a path, in the order they were appended.
+     */
+    private static class Offsets {
+
+        int[] items = new int[4];
+        int size;
+
+        void add(int offset) {
+            if (size == items.length) {
+                int[] tmp = new int[size * 2];
+                System.arraycopy(items, 0, tmp, 0, size);
+                items = tmp;
+            }
+            items[size++] = offset;
+        }
+
+    }
+
+}
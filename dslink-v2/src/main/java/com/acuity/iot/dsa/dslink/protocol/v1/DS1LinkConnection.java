@@ -105,6 +105,8 @@ public class DS1LinkConnection extends DSBrokerConnection {
             factory = (DSTransport.Factory) Class.forName(type).newInstance();
             transport = factory.makeTransport(this);
             transport.setText("json".equals(getBrokerFormat()));
+            transport.setCompression(getLink().getOptions().getConfig(
+                    DSLinkOptions.CFG_COMPRESSION, false));
         } catch (Exception x) {
             DSException.throwRuntime(x);
         }
@@ -2,9 +2,12 @@ package com.acuity.iot.dsa.dslink.protocol.v1;
 
 import static org.iot.dsa.io.DSIReader.Token.BEGIN_LIST;
 import static org.iot.dsa.io.DSIReader.Token.BEGIN_MAP;
+import static org.iot.dsa.io.DSIReader.Token.DOUBLE;
 import static org.iot.dsa.io.DSIReader.Token.END_LIST;
 import static org.iot.dsa.io.DSIReader.Token.END_MAP;
+import static org.iot.dsa.io.DSIReader.Token.LONG;
 import static org.iot.dsa.io.DSIReader.Token.NULL;
+import static org.iot.dsa.io.DSIReader.Token.STRING;
 
 import com.acuity.iot.dsa.dslink.io.DSIoException;
 import com.acuity.iot.dsa.dslink.protocol.DSBrokerConnection;
@@ -124,9 +127,10 @@ public class DS1Session extends DSSession implements MessageReader, MessageWrite
 
     @Override
     protected void onConnected() {
+        //before the sender and receiver can run, responses may need to send requests
+        setRequesterAllowed(true); //Rick says Dart broker doesn't send this
         super.onConnected();
         lastMessageSent = 0;
-        setRequesterAllowed(true); //Rick says Dart broker doesn't send this
         requester.onConnected();
         responder.onConnected();
         sendMessage();
@@ -300,18 +304,17 @@ public class DS1Session extends DSSession implements MessageReader, MessageWrite
         DSMap req;
         int rid;
         while (reader.next() == BEGIN_MAP) {
+            if (!areRequests) {
+                processResponse(reader);
+                continue;
+            }
             req = reader.getMap();
             rid = req.get("rid", -1);
             if (rid < 0) {
                 trace(trace() ? "No request ID: " + req.toString() : null);
                 throw new DSProtocolException("Response missing rid");
             }
-            if (areRequests) {
-                responder.handleRequest(rid, req);
-            } else {
-                requester.handleResponse(rid, req);
-            }
-
+            responder.handleRequest(rid, req);
         }
         if (reader.last() != END_LIST) {
             throw new IllegalStateException("Unexpected input: " + reader.last());
@@ -319,7 +322,61 @@ public class DS1Session extends DSSession implements MessageReader, MessageWrite
     }
 
     /**
-     * Send messages from one of the queues.
+     * Decodes a single response one key at a time.  When the rid precedes them, subscription
+     * updates are handed to the requester as they are parsed, rather than first being decoded
+     * into a map.  Any other response is decoded into a map as before.
+     *
+     * @param reader last() must return BEGIN_MAP
+     */
+    private void processResponse(DSIReader reader) {
+        DSMap res = null;
+        int rid = -1;
+        boolean streamed = false;
+        String key;
+        while (reader.next() == STRING) {
+            key = reader.getString();
+            switch (reader.next()) {
+                case LONG:
+                case DOUBLE:
+                    if (key.equals("rid")) {
+                        rid = (int) reader.getLong();
+                        continue;
+                    }
+                    break;
+                case BEGIN_LIST:
+                    if ((rid == 0) && key.equals("updates")) {
+                        requester.handleUpdates(reader);
+                        streamed = true;
+                        continue;
+                    }
+                    break;
+            }
+            if (res == null) {
+                res = new DSMap();
+            }
+            res.put(key, reader.getElement());
+        }
+        if (reader.last() != END_MAP) {
+            throw new IllegalStateException("Unexpected input: " + reader.last());
+        }
+        if (rid < 0) {
+            trace(trace() ? "No request ID: " + res : null);
+            throw new DSProtocolException("Response missing rid");
+        }
+        if (streamed) {
+            return;
+        }
+        if (res == null) {
+            res = new DSMap();
+        }
+        res.put("rid", rid);
+        requester.handleResponse(rid, res);
+    }
+
+    /**
+     * Send a batch of messages from one of the queues.  Only writable messages are dequeued,
+     * and the batch is bounded by the size of the queue when it began so that messages which
+     * re-enqueue themselves can't starve the other queue.
      *
      * @param requests Determines which queue to use; True for outgoing requests, false for
      *                 responses.
@@ -336,18 +393,10 @@ public class DS1Session extends DSSession implements MessageReader, MessageWrite
         }
         OutboundMessage msg = requests ? dequeueOutgoingRequest() : dequeueOutgoingResponse();
         while (msg != null) {
-            if (!msg.canWrite(this)) {
-                if (requests) {
-                    requeueOutgoingRequest(msg);
-                } else {
-                    requeueOutgoingResponse(msg);
-                }
+            if (requests) {
+                writeRequest(msg);
             } else {
-                if (requests) {
-                    writeRequest(msg);
-                } else {
-                    writeResponse(msg);
-                }
+                writeResponse(msg);
             }
             if (--count == 0) {
                 msg = null;
@@ -5,6 +5,8 @@ import com.acuity.iot.dsa.dslink.protocol.requester.DSOutboundStub;
 import com.acuity.iot.dsa.dslink.protocol.requester.DSRequester;
 import com.acuity.iot.dsa.dslink.protocol.v1.CloseMessage;
 import org.iot.dsa.dslink.requester.ErrorType;
+import org.iot.dsa.io.DSIReader;
+import org.iot.dsa.io.DSIReader.Token;
 import org.iot.dsa.node.DSElement;
 import org.iot.dsa.node.DSList;
 import org.iot.dsa.node.DSMap;
@@ -59,6 +61,30 @@ public class DS1Requester extends DSRequester {
         }
     }
 
+    /**
+     * Called by the parent session to stream the updates list of a subscription response
+     * directly to the subscriptions, without decoding it into a DSList first.
+     *
+     * @param reader last() must return BEGIN_LIST, this will consume the matching END_LIST.
+     */
+    public void handleUpdates(DSIReader reader) {
+        Token next;
+        while ((next = reader.next()) != Token.END_LIST) {
+            switch (next) {
+                case BEGIN_LIST:
+                    readUpdateList(reader);
+                    break;
+                case BEGIN_MAP:
+                    readUpdateMap(reader);
+                    break;
+                case END_INPUT:
+                case END_MAP:
+                    throw new IllegalStateException("Unexpected input: " + next);
+                default: //ignore
+            }
+        }
+    }
+
     @Override
     public void sendClose(Integer rid) {
         removeRequest(rid);
@@ -150,10 +176,111 @@ public class DS1Requester extends DSRequester {
 
     private void processUpdates(DSMap map) {
         DSList updates = map.getList("updates");
+        if (updates == null) {
+            return;
+        }
         for (int i = 0; i < updates.size(); i++) {
             DSElement update = updates.get(i);
             processUpdate(update);
         }
     }
 
+    /**
+     * Reads the number or string at the current position of the reader, or returns null.
+     * Nested lists and maps are consumed.
+     */
+    private static String readString(DSIReader reader) {
+        switch (reader.last()) {
+            case STRING:
+                return reader.getString();
+            case NULL:
+                return null;
+            default:
+                return reader.getElement().toString();
+        }
+    }
+
+    /**
+     * [sid, value, ts, status], the reader is positioned at BEGIN_LIST.
+     */
+    private void readUpdateList(DSIReader reader) {
+        int sid = -1;
+        DSElement value = null;
+        String ts = null, sts = null;
+        int col = 0;
+        Token next;
+        while ((next = reader.next()) != Token.END_LIST) {
+            if ((next == Token.END_INPUT) || (next == Token.END_MAP)) {
+                throw new IllegalStateException("Unexpected input: " + next);
+            }
+            switch (col++) {
+                case 0:
+                    if ((next == Token.LONG) || (next == Token.DOUBLE)) {
+                        sid = (int) reader.getLong();
+                    } else {
+                        reader.getElement();
+                    }
+                    break;
+                case 1:
+                    value = reader.getElement();
+                    break;
+                case 2:
+                    ts = readString(reader);
+                    break;
+                case 3:
+                    sts = readString(reader);
+                    break;
+                default:
+                    reader.getElement();
+            }
+        }
+        if (col < 3) {
+            trace(trace() ? "Update incomplete, sid: " + sid : null);
+            return;
+        }
+        if (sid < 0) {
+            debug(debug() ? "Update missing sid" : null);
+            return;
+        }
+        getSubscriptions().handleUpdate(sid, ts, sts, value);
+    }
+
+    /**
+     * {"sid":1, "value":1, "ts":"...", "status":"ok"}, the reader is positioned at BEGIN_MAP.
+     */
+    private void readUpdateMap(DSIReader reader) {
+        int sid = -1;
+        DSElement value = null;
+        String ts = null, sts = null;
+        String key;
+        Token next;
+        while ((next = reader.next()) != Token.END_MAP) {
+            if (next != Token.STRING) {
+                throw new IllegalStateException("Unexpected input: " + next);
+            }
+            key = reader.getString();
+            next = reader.next();
+            if (key.equals("sid")) {
+                if ((next == Token.LONG) || (next == Token.DOUBLE)) {
+                    sid = (int) reader.getLong();
+                } else {
+                    reader.getElement();
+                }
+            } else if (key.equals("value")) {
+                value = reader.getElement();
+            } else if (key.equals("ts")) {
+                ts = readString(reader);
+            } else if (key.equals("status")) {
+                sts = readString(reader);
+            } else {
+                reader.getElement();
+            }
+        }
+        if (sid < 0) {
+            debug(debug() ? "Update missing sid" : null);
+            return;
+        }
+        getSubscriptions().handleUpdate(sid, ts, sts, value);
+    }
+
 }
@@ -137,7 +137,7 @@ public class DS1Responder extends DSResponder {
     }
 
     @Override
-    protected DSInboundSubscriptions getSubscriptions() {
+    public DSInboundSubscriptions getSubscriptions() {
         return subscriptions;
     }
 
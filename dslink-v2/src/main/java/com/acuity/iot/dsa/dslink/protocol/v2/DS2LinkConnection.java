@@ -116,6 +116,10 @@ public class DS2LinkConnection extends DSBrokerConnection {
         } else if (uri.startsWith("ds")) {
             transport = new SocketTransport().setText(false);
         }
+        if (transport != null) {
+            transport.setCompression(getLink().getOptions().getConfig(
+                    DSLinkOptions.CFG_COMPRESSION, false));
+        }
         debug(debug() ? "Connection URL = " + uri : null);
         return transport;
     }
@@ -131,6 +131,12 @@ abstract class DS2Message extends DSLogger implements MessageConstants {
             case HDR_QUEUE_DURATION:
                 buf.append("Queue Duration");
                 break;
+            case HDR_MIN_INTERVAL:
+                buf.append("Min Interval");
+                break;
+            case HDR_DEADBAND:
+                buf.append("Deadband");
+                break;
             case HDR_REFRESHED:
                 buf.append("Refreshed");
                 break;
@@ -7,6 +7,7 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.CharsetDecoder;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import org.iot.dsa.node.DSBytes;
@@ -17,6 +18,10 @@ import org.iot.dsa.util.DSException;
  * Used to read a DSA 2.n message (header and body).  Call init(InputStream) to start a new message,
  * can be reused for multiple messages. Not thread safe, the intent is messages will be constructed
  * and read serially.
+ * <p>
+ * String headers may define or reference entries of the peer's string dictionary (see
+ * DS2MessageWriter).  The dictionary lives as long as the reader, so sessions use a new reader
+ * for every connection.
  *
  * @author Aaron Hansen
  */
@@ -29,6 +34,7 @@ public class DS2MessageReader extends DS2Message {
     private int ackId;
     private int bodyLength;
     private CharBuffer charBuffer;
+    private ArrayList<String> dictionary = new ArrayList<>();
     private Map<Integer, Object> headers = new HashMap<>();
     private InputStream input;
     private int method;
@@ -61,6 +67,13 @@ public class DS2MessageReader extends DS2Message {
         return reader;
     }
 
+    /**
+     * The number of strings defined by the peer.
+     */
+    public int getDictionarySize() {
+        return dictionary.size();
+    }
+
     public Object getHeader(Integer key) {
         return headers.get(key);
     }
@@ -209,6 +222,7 @@ public class DS2MessageReader extends DS2Message {
                 case HDR_PAGE_ID:
                 case HDR_QUEUE_SIZE:
                 case HDR_QUEUE_DURATION:
+                case HDR_MIN_INTERVAL:
                     val = DSBytes.readInt(in, false);
                     len -= 4;
                     break;
@@ -216,12 +230,23 @@ public class DS2MessageReader extends DS2Message {
                 case HDR_ERROR_DETAIL:
                 case HDR_PUB_PATH:
                 case HDR_ATTRIBUTE_FIELD:
+                case HDR_DEADBAND:
                 case HDR_PERMISSION_TOKEN:
                 case HDR_TARGET_PATH:
                 case HDR_SOURCE_PATH:
-                    short slen = DSBytes.readShort(in, false);
+                    int slen = DSBytes.readShort(in, false) & 0xFFFF;
                     len -= 2;
-                    val = readString(in, slen);
+                    if ((slen & STR_REFERENCE) != 0) {
+                        val = getDictionaryEntry(slen & ~STR_REFERENCE);
+                        break;
+                    }
+                    if ((slen & STR_DEFINE) != 0) {
+                        slen &= ~STR_DEFINE;
+                        val = readString(in, slen);
+                        dictionary.add((String) val);
+                    } else {
+                        val = readString(in, slen);
+                    }
                     len -= slen;
                     break;
                 default:
@@ -231,6 +256,13 @@ public class DS2MessageReader extends DS2Message {
         }
     }
 
+    private String getDictionaryEntry(int id) {
+        if (id >= dictionary.size()) {
+            throw new IllegalStateException("Unknown string dictionary id: " + id);
+        }
+        return dictionary.get(id);
+    }
+
     /**
      * Returns a char buffer with the given capacity, ready for writing (putting).  Attempts to
      * reuse the same char buffer.
@@ -1,12 +1,13 @@
 package com.acuity.iot.dsa.dslink.protocol.v2;
 
+import com.acuity.iot.dsa.dslink.io.DSBufferPool;
 import com.acuity.iot.dsa.dslink.io.DSByteBuffer;
 import com.acuity.iot.dsa.dslink.io.msgpack.MsgpackWriter;
 import com.acuity.iot.dsa.dslink.protocol.message.MessageWriter;
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import org.iot.dsa.dslink.DSITransport;
@@ -16,6 +17,20 @@ import org.iot.dsa.node.DSString;
  * Used to write a DSA 2.n message (header and body).  Call init(int,int) to start a new message,
  * can be reused for multiple messages. Not thread safe, the intent is messages will be constructed
  * and written serially.
+ * <p>
+ * Several messages can be packed into a single transport frame by calling beginFrame() before
+ * the first and endFrame(DSITransport) after the last.  Each message is gathered into the frame
+ * buffer and the frame is handed to the transport with a single write.
+ * <p>
+ * The frame is a buffer from a DSBufferPool and is given to the transport as is, so the header
+ * and body are only copied once on the way to the socket.  The pool should only hand out direct
+ * buffers when the transport can send them without copying (DSITransport.isDirectWrite()).
+ * <p>
+ * When the dictionary is enabled, the first use of a path or attribute name in a header assigns
+ * it an id and later messages only send the id.  Entries are only committed once the message is
+ * written, so a message that is discarded (for example, re-encoded as multipart) doesn't leave
+ * the peer's dictionary out of step.  The dictionary lives as long as the writer, so sessions
+ * use a new writer for every connection.
  *
  * @author Aaron Hansen
  */
@@ -29,9 +44,14 @@ public class DS2MessageWriter extends DS2Message implements MessageWriter {
     private int ackId = -1;
     private DSByteBuffer body;
     private CharBuffer charBuffer;
+    private HashMap<String, Integer> dictionary;
+    private ByteBuffer frame;
+    private boolean framing = false;
     private DSByteBuffer header;
     private Map<Integer, Object> headers = new HashMap<>();
     private int method;
+    private ArrayList<String> pending;
+    private DSBufferPool pool;
     private int requestId = -1;
     private ByteBuffer strBuffer;
     private CharsetEncoder utf8encoder;
@@ -43,6 +63,14 @@ public class DS2MessageWriter extends DS2Message implements MessageWriter {
 
 
     public DS2MessageWriter() {
+        this(new DSBufferPool(1));
+    }
+
+    /**
+     * @param pool Where to get frame buffers, usually shared by a session.
+     */
+    public DS2MessageWriter(DSBufferPool pool) {
+        this.pool = pool;
         header = new DSByteBuffer();
         body = new DSByteBuffer();
         writer = new MsgpackWriter(body);
@@ -90,7 +118,45 @@ public class DS2MessageWriter extends DS2Message implements MessageWriter {
     public DS2MessageWriter addStringHeader(int key, String value) {
         headers.put(key, value);
         header.put((byte) key);
-        writeString(value, header);
+        if ((dictionary == null) || (value.length() == 0) || !isDictionaryHeader(key)) {
+            writeString(value, header);
+            return this;
+        }
+        Integer id = dictionary.get(value);
+        if (id == null) {
+            int idx = pending.indexOf(value);
+            if (idx >= 0) {
+                id = dictionary.size() + idx;
+            }
+        }
+        if (id != null) {
+            header.putShort((short) (STR_REFERENCE | id), false);
+        } else if ((dictionary.size() + pending.size()) >= MAX_DICTIONARY) {
+            writeString(value, header);
+        } else if (writeString(value, header, STR_DEFINE)) {
+            pending.add(value);
+        }
+        return this;
+    }
+
+    /**
+     * Messages written after this are gathered into the frame buffer until
+     * endFrame(DSITransport) is called.
+     */
+    public DS2MessageWriter beginFrame() {
+        framing = true;
+        if (frame != null) {
+            frame.clear();
+        }
+        return this;
+    }
+
+    /**
+     * Writes all messages gathered since beginFrame() to the transport in a single write.
+     */
+    public DS2MessageWriter endFrame(DSITransport out) {
+        framing = false;
+        sendFrame(out);
         return this;
     }
 
@@ -102,6 +168,26 @@ public class DS2MessageWriter extends DS2Message implements MessageWriter {
         return body.length();
     }
 
+    /**
+     * The number of committed dictionary entries, or 0 if the dictionary isn't enabled.
+     */
+    public int getDictionarySize() {
+        if (dictionary == null) {
+            return 0;
+        }
+        return dictionary.size();
+    }
+
+    /**
+     * The number of bytes gathered since beginFrame(), not including the current message.
+     */
+    public int getFrameLength() {
+        if (frame == null) {
+            return 0;
+        }
+        return frame.position();
+    }
+
     @Override
     public MsgpackWriter getWriter() {
         return writer;
@@ -118,6 +204,9 @@ public class DS2MessageWriter extends DS2Message implements MessageWriter {
         this.ackId = ackId;
         body.clear();
         headers.clear();
+        if (pending != null) {
+            pending.clear();
+        }
         writer.reset();
         header.clear();
         header.skip(7);
@@ -141,10 +230,34 @@ public class DS2MessageWriter extends DS2Message implements MessageWriter {
         return new MultipartWriter(requestId, method, headers, tmp);
     }
 
+    /**
+     * Whether or not string headers are compressed with a dictionary, false by default.  The
+     * reader always understands dictionary references, but only enable this when the peer is
+     * also this implementation.  Disabling discards the dictionary.
+     */
+    public boolean isDictionary() {
+        return dictionary != null;
+    }
+
     public boolean requiresMultipart() {
         return getBodyLength() > MAX_BODY;
     }
 
+    /**
+     * Whether or not string headers are compressed with a dictionary, false by default.  This
+     * should only be changed before the first message is written.
+     */
+    public DS2MessageWriter setDictionary(boolean enabled) {
+        if (!enabled) {
+            dictionary = null;
+            pending = null;
+        } else if (dictionary == null) {
+            dictionary = new HashMap<>();
+            pending = new ArrayList<>();
+        }
+        return this;
+    }
+
     public DS2MessageWriter setMethod(int method) {
         this.method = method;
         return this;
@@ -154,23 +267,40 @@ public class DS2MessageWriter extends DS2Message implements MessageWriter {
      * This is for testing, it encodes the full message.
      */
     public byte[] toByteArray() {
-        ByteArrayOutputStream out = new ByteArrayOutputStream(header.length() + body.length());
         finishHeader();
-        header.sendTo(out);
-        body.sendTo(out);
-        return out.toByteArray();
+        commitDictionary();
+        int hlen = header.length();
+        int blen = body.length();
+        byte[] ret = new byte[hlen + blen];
+        header.sendTo(ret, 0, hlen);
+        body.sendTo(ret, hlen, blen);
+        return ret;
     }
 
     /**
-     * Writes the message to the transport.
+     * Writes the message to the transport, or to the current frame if beginFrame() was called.
      */
     public DS2MessageWriter write(DSITransport out) {
         finishHeader();
-        header.sendTo(out.getBinaryOutput());
-        body.sendTo(out.getBinaryOutput());
+        commitDictionary();
         if (debug()) {
             printDebug();
         }
+        int len = header.length() + body.length();
+        if (frame == null) {
+            frame = pool.take(len);
+        } else if (frame.remaining() < len) {
+            ByteBuffer tmp = pool.take(frame.position() + len);
+            frame.flip();
+            tmp.put(frame);
+            pool.recycle(frame);
+            frame = tmp;
+        }
+        header.sendTo(frame);
+        body.sendTo(frame);
+        if (!framing) {
+            sendFrame(out);
+        }
         return this;
     }
 
@@ -196,18 +326,7 @@ public class DS2MessageWriter extends DS2Message implements MessageWriter {
      * DSA 2.n encodes a string into the the given buffer.
      */
     public void writeString(CharSequence str, DSByteBuffer buf) {
-        if (str.length() == 0) {
-            buf.putShort((short) 0, false);
-            return;
-        }
-        CharBuffer chars = getCharBuffer(str);
-        ByteBuffer strBuffer = getStringBuffer(
-                chars.remaining() * (int) utf8encoder.maxBytesPerChar());
-        utf8encoder.encode(chars, strBuffer, false);
-        utf8encoder.reset();
-        strBuffer.flip();
-        buf.putShort((short) strBuffer.remaining(), false);
-        buf.put(strBuffer);
+        writeString(str, buf, 0);
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -231,6 +350,19 @@ public class DS2MessageWriter extends DS2Message implements MessageWriter {
     // Package / Private Methods
     ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Moves dictionary entries defined by the current message into the dictionary.
+     */
+    private void commitDictionary() {
+        if ((pending == null) || pending.isEmpty()) {
+            return;
+        }
+        for (int i = 0, len = pending.size(); i < len; i++) {
+            dictionary.put(pending.get(i), dictionary.size());
+        }
+        pending.clear();
+    }
+
     private void finishHeader() {
         int hlen = header.length();
         int blen = body.length();
@@ -290,4 +422,63 @@ public class DS2MessageWriter extends DS2Message implements MessageWriter {
         return strBuffer;
     }
 
+    /**
+     * Paths and attribute names repeat, other string headers such as error details do not.
+     */
+    private static boolean isDictionaryHeader(int key) {
+        switch (key) {
+            case HDR_ATTRIBUTE_FIELD:
+            case HDR_PUB_PATH:
+            case HDR_SOURCE_PATH:
+            case HDR_TARGET_PATH:
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Hands the frame to the transport and returns the buffer to the pool.
+     */
+    private void sendFrame(DSITransport out) {
+        if (frame == null) {
+            return;
+        }
+        ByteBuffer buf = frame;
+        frame = null;
+        try {
+            if (buf.position() > 0) {
+                buf.flip();
+                out.write(buf);
+            }
+        } finally {
+            pool.recycle(buf);
+        }
+    }
+
+    /**
+     * Encodes the string into the buffer with the flags or'd into the length prefix.  If the
+     * encoded length can't hold the flags, a plain length is used.
+     *
+     * @return Whether or not the flags were used.
+     */
+    private boolean writeString(CharSequence str, DSByteBuffer buf, int flags) {
+        if (str.length() == 0) {
+            buf.putShort((short) 0, false);
+            return false;
+        }
+        CharBuffer chars = getCharBuffer(str);
+        ByteBuffer strBuffer = getStringBuffer(
+                chars.remaining() * (int) utf8encoder.maxBytesPerChar());
+        utf8encoder.encode(chars, strBuffer, false);
+        utf8encoder.reset();
+        strBuffer.flip();
+        int len = strBuffer.remaining();
+        if (len >= STR_DEFINE) {
+            flags = 0;
+        }
+        buf.putShort((short) (len | flags), false);
+        buf.put(strBuffer);
+        return flags != 0;
+    }
+
 }
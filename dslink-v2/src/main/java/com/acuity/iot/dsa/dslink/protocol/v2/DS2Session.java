@@ -1,5 +1,6 @@
 package com.acuity.iot.dsa.dslink.protocol.v2;
 
+import com.acuity.iot.dsa.dslink.io.DSBufferPool;
 import com.acuity.iot.dsa.dslink.protocol.DSSession;
 import com.acuity.iot.dsa.dslink.protocol.message.OutboundMessage;
 import com.acuity.iot.dsa.dslink.protocol.responder.DSResponder;
@@ -9,6 +10,7 @@ import java.util.HashMap;
 import java.util.Map;
 import org.iot.dsa.dslink.DSIRequester;
 import org.iot.dsa.dslink.DSITransport;
+import org.iot.dsa.dslink.DSLinkOptions;
 
 /**
  * Implements DSA 1.1.2
@@ -28,6 +30,9 @@ public class DS2Session extends DSSession implements MessageConstants {
     // Instance Fields
     ///////////////////////////////////////////////////////////////////////////
 
+    private boolean batching = false;
+    private DSBufferPool bufferPool = new DSBufferPool();
+    private boolean dictionary = false;
     private long lastMessageSent;
     private DS2MessageReader messageReader;
     private DS2MessageWriter messageWriter;
@@ -57,9 +62,38 @@ public class DS2Session extends DSSession implements MessageConstants {
         return responder;
     }
 
+    /**
+     * Whether or not multiple messages are packed into a single frame, false by default because
+     * the broker must be able to read frames with more than one message.
+     */
+    public boolean isBatching() {
+        return batching;
+    }
+
+    /**
+     * Whether or not path and attribute name headers are compressed with a per connection
+     * dictionary, false by default.
+     */
+    public boolean isDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Whether or not multiple messages are packed into a single frame, false by default because
+     * the broker must be able to read frames with more than one message.
+     */
+    public DS2Session setBatching(boolean batching) {
+        this.batching = batching;
+        return this;
+    }
+
+    /**
+     * True when the frame being written has reached the threshold.
+     */
     @Override
     public boolean shouldEndMessage() {
-        return getMessageWriter().getBodyLength() > END_MSG_THRESHOLD;
+        DS2MessageWriter writer = getMessageWriter();
+        return (writer.getFrameLength() + writer.getBodyLength()) > END_MSG_THRESHOLD;
     }
 
     /////////////////////////////////////////////////////////////////
@@ -117,8 +151,15 @@ public class DS2Session extends DSSession implements MessageConstants {
 
     @Override
     protected void onConnected() {
-        super.onConnected();
+        batching = getConnection().getLink().getOptions().getConfig(
+                DSLinkOptions.CFG_MESSAGE_BATCHING, false);
+        dictionary = getConnection().getLink().getOptions().getConfig(
+                DSLinkOptions.CFG_STRING_DICTIONARY, false);
+        bufferPool.setDirect(getTransport().isDirectWrite());
+        //before the sender and receiver can run, responses may need to send requests
         setRequesterAllowed(true); //TODO - currently used for testing
+        super.onConnected();
+        //new reader and writer so the string dictionaries start empty
         messageReader = null;
         messageWriter = null;
         requester.onConnected();
@@ -133,6 +174,7 @@ public class DS2Session extends DSSession implements MessageConstants {
         messageReader = null;
         messageWriter = null;
         multiparts.clear();
+        bufferPool.clear();
     }
 
     @Override
@@ -155,55 +197,55 @@ public class DS2Session extends DSSession implements MessageConstants {
 
     private DS2MessageWriter getMessageWriter() {
         if (messageWriter == null) {
-            messageWriter = new DS2MessageWriter();
+            messageWriter = new DS2MessageWriter(bufferPool);
+            messageWriter.setDictionary(dictionary);
         }
         return messageWriter;
     }
 
     /**
-     * Send messages from one of the queues.
+     * Send messages from one of the queues.  When batching, ready messages are packed into
+     * the same frame until it reaches END_MSG_THRESHOLD.  The batch is bounded by the size of
+     * the queue when it began, so messages that re-enqueue themselves can't starve the other
+     * queue.
      *
      * @param requests Determines which queue to use; True for outgoing requests, false for
      *                 responses.
      */
     private void send(boolean requests) {
-        int count = 0;
+        OutboundMessage msg = null;
         if (!waitingForAcks()) {
-            if (requests) {
-                count = numOutgoingRequests();
-            } else {
-                count = numOutgoingResponses();
-            }
+            msg = requests ? dequeueOutgoingRequest() : dequeueOutgoingResponse();
         }
-        OutboundMessage msg = null;
-        if (count > 0) {
-            while (msg == null) {
-                if (--count < 0) {
-                    break;
-                }
-                msg = requests ? dequeueOutgoingRequest() : dequeueOutgoingResponse();
-                if (!msg.canWrite(this)) {
-                    if (requests) {
-                        requeueOutgoingRequest(msg);
-                    } else {
-                        requeueOutgoingResponse(msg);
-                    }
-                    msg = null;
-                }
-            }
+        if (msg != null) {
             setAckRequired();
         } else if (hasPingToSend()) {
             msg = new PingMessage(this);
         } else if (hasAckToSend()) {
             msg = new AckMessage(this);
         }
-        if (msg != null) {
-            DSITransport transport = getTransport();
-            transport.beginSendMessage();
-            msg.write(this, getMessageWriter());
-            transport.endSendMessage();
-            lastMessageSent = System.currentTimeMillis();
+        if (msg == null) {
+            return;
+        }
+        DSITransport transport = getTransport();
+        DS2MessageWriter writer = getMessageWriter();
+        transport.beginSendMessage();
+        writer.beginFrame();
+        msg.write(this, writer);
+        if (batching) {
+            int count = requests ? numOutgoingRequests() : numOutgoingResponses();
+            while ((--count >= 0) && !shouldEndMessage() && !waitingForAcks()) {
+                msg = requests ? dequeueOutgoingRequest() : dequeueOutgoingResponse();
+                if (msg == null) {
+                    break;
+                }
+                setAckRequired();
+                msg.write(this, writer);
+            }
         }
+        writer.endFrame(transport);
+        transport.endSendMessage();
+        lastMessageSent = System.currentTimeMillis();
     }
 
 }
@@ -10,6 +10,7 @@ package com.acuity.iot.dsa.dslink.protocol.v2;
 public interface MessageConstants {
 
     int MAX_BODY = 1024 * 48;
+    int MAX_DICTIONARY = 4096; //max string header dictionary entries per session
     int MAX_HEADER = 16320;
     Object NO_HEADER_VAL = new Object();
 
@@ -24,15 +25,22 @@ public interface MessageConstants {
     int HDR_QOS = 0x12;
     int HDR_QUEUE_SIZE = 0x14;
     int HDR_QUEUE_DURATION = 0x15;
+    int HDR_MIN_INTERVAL = 0x16; //subscribe req, int32 millis between updates
+    int HDR_DEADBAND = 0x17; //subscribe req, string number, or number% of the last value
     int HDR_REFRESHED = 0x20;
     int HDR_PUB_PATH = 0x21;
     int HDR_SKIPPABLE = 0x30;
+    int HDR_TIMESTAMP_MILLIS = 0x31; //subscribe req flag, int64 ts and positional updates ok
     int HDR_MAX_PERMISSION = 0x32;
     int HDR_ATTRIBUTE_FIELD = 0x41;
     int HDR_PERMISSION_TOKEN = 0x60;
     int HDR_TARGET_PATH = 0x80;
     int HDR_SOURCE_PATH = 0x81;
 
+    //string header length prefixes, a plain length is always less than STR_DEFINE
+    int STR_DEFINE = 0x4000; //| len, a string that is assigned the next dictionary id
+    int STR_REFERENCE = 0x8000; //| id, a string previously defined
+
     int MSG_SUBSCRIBE_REQ = 0x01;
     int MSG_SUBSCRIBE_RES = 0x81;
     int MSG_LIST_REQ = 0x02;
@@ -38,6 +38,7 @@ public class DS2OutboundSubscriptions extends DSOutboundSubscriptions implements
         ds2.setMethod(MSG_SUBSCRIBE_REQ);
         ds2.addStringHeader(HDR_TARGET_PATH, path);
         ds2.addByteHeader(HDR_QOS, (byte) qos);
+        ds2.addHeader(HDR_TIMESTAMP_MILLIS);
         ds2.write(getRequester().getTransport());
     }
 
@@ -17,10 +17,12 @@ import org.iot.dsa.dslink.requester.OutboundInvokeHandler;
 import org.iot.dsa.dslink.requester.OutboundListHandler;
 import org.iot.dsa.dslink.requester.OutboundRequestHandler;
 import org.iot.dsa.io.DSIReader;
+import org.iot.dsa.io.DSIReader.Token;
 import org.iot.dsa.node.DSBytes;
 import org.iot.dsa.node.DSElement;
 import org.iot.dsa.node.DSIValue;
 import org.iot.dsa.node.DSMap;
+import org.iot.dsa.time.DSDateTime;
 import org.iot.dsa.util.DSException;
 
 /**
@@ -195,15 +197,44 @@ public class DS2Requester extends DSRequester implements MessageConstants {
         if (reader.getMethod() != MSG_SUBSCRIBE_RES) {
             return false;
         }
-        String ts = null;
+        DSDateTime ts = null;
         String sts = null;
-        InputStream in = reader.getBody();
         DSIReader dsiReader = reader.getBodyReader();
         int len = DSBytes.readShort(reader.getBody(), false);
         if (len > 0) {
-            DSMap map = dsiReader.getMap();
-            ts = map.getString("timestamp");
-            sts = map.getString("status");
+            Token token = dsiReader.next();
+            if (token == Token.BEGIN_LIST) {
+                //positional, [ts] or [ts, status]
+                token = dsiReader.next();
+                if (token != Token.END_LIST) {
+                    ts = readTimestamp(dsiReader, token);
+                    token = dsiReader.next();
+                }
+                while (token != Token.END_LIST) {
+                    if ((token == Token.STRING) && (sts == null)) {
+                        sts = dsiReader.getString();
+                    } else {
+                        dsiReader.getElement();
+                    }
+                    token = dsiReader.next();
+                }
+            } else {
+                //stream the map so an int64 timestamp never becomes a string
+                String key;
+                while (dsiReader.next() == Token.STRING) {
+                    key = dsiReader.getString();
+                    token = dsiReader.next();
+                    if ("timestamp".equals(key)) {
+                        ts = readTimestamp(dsiReader, token);
+                    } else if ("status".equals(key)) {
+                        if (token == Token.STRING) {
+                            sts = dsiReader.getString();
+                        }
+                    } else {
+                        dsiReader.getElement();
+                    }
+                }
+            }
             dsiReader.reset();
         }
         DSElement value = dsiReader.getElement();
@@ -224,4 +255,19 @@ public class DS2Requester extends DSRequester implements MessageConstants {
         return false;
     }
 
+    /**
+     * Decodes an int64 or ISO 8601 timestamp at the current token, or consumes the element and
+     * returns null.
+     */
+    private static DSDateTime readTimestamp(DSIReader reader, Token token) {
+        switch (token) {
+            case LONG:
+                return DSDateTime.valueOf(reader.getLong());
+            case STRING:
+                return DSDateTime.valueOf(reader.getString());
+        }
+        reader.getElement();
+        return null;
+    }
+
 }
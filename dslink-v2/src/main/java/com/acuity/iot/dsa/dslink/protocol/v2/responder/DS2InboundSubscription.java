@@ -8,6 +8,7 @@ import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundSubscriptions;
 import com.acuity.iot.dsa.dslink.protocol.v2.DS2MessageWriter;
 import com.acuity.iot.dsa.dslink.protocol.v2.MessageConstants;
 import org.iot.dsa.io.DSIWriter;
+import org.iot.dsa.node.DSStatus;
 
 /**
  * Subscribe implementation for the responder.
@@ -17,12 +18,30 @@ import org.iot.dsa.io.DSIWriter;
 public class DS2InboundSubscription extends DSInboundSubscription implements MessageConstants {
 
     private int seqId = 0;
+    private boolean timestampMillis = false;
 
     protected DS2InboundSubscription(DSInboundSubscriptions manager,
                                      Integer sid, String path, int qos) {
         super(manager, sid, path, qos);
     }
 
+    /**
+     * Whether or not the requester accepts timestamps as int64 Java time, rather than ISO 8601
+     * strings.  Such requesters also accept the update header as the list [ts, status], which
+     * is used when the subscriptions are in positional mode.
+     */
+    public boolean isTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * Set when the subscribe request has the HDR_TIMESTAMP_MILLIS header.
+     */
+    public DS2InboundSubscription setTimestampMillis(boolean arg) {
+        timestampMillis = arg;
+        return this;
+    }
+
     @Override
     protected void write(Update update, MessageWriter writer, StringBuilder buf) {
         DS2MessageWriter out = (DS2MessageWriter) writer;
@@ -34,12 +53,25 @@ public class DS2InboundSubscription extends DSInboundSubscription implements Mes
         DSByteBuffer byteBuffer = out.getBody();
         byteBuffer.skip(2);
         int start = byteBuffer.length();
-        dsiWriter.beginMap();
-        dsiWriter.key("timestamp").value(update.timestamp.toString());
-        if (!update.status.isOk()) {
-            dsiWriter.key("status").value(update.status.toElement());
+        if (timestampMillis && getManager().isPositional()) {
+            dsiWriter.beginList();
+            dsiWriter.value(update.timestamp);
+            if (update.status != DSStatus.OK) {
+                dsiWriter.value(update.getStatus().toElement());
+            }
+            dsiWriter.endList();
+        } else {
+            dsiWriter.beginMap();
+            if (timestampMillis) {
+                dsiWriter.key("timestamp").value(update.timestamp);
+            } else {
+                dsiWriter.key("timestamp").value(update.timestamp, update.timeZone);
+            }
+            if (update.status != DSStatus.OK) {
+                dsiWriter.key("status").value(update.getStatus().toElement());
+            }
+            dsiWriter.endMap();
         }
-        dsiWriter.endMap();
         int end = byteBuffer.length();
         byteBuffer.replaceShort(start - 2, (short) (end - start), false);
         dsiWriter.reset();
@@ -16,6 +16,9 @@ public class DS2InboundSubscriptions extends DSInboundSubscriptions {
     // Constructors
     ///////////////////////////////////////////////////////////////////////////
 
+    public DS2InboundSubscriptions() {
+    }
+
     public DS2InboundSubscriptions(DSResponder responder) {
         super(responder);
     }
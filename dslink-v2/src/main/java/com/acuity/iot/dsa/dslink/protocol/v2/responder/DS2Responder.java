@@ -4,7 +4,6 @@ import com.acuity.iot.dsa.dslink.protocol.DSSession;
 import com.acuity.iot.dsa.dslink.protocol.DSStream;
 import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundRequest;
 import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundSet;
-import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundSubscription;
 import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundSubscriptions;
 import com.acuity.iot.dsa.dslink.protocol.responder.DSResponder;
 import com.acuity.iot.dsa.dslink.protocol.v2.CloseMessage;
@@ -88,7 +87,7 @@ public class DS2Responder extends DSResponder implements MessageConstants {
     }
 
     @Override
-    protected DSInboundSubscriptions getSubscriptions() {
+    public DSInboundSubscriptions getSubscriptions() {
         return subscriptions;
     }
 
@@ -189,7 +188,25 @@ public class DS2Responder extends DSResponder implements MessageConstants {
             qos = Integer.valueOf(0);
         }
         //Integer queueSize = (Integer) msg.getHeader(MessageConstants.HDR_QUEUE_SIZE);
-        DSInboundSubscription sub = subscriptions.subscribe(sid, path, qos.intValue());
+        boolean millis = msg.getHeader(HDR_TIMESTAMP_MILLIS) != null;
+        Number interval = (Number) msg.getHeader(HDR_MIN_INTERVAL);
+        String deadband = (String) msg.getHeader(HDR_DEADBAND);
+        //applied before the subscription queues its first update
+        subscriptions.subscribe(sid, path, qos.intValue(), sub -> {
+            if (millis) {
+                ((DS2InboundSubscription) sub).setTimestampMillis(true);
+            }
+            if (interval != null) {
+                sub.setMinInterval(interval.longValue());
+            }
+            if ((deadband != null) && !deadband.isEmpty()) {
+                try {
+                    sub.setDeadband(deadband);
+                } catch (NumberFormatException x) {
+                    debug(path, x);
+                }
+            }
+        });
         if (msg.getHeader(HDR_NO_STREAM) != null) {
             //sub.setCloseAfterUpdate(true);
         }
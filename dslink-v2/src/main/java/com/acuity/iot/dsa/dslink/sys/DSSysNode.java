@@ -4,6 +4,7 @@ import com.acuity.iot.dsa.dslink.sys.backup.SysBackupService;
 import com.acuity.iot.dsa.dslink.sys.cert.SysCertService;
 import com.acuity.iot.dsa.dslink.sys.logging.SysLogService;
 import com.acuity.iot.dsa.dslink.sys.profiler.SysProfiler;
+import com.acuity.iot.dsa.dslink.sys.runtime.SysRuntime;
 import org.iot.dsa.dslink.ActionResults;
 import org.iot.dsa.dslink.DSLink;
 import org.iot.dsa.dslink.DSLinkConnection;
@@ -25,6 +26,7 @@ public class DSSysNode extends DSNode {
     public static final String PROFILER = "Profiler";
     static final String LOGGING = "Logging";
     static final String BACKUPS = "Backups";
+    public static final String RUNTIME = "Runtime";
     public static final String OPEN_PROFILER = "Open Profiler";
     static final String CLOSE_PROFILER = "Close Profiler";
 
@@ -51,6 +53,7 @@ public class DSSysNode extends DSNode {
         declareDefault(CERTIFICATES, new SysCertService());
         declareDefault(LOGGING, new SysLogService());
         declareDefault(BACKUPS, new SysBackupService());
+        declareDefault(RUNTIME, new SysRuntime()).setTransient(true);
     }
 
     @Override
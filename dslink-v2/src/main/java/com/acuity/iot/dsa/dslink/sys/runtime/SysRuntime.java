@@ -0,0 +1,124 @@
+package com.acuity.iot.dsa.dslink.sys.runtime;
+
+import java.util.concurrent.Executor;
+import org.iot.dsa.DSRuntime;
+import org.iot.dsa.DSThreadPool;
+import org.iot.dsa.node.DSInfo;
+import org.iot.dsa.node.DSLong;
+import org.iot.dsa.node.DSNode;
+import org.iot.dsa.node.DSString;
+
+/**
+ * Statistics for the DSRuntime thread pool and timers, so saturation can be seen before
+ * it becomes an outage.  Values are only updated while subscribed.
+ *
+ * @author Aaron Hansen
+ */
+public class SysRuntime extends DSNode {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Class Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    static final String BLOCKED = "Blocked Enqueues";
+    static final String CALLER_RUNS = "Caller Runs";
+    static final String EXECUTOR = "Executor";
+    static final String IDLE_THREADS = "Idle Threads";
+    static final String MAX_QUEUE = "Max Queue Size";
+    static final String MAX_THREADS = "Max Threads";
+    static final String POLICY = "Saturation Policy";
+    static final String QUEUE = "Queue Size";
+    static final String STEALS = "Steals";
+    static final String THREADS = "Threads";
+    static final String TIMERS = "Timers";
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private DSInfo<?> blocked = getInfo(BLOCKED);
+    private DSInfo<?> callerRuns = getInfo(CALLER_RUNS);
+    private DSInfo<?> executor = getInfo(EXECUTOR);
+    private DSInfo<?> idleThreads = getInfo(IDLE_THREADS);
+    private DSInfo<?> maxQueue = getInfo(MAX_QUEUE);
+    private DSInfo<?> maxThreads = getInfo(MAX_THREADS);
+    private DSInfo<?> policy = getInfo(POLICY);
+    private DSInfo<?> queue = getInfo(QUEUE);
+    private DSInfo<?> steals = getInfo(STEALS);
+    private DSInfo<?> threads = getInfo(THREADS);
+    private DSInfo<?> timers = getInfo(TIMERS);
+    private DSRuntime.Timer updateTimer;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Protected Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override
+    protected void declareDefaults() {
+        super.declareDefaults();
+        declareDefault(EXECUTOR, DSString.EMPTY, "What DSRuntime.run uses")
+                .setReadOnly(true)
+                .setTransient(true);
+        declareStat(THREADS, "Threads currently in the pool");
+        declareStat(IDLE_THREADS, "Threads waiting for work");
+        declareStat(MAX_THREADS, "Less than 1 means unbounded");
+        declareStat(QUEUE, "Runnables waiting for a thread");
+        declareStat(MAX_QUEUE, "Less than 1 means unbounded");
+        declareDefault(POLICY, DSString.EMPTY, "What happens when the queue is full")
+                .setReadOnly(true)
+                .setTransient(true);
+        declareStat(CALLER_RUNS, "Runnables executed by the caller because the queue was full");
+        declareStat(BLOCKED, "Callers blocked because the queue was full");
+        declareStat(STEALS, "Runnables taken from the deque of another thread");
+        declareStat(TIMERS, "Scheduled timers");
+    }
+
+    @Override
+    protected void onStable() {
+        updateStats();
+    }
+
+    @Override
+    protected void onSubscribed() {
+        updateTimer = DSRuntime.run(this::updateStats, 0, 1000);
+    }
+
+    @Override
+    protected void onUnsubscribed() {
+        if (updateTimer != null) {
+            updateTimer.cancel();
+            updateTimer = null;
+        }
+    }
+
+    protected void updateStats() {
+        DSThreadPool pool = DSRuntime.getThreadPool();
+        Executor exec = DSRuntime.getExecutor();
+        if (exec == pool) {
+            put(executor, DSString.valueOf("Thread Pool"));
+        } else {
+            put(executor, DSString.valueOf(exec.getClass().getSimpleName()));
+        }
+        put(threads, DSLong.valueOf(pool.getThreadCount()));
+        put(idleThreads, DSLong.valueOf(pool.getIdleThreads()));
+        put(maxThreads, DSLong.valueOf(pool.getMaxThreads()));
+        put(queue, DSLong.valueOf(pool.getQueueSize()));
+        put(maxQueue, DSLong.valueOf(pool.getMaxQueueSize()));
+        put(policy, DSString.valueOf(pool.getSaturationPolicy().name()));
+        put(callerRuns, DSLong.valueOf(pool.getCallerRunsCount()));
+        put(blocked, DSLong.valueOf(pool.getBlockedCount()));
+        put(steals, DSLong.valueOf(pool.getStealCount()));
+        put(timers, DSLong.valueOf(DSRuntime.getTimerCount()));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Private Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    private void declareStat(String name, String description) {
+        declareDefault(name, DSLong.valueOf(0), description)
+                .setReadOnly(true)
+                .setTransient(true);
+    }
+
+}
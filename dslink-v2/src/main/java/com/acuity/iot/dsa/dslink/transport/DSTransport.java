@@ -4,11 +4,16 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.util.logging.Logger;
+import org.iot.dsa.DSRuntime;
 import org.iot.dsa.dslink.DSITransport;
 import org.iot.dsa.dslink.DSLinkConnection;
 import org.iot.dsa.node.DSBool;
 import org.iot.dsa.node.DSBytes;
+import org.iot.dsa.node.DSDouble;
+import org.iot.dsa.node.DSInfo;
+import org.iot.dsa.node.DSLong;
 import org.iot.dsa.node.DSNode;
 import org.iot.dsa.util.DSException;
 
@@ -17,6 +22,9 @@ import org.iot.dsa.util.DSException;
  * would be sockets, websockets and http.
  * <p>
  * Subclasses should call or override all protected methods.
+ * <p>
+ * Compression is optional and negotiated or framed by the subclass.  Subclasses that compress
+ * report what they do with addCompressionStats so the ratio and cost can be shown on the node.
  *
  * @author Aaron Hansen
  */
@@ -26,6 +34,9 @@ public abstract class DSTransport extends DSNode implements DSITransport {
     // Class Fields
     ///////////////////////////////////////////////////////////////////////////
 
+    private static final String COMPRESSION = "Compression";
+    private static final String COMPRESSION_RATIO = "Compression Ratio";
+    private static final String COMPRESSION_TIME = "Compression Time";
     private static final int DEFAULT_READ_TIMEOUT = 90000;
     private static final byte[] EMPTY_BYTES = new byte[0];
     private static final int HEX_COLS = 30;
@@ -38,10 +49,16 @@ public abstract class DSTransport extends DSNode implements DSITransport {
     private InputStream binaryInput;
     private OutputStream binaryOutput;
     private RuntimeException closeException;
+    private long compressedBytes;
+    private boolean compression = false;
+    private long compressionNanos;
     private DSLinkConnection connection;
     private String connectionUrl;
     private boolean open;
     private int readTimeout = DEFAULT_READ_TIMEOUT;
+    private byte[] scratch; //for copying direct buffers, grows to the largest frame
+    private DSInfo<?> statRatio = getInfo(COMPRESSION_RATIO);
+    private DSInfo<?> statTime = getInfo(COMPRESSION_TIME);
     private boolean text = true;
     private Reader textInput;
     private Writer textOutput;
@@ -50,6 +67,8 @@ public abstract class DSTransport extends DSNode implements DSITransport {
     private StringBuilder traceOut;
     private int traceOutCols = 0;
     private Logger transportLogger;
+    private long uncompressedBytes;
+    private DSRuntime.Timer updateTimer;
     private int writeSize = 0;
 
     ///////////////////////////////////////////////////////////////////////////
@@ -204,6 +223,23 @@ public abstract class DSTransport extends DSNode implements DSITransport {
         return textOutput;
     }
 
+    /**
+     * Whether or not messages are compressed, false by default.
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Whether or not messages are compressed, false by default.  Must be set before the
+     * transport is opened, and both ends of the connection must agree.
+     */
+    public DSTransport setCompression(boolean compression) {
+        this.compression = compression;
+        put(COMPRESSION, DSBool.valueOf(compression));
+        return this;
+    }
+
     /**
      * Whether or not the transport is open for reading and writing.
      */
@@ -301,14 +337,7 @@ public abstract class DSTransport extends DSNode implements DSITransport {
             }
             int idx = off;
             for (int i = 0; i < len; i++) {
-                if (traceOutCols > 0) {
-                    traceOut.append(' ');
-                }
-                DSBytes.toHex(buf[idx++], traceOut);
-                if (++traceOutCols == HEX_COLS) {
-                    traceOutCols = 0;
-                    traceOut.append('\n');
-                }
+                traceOut(buf[idx++]);
             }
         }
         if (isLast) {
@@ -323,6 +352,49 @@ public abstract class DSTransport extends DSNode implements DSITransport {
         }
     }
 
+    /**
+     * Writes the remaining bytes of the buffer as part of the current message.
+     */
+    @Override
+    public void write(ByteBuffer buf) {
+        write(buf, false);
+    }
+
+    /**
+     * Write the remaining bytes of the buffer, only use if isText() is false.  The position of
+     * the buffer will be its limit when this returns.
+     *
+     * @param buf    The bytes to write, direct only if isDirectWrite().
+     * @param isLast Indicator of end of frame (message) for frame oriented transports such as
+     *               websockets.
+     */
+    public void write(ByteBuffer buf, boolean isLast) {
+        if (!testOpen()) {
+            throw new IllegalStateException("Transport closed");
+        }
+        int len = buf.remaining();
+        if (getTransportLogger().isLoggable(trace)) {
+            if (traceOut == null) {
+                traceOut = new StringBuilder();
+                traceOut.append("Send:\n");
+            }
+            for (int i = buf.position(), end = buf.limit(); i < end; i++) {
+                traceOut(buf.get(i));
+            }
+        }
+        if (isLast) {
+            writeSize = 0;
+        } else {
+            writeSize += len;
+        }
+        try {
+            doWrite(buf, isLast);
+        } catch (Exception x) {
+            close(x);
+        }
+        buf.position(buf.limit());
+    }
+
     /**
      * Write text, only use if isText() returns true.
      *
@@ -395,6 +467,21 @@ public abstract class DSTransport extends DSNode implements DSITransport {
     // Protected Methods
     ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Subclasses that compress should call this for data compressed or decompressed, in either
+     * direction.
+     *
+     * @param uncompressed The number of bytes before compression, or after decompression.
+     * @param compressed   The number of bytes on the wire.
+     * @param nanos        The time spent in the compressor.
+     */
+    protected synchronized void addCompressionStats(long uncompressed, long compressed,
+                                                    long nanos) {
+        uncompressedBytes += uncompressed;
+        compressedBytes += compressed;
+        compressionNanos += nanos;
+    }
+
     /**
      * The number of bytes or chars available for reading.
      */
@@ -417,6 +504,15 @@ public abstract class DSTransport extends DSNode implements DSITransport {
         declareDefault(TEXT, DSBool.TRUE, "Communication Mode")
                 .setReadOnly(true)
                 .setTransient(true);
+        declareDefault(COMPRESSION, DSBool.FALSE)
+                .setReadOnly(true)
+                .setTransient(true);
+        declareDefault(COMPRESSION_RATIO, DSDouble.valueOf(1), "Uncompressed / compressed bytes")
+                .setReadOnly(true)
+                .setTransient(true);
+        declareDefault(COMPRESSION_TIME, DSLong.valueOf(0), "Total ms spent in the compressor")
+                .setReadOnly(true)
+                .setTransient(true);
     }
 
     /**
@@ -439,6 +535,24 @@ public abstract class DSTransport extends DSNode implements DSITransport {
      */
     protected abstract void doWrite(String msgPart, boolean isLast);
 
+    /**
+     * Perform the actual write of the remaining bytes in the buffer.  Heap buffers are passed
+     * to doWrite(byte[],int,int,boolean) as is, direct buffers are first copied to a reused
+     * array.  Override this and isDirectWrite() if the buffer can be sent as is.
+     */
+    protected void doWrite(ByteBuffer buf, boolean isLast) {
+        int len = buf.remaining();
+        if (buf.hasArray()) {
+            doWrite(buf.array(), buf.arrayOffset() + buf.position(), len, isLast);
+            return;
+        }
+        if ((scratch == null) || (scratch.length < len)) {
+            scratch = new byte[len];
+        }
+        buf.get(scratch, 0, len);
+        doWrite(scratch, 0, len, isLast);
+    }
+
     /**
      * This constructs a string from the parameters and call doWrite(String,isLast).  Override
      * if you can be more efficient.
@@ -471,6 +585,17 @@ public abstract class DSTransport extends DSNode implements DSITransport {
         super.onStopped();
     }
 
+    @Override
+    protected void onSubscribed() {
+        updateTimer = DSRuntime.run(this::updateStats, 0, 1000);
+    }
+
+    @Override
+    protected void onUnsubscribed() {
+        updateTimer.cancel();
+        updateTimer = null;
+    }
+
     /**
      * Subclasses must call this when the stream is opened.
      */
@@ -499,6 +624,33 @@ public abstract class DSTransport extends DSNode implements DSITransport {
     // Private Methods
     ///////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Appends the byte to the outbound hex trace.
+     */
+    private void traceOut(byte b) {
+        if (traceOutCols > 0) {
+            traceOut.append(' ');
+        }
+        DSBytes.toHex(b, traceOut);
+        if (++traceOutCols == HEX_COLS) {
+            traceOutCols = 0;
+            traceOut.append('\n');
+        }
+    }
+
+    private void updateStats() {
+        long compressed, nanos, uncompressed;
+        synchronized (this) {
+            compressed = compressedBytes;
+            nanos = compressionNanos;
+            uncompressed = uncompressedBytes;
+        }
+        if (compressed > 0) {
+            put(statRatio, DSDouble.valueOf(Math.round(uncompressed * 100d / compressed) / 100d));
+        }
+        put(statTime, DSLong.valueOf(nanos / 1000000));
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Inner Classes
     ///////////////////////////////////////////////////////////////////////////
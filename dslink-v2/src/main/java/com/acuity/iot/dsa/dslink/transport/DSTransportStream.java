@@ -6,9 +6,16 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
- * Abstract websocket transport.
+ * Abstract stream transport.
+ * <p>
+ * When compression is enabled, the binary stream in each direction is a single raw deflate
+ * stream.  The end of every message is a sync flush, so the peer can decode each message as
+ * soon as it arrives.  There is no negotiation, the peer must be configured the same way.
  *
  * @author Aaron Hansen
  */
@@ -18,10 +25,14 @@ public abstract class DSTransportStream extends DSTransport {
     // Class Fields
     ///////////////////////////////////////////////////////////////////////////
 
+    private static final int BUF_SIZE = 8192;
+
     ///////////////////////////////////////////////////////////////////////////
     // Instance Fields
     ///////////////////////////////////////////////////////////////////////////
 
+    private byte[] deflateBuf;
+    private Deflater deflater;
     private InputStream in;
     private OutputStream out;
     private Reader reader;
@@ -34,6 +45,10 @@ public abstract class DSTransportStream extends DSTransport {
     @Override
     public void close() {
         super.close();
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
         try {
             if (in != null) {
                 in.close();
@@ -109,7 +124,30 @@ public abstract class DSTransportStream extends DSTransport {
     @Override
     protected void doWrite(byte[] buf, int off, int len, boolean isLast) {
         try {
-            out.write(buf, off, len);
+            if (deflater == null) {
+                out.write(buf, off, len);
+                return;
+            }
+            long start = System.nanoTime();
+            long wire = 0;
+            int count;
+            deflater.setInput(buf, off, len);
+            while (!deflater.needsInput()) {
+                count = deflater.deflate(deflateBuf, 0, BUF_SIZE, Deflater.NO_FLUSH);
+                if (count > 0) {
+                    out.write(deflateBuf, 0, count);
+                    wire += count;
+                }
+            }
+            if (isLast) {
+                do {
+                    count = deflater.deflate(deflateBuf, 0, BUF_SIZE, Deflater.SYNC_FLUSH);
+                    out.write(deflateBuf, 0, count);
+                    wire += count;
+                } while (count == BUF_SIZE);
+                out.flush();
+            }
+            addCompressionStats(len, wire, System.nanoTime() - start);
         } catch (IOException x) {
             throw new UncheckedIOException(x);
         }
@@ -138,10 +176,125 @@ public abstract class DSTransportStream extends DSTransport {
      * Call to open a binary transport
      */
     protected void open(InputStream in, OutputStream out) {
+        if (isCompression()) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            deflateBuf = new byte[BUF_SIZE];
+            in = new InflaterInput(in);
+        }
         this.in = in;
         this.out = out;
         setText(false);
         setOpen();
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Decompresses the inbound stream.  Available only reports bytes that have been inflated, so
+     * the sync flush tail that ends each message doesn't look like more data.
+     */
+    private class InflaterInput extends InputStream {
+
+        private byte[] buf = new byte[BUF_SIZE];
+        private InputStream in;
+        private Inflater inflater = new Inflater(true);
+        private byte[] one = new byte[1];
+        private byte[] pending = new byte[BUF_SIZE]; //inflated by available()
+        private int pendingLen = 0;
+        private int pendingPos = 0;
+
+        InflaterInput(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (pendingPos < pendingLen) {
+                return pendingLen - pendingPos;
+            }
+            try {
+                int count = inflate(pending, 0, BUF_SIZE, false);
+                if (count <= 0) {
+                    return 0;
+                }
+                pendingPos = 0;
+                pendingLen = count;
+                return count;
+            } catch (DataFormatException x) {
+                throw new IOException(x);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            in.close();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (read(one, 0, 1) < 0) {
+                return -1;
+            }
+            return one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pendingPos < pendingLen) {
+                len = Math.min(len, pendingLen - pendingPos);
+                System.arraycopy(pending, pendingPos, b, off, len);
+                pendingPos += len;
+                return len;
+            }
+            try {
+                return inflate(b, off, len, true);
+            } catch (DataFormatException x) {
+                throw new IOException(x);
+            }
+        }
+
+        /**
+         * Inflates into the given array, reading compressed input as needed.
+         *
+         * @param block Whether to block for input, otherwise only what is available is read.
+         * @return The number of bytes inflated, 0 if none without blocking, or -1 at the end of
+         * the stream.
+         */
+        private int inflate(byte[] b, int off, int len, boolean block)
+                throws DataFormatException, IOException {
+            int count;
+            while (true) {
+                if (inflater.needsInput()) {
+                    count = in.available();
+                    if ((count <= 0) && !block) {
+                        return 0;
+                    }
+                    //block for at least one byte, then take what is ready
+                    count = in.read(buf, 0, Math.max(1, Math.min(BUF_SIZE, count)));
+                    if (count < 0) {
+                        return -1;
+                    }
+                    inflater.setInput(buf, 0, count);
+                    addCompressionStats(0, count, 0);
+                }
+                long start = System.nanoTime();
+                count = inflater.inflate(b, off, len);
+                addCompressionStats(count, 0, System.nanoTime() - start);
+                if (count > 0) {
+                    return count;
+                }
+                if (inflater.finished() || inflater.needsDictionary()) {
+                    return block ? -1 : 0;
+                }
+            }
+        }
+
+    }
+
 }
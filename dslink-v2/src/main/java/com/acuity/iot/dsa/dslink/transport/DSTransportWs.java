@@ -67,11 +67,23 @@ public abstract class DSTransportWs extends DSTransport {
     @Override
     public void endRecvMessage() {
         super.endRecvMessage();
-        if (--messages > 0) {
+        if (messages > 0) {
+            messages--;
+        }
+        //a binary frame can contain more than one message
+        if ((messages > 0) || (!isText() && (available() > 0))) {
             getConnection().getSession().recvMessage(true);
         }
     }
 
+    /**
+     * True, binary frames are sent from the buffer itself.
+     */
+    @Override
+    public boolean isDirectWrite() {
+        return true;
+    }
+
     @OnClose
     public void onClose(CloseReason reason) {
         if (isOpen()) {
@@ -187,6 +199,18 @@ public abstract class DSTransportWs extends DSTransport {
         }
     }
 
+    /**
+     * Sends the buffer without copying it.
+     */
+    @Override
+    protected void doWrite(ByteBuffer buf, boolean isLast) {
+        try {
+            basicRemote.sendBinary(buf, isLast);
+        } catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+    }
+
     @Override
     protected void doWrite(String msgPart, boolean isLast) {
         try {
@@ -18,7 +18,11 @@ public class PipedTransport extends DSTransport {
     @Override
     public void endRecvMessage() {
         super.endRecvMessage();
-        if (--messages > 0) {
+        if (messages > 0) {
+            messages--;
+        }
+        //a binary frame can contain more than one message
+        if ((messages > 0) || (!isText() && (available() > 0))) {
             getConnection().getSession().recvMessage(true);
         }
     }
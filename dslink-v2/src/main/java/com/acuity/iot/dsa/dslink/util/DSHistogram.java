@@ -0,0 +1,143 @@
+package com.acuity.iot.dsa.dslink.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size, log linear histogram of non-negative longs, in the style of HdrHistogram.
+ * Values below 32 have their own bucket, larger values share buckets that are 1/16th of their
+ * power of two, so any percentile is within about 6% of the recorded value.  All longs fit in
+ * 960 buckets.
+ * <p>
+ * Recording is lock free and allocates nothing, so it can be done on the hot path by multiple
+ * threads.  Percentiles are computed from a racy snapshot of the buckets, which is fine for
+ * monitoring.
+ *
+ * @author Aaron Hansen
+ */
+public class DSHistogram {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Class Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final int LINEAR = 32; //values with their own bucket
+    private static final int LINEAR_BITS = 5;
+    private static final int SUB_BUCKETS = 16; //buckets per power of two above LINEAR
+    private static final int SIZE = LINEAR + (63 - LINEAR_BITS) * SUB_BUCKETS;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private AtomicLongArray buckets = new AtomicLongArray(SIZE);
+    private AtomicLong count = new AtomicLong();
+    private AtomicLong max = new AtomicLong();
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The number of values recorded since creation or the last reset.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * The largest value recorded since creation or the last reset.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * The value at or below which the given percentage of recorded values fall, or 0 if nothing
+     * has been recorded.  The result is the upper bound of the bucket, but never more than the
+     * max.
+     *
+     * @param percentile 0 - 100, for example 99.9.
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < SIZE; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * Math.min(percentile, 100d) / 100d);
+        if (target < 1) {
+            target = 1;
+        }
+        long sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += buckets.get(i);
+            if (sum >= target) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Adds a value, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        long m = max.get();
+        while ((value > m) && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Discards everything recorded.
+     */
+    public void reset() {
+        for (int i = 0; i < SIZE; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount()
+                + " p50=" + getPercentile(50)
+                + " p99=" + getPercentile(99)
+                + " p999=" + getPercentile(99.9)
+                + " max=" + getMax();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Package / Private Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    static int indexOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (msb - 4)) - SUB_BUCKETS; //the 4 bits after the msb
+        return LINEAR + (msb - LINEAR_BITS) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        index -= LINEAR;
+        int msb = (index / SUB_BUCKETS) + LINEAR_BITS;
+        long mantissa = (index % SUB_BUCKETS) + SUB_BUCKETS + 1;
+        long ret = (mantissa << (msb - 4)) - 1;
+        return (ret < 0) ? Long.MAX_VALUE : ret;
+    }
+
+}
@@ -0,0 +1,263 @@
+package com.acuity.iot.dsa.dslink.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent map of primitive int keys to objects, for the request and subscription id
+ * tables.  Keys are never boxed and lookups are a linear probe of parallel arrays rather than a
+ * walk through entry nodes.
+ * <p>
+ * Reads are lock free, writes are synchronized.  Like ConcurrentHashMap, reads reflect the most
+ * recently completed writes and iteration is over a snapshot.  Integer.MIN_VALUE can not be used
+ * as a key and null values are not allowed.
+ *
+ * @author Aaron Hansen
+ */
+public class DSIntMap<V> {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Class Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private volatile int size = 0;
+    private volatile Table table;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Constructors
+    ///////////////////////////////////////////////////////////////////////////
+
+    public DSIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of entries to size the table for.
+     */
+    public DSIntMap(int expectedSize) {
+        table = new Table(capacityFor(expectedSize));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+        table = new Table(MIN_CAPACITY);
+        size = 0;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns the value for the key, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        Table t = table;
+        int mask = t.mask;
+        int idx = hash(key) & mask;
+        int k;
+        while ((k = t.keys.get(idx)) != EMPTY) {
+            if (k == key) {
+                return (V) t.values.get(idx);
+            }
+            idx = (idx + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * A snapshot of the keys currently mapped.
+     */
+    public int[] keys() {
+        Table t = table;
+        int[] ret = new int[size];
+        int count = 0;
+        for (int i = 0, len = t.keys.length(); i < len; i++) {
+            int k = t.keys.get(i);
+            if ((k != EMPTY) && (t.values.get(i) != null)) {
+                if (count == ret.length) {
+                    int[] tmp = new int[count + 16];
+                    System.arraycopy(ret, 0, tmp, 0, count);
+                    ret = tmp;
+                }
+                ret[count++] = k;
+            }
+        }
+        if (count < ret.length) {
+            int[] tmp = new int[count];
+            System.arraycopy(ret, 0, tmp, 0, count);
+            ret = tmp;
+        }
+        return ret;
+    }
+
+    /**
+     * Maps the key to the value and returns the prior value, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V put(int key, V value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Invalid key: " + key);
+        }
+        if (value == null) {
+            throw new NullPointerException("Null value");
+        }
+        Table t = table;
+        int mask = t.mask;
+        int idx = hash(key) & mask;
+        int k;
+        while ((k = t.keys.get(idx)) != EMPTY) {
+            if (k == key) {
+                Object old = t.values.getAndSet(idx, value);
+                if (old == null) {
+                    size++;
+                }
+                return (V) old;
+            }
+            idx = (idx + 1) & mask;
+        }
+        //the key has to be visible before the value
+        t.keys.set(idx, key);
+        t.values.set(idx, value);
+        size++;
+        if (++t.used > t.threshold) {
+            rehash();
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping and returns the prior value, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(int key) {
+        Table t = table;
+        int mask = t.mask;
+        int idx = hash(key) & mask;
+        int k;
+        while ((k = t.keys.get(idx)) != EMPTY) {
+            if (k == key) {
+                //the key stays so probes continue past it, rehash cleans it up
+                Object old = t.values.getAndSet(idx, null);
+                if (old != null) {
+                    size--;
+                }
+                return (V) old;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A snapshot of the values currently mapped.
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList<V> values() {
+        Table t = table;
+        ArrayList<V> ret = new ArrayList<>(size);
+        Object v;
+        for (int i = 0, len = t.values.length(); i < len; i++) {
+            v = t.values.get(i);
+            if (v != null) {
+                ret.add((V) v);
+            }
+        }
+        return ret;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Private Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static int capacityFor(int expectedSize) {
+        int cap = MIN_CAPACITY;
+        while (cap < (expectedSize * 2)) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    /**
+     * Ids are usually sequential, this spreads them so neighbors don't form long runs.
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Copies the live entries into a new table, dropping removed keys.  Readers continue to
+     * use the old table until the new one is published.
+     */
+    private void rehash() {
+        Table old = table;
+        Table t = new Table(capacityFor(size + 1));
+        int mask = t.mask;
+        Object v;
+        int k, idx;
+        for (int i = 0, len = old.keys.length(); i < len; i++) {
+            v = old.values.get(i);
+            if (v == null) {
+                continue;
+            }
+            k = old.keys.get(i);
+            idx = hash(k) & mask;
+            while (t.keys.get(idx) != EMPTY) {
+                idx = (idx + 1) & mask;
+            }
+            t.keys.set(idx, k);
+            t.values.set(idx, v);
+            t.used++;
+        }
+        table = t;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static class Table {
+
+        final AtomicIntegerArray keys;
+        final int mask;
+        final int threshold;
+        int used; //slots with a key, including removed, only accessed by writers
+        final AtomicReferenceArray<Object> values;
+
+        Table(int capacity) {
+            keys = new AtomicIntegerArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                keys.lazySet(i, EMPTY);
+            }
+            mask = capacity - 1;
+            threshold = (capacity * 3) / 4;
+            values = new AtomicReferenceArray<>(capacity);
+        }
+
+    }
+
+}
@@ -0,0 +1,210 @@
+package com.acuity.iot.dsa.dslink.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes objects by path so that all objects whose path starts with a given prefix can be
+ * found without scanning every path.  Paths are split on '/' and each name is a level of the
+ * trie.  The prefix match has the same semantics as String.startsWith, so the last name of a
+ * prefix matches any name at that level that starts with it.
+ * <p>
+ * An object can only be indexed under one path at a time, but many objects can share the same
+ * path.  Objects are compared by identity.  All methods are synchronized.
+ *
+ * @author Aaron Hansen
+ */
+public class DSPathTrie<V> {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private Map<V, Node> nodes = new IdentityHashMap<>();
+    private Node root = new Node(null, null);
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Removes everything.
+     */
+    public synchronized void clear() {
+        nodes.clear();
+        root = new Node(null, null);
+    }
+
+    /**
+     * Adds every object whose path starts with the prefix to the given list.
+     *
+     * @param prefix Required.
+     * @param bucket Where to add the objects, may be null.
+     * @return The bucket, or a new list if the bucket was null.
+     */
+    public synchronized List<V> collect(String prefix, List<V> bucket) {
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+        }
+        String[] names = split(prefix);
+        Node node = root;
+        int last = names.length - 1;
+        for (int i = 0; i < last; i++) {
+            node = node.getChild(names[i]);
+            if (node == null) {
+                return bucket;
+            }
+        }
+        if (node.children == null) {
+            return bucket;
+        }
+        String name = names[last];
+        Node child = node.children.get(name);
+        if (child != null) {
+            child.collect(bucket);
+        }
+        if (node.children.size() > 1) {
+            for (Node tmp : node.children.values()) {
+                if ((tmp != child) && tmp.name.startsWith(name)) {
+                    tmp.collect(bucket);
+                }
+            }
+        }
+        return bucket;
+    }
+
+    public synchronized boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    /**
+     * Index the object under the given path.  If the object was already indexed under another
+     * path, it is moved.
+     *
+     * @param path  Required.
+     * @param value Required.
+     */
+    public synchronized void put(String path, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null value");
+        }
+        remove(value);
+        Node node = root;
+        for (String name : split(path)) {
+            node = node.makeChild(name);
+        }
+        if (node.values == null) {
+            node.values = new ArrayList<>(1);
+        }
+        node.values.add(value);
+        nodes.put(value, node);
+    }
+
+    /**
+     * Removes the object, regardless of the path it was indexed under.
+     *
+     * @return True if the object was indexed.
+     */
+    public synchronized boolean remove(V value) {
+        Node node = nodes.remove(value);
+        if (node == null) {
+            return false;
+        }
+        List<Object> values = node.values;
+        for (int i = values.size(); --i >= 0; ) {
+            if (values.get(i) == value) {
+                values.remove(i);
+                break;
+            }
+        }
+        node.prune();
+        return true;
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Private Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static String[] split(String path) {
+        if (path == null) {
+            path = "";
+        }
+        return path.split("/", -1);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static class Node {
+
+        Map<String, Node> children;
+        String name;
+        Node parent;
+        List<Object> values;
+
+        Node(Node parent, String name) {
+            this.parent = parent;
+            this.name = name;
+        }
+
+        @SuppressWarnings("unchecked")
+        <V> void collect(List<V> bucket) {
+            if (values != null) {
+                for (Object v : values) {
+                    bucket.add((V) v);
+                }
+            }
+            if (children != null) {
+                for (Node child : children.values()) {
+                    child.collect(bucket);
+                }
+            }
+        }
+
+        Node getChild(String name) {
+            if (children == null) {
+                return null;
+            }
+            return children.get(name);
+        }
+
+        Node makeChild(String name) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            Node ret = children.get(name);
+            if (ret == null) {
+                ret = new Node(this, name);
+                children.put(name, ret);
+            }
+            return ret;
+        }
+
+        /**
+         * Removes empty nodes from the bottom up.
+         */
+        void prune() {
+            Node node = this;
+            while (node.parent != null) {
+                if ((node.values != null) && !node.values.isEmpty()) {
+                    return;
+                }
+                if ((node.children != null) && !node.children.isEmpty()) {
+                    return;
+                }
+                node.parent.children.remove(node.name);
+                node = node.parent;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.transport.DSTransportStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Deflate framing of stream transports.
+ *
+ * @author Aaron Hansen
+ */
+public class CompressionTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testStream() throws Exception {
+        PipedInputStream pipeIn = new PipedInputStream(1024 * 1024);
+        Counter wire = new Counter(new PipedOutputStream(pipeIn));
+        MyTransport sender = new MyTransport();
+        sender.setCompression(true);
+        sender.open(new PipedInputStream(new PipedOutputStream()), wire);
+        MyTransport receiver = new MyTransport();
+        receiver.setCompression(true);
+        receiver.open(pipeIn, new ByteArrayOutputStream());
+        int total = 0;
+        for (int i = 0; i < 5; i++) {
+            byte[] msg = makeMessage(i);
+            sender.beginSendMessage();
+            sender.write(msg, 0, msg.length / 2, false);
+            sender.write(msg, msg.length / 2, msg.length - (msg.length / 2), false);
+            sender.endSendMessage();
+            total += msg.length;
+            //each message is decodable as soon as it is sent
+            byte[] buf = new byte[msg.length];
+            int off = 0;
+            Assert.assertTrue(receiver.available() > 0);
+            while (off < buf.length) {
+                off += receiver.read(buf, off, buf.length - off);
+            }
+            Assert.assertEquals(buf, msg);
+        }
+        Assert.assertTrue(wire.count * 4 < total);
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    public void testSyncTail() throws Exception {
+        PipedInputStream pipeIn = new PipedInputStream(1024 * 1024);
+        PipedOutputStream pipeOut = new PipedOutputStream(pipeIn);
+        MyTransport receiver = new MyTransport();
+        receiver.setCompression(true);
+        receiver.open(pipeIn, new ByteArrayOutputStream());
+        byte[] msg = makeMessage(0);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(msg);
+        byte[] wire = new byte[msg.length];
+        int len = deflater.deflate(wire, 0, wire.length, Deflater.SYNC_FLUSH);
+        //the message decodes without the last four bytes of the sync flush, 00 00 ff ff
+        pipeOut.write(wire, 0, len - 4);
+        byte[] buf = new byte[msg.length];
+        int off = 0;
+        while (off < buf.length) {
+            off += receiver.read(buf, off, buf.length - off);
+        }
+        Assert.assertEquals(buf, msg);
+        //the tail is pending input but inflates to nothing, so nothing is available
+        pipeOut.write(wire, len - 4, 4);
+        Assert.assertEquals(receiver.available(), 0);
+        msg = "{}".getBytes();
+        deflater.setInput(msg);
+        len = deflater.deflate(wire, 0, wire.length, Deflater.SYNC_FLUSH);
+        deflater.end();
+        pipeOut.write(wire, 0, len);
+        Assert.assertEquals(receiver.available(), msg.length);
+        Assert.assertEquals(receiver.read(buf, 0, buf.length), msg.length);
+        Assert.assertEquals(receiver.available(), 0);
+        receiver.close();
+    }
+
+    private byte[] makeMessage(int seq) {
+        StringBuilder buf = new StringBuilder("{\"msg\":").append(seq).append(",\"responses\":[");
+        for (int i = 0; i < 200; i++) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            buf.append("{\"rid\":0,\"updates\":[[").append(i).append(",").append(seq * i)
+               .append(",\"2026-10-17T12:00:00.000-07:00\"]]}");
+        }
+        return buf.append("]}").toString().getBytes();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static class Counter extends OutputStream {
+
+        int count;
+        OutputStream out;
+
+        Counter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            count++;
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count += len;
+            out.write(b, off, len);
+        }
+
+    }
+
+    public static class MyTransport extends DSTransportStream {
+
+        @Override
+        public int available() {
+            return super.available();
+        }
+
+        @Override
+        public void open() {
+        }
+
+        public void open(InputStream in, OutputStream out) {
+            super.open(in, out);
+        }
+
+        @Override
+        protected Logger getTransportLogger() {
+            return Logger.getLogger("transport");
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.util.DSHistogram;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Aaron Hansen
+ */
+public class DSHistogramTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testPercentiles() {
+        DSHistogram histogram = new DSHistogram();
+        Assert.assertEquals(histogram.getPercentile(50), 0);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        Assert.assertEquals(histogram.getCount(), 1000);
+        Assert.assertEquals(histogram.getMax(), 1000000);
+        assertClose(histogram.getPercentile(50), 500000);
+        assertClose(histogram.getPercentile(99), 990000);
+        assertClose(histogram.getPercentile(99.9), 999000);
+        Assert.assertEquals(histogram.getPercentile(100), 1000000);
+        //small values are exact
+        histogram.reset();
+        Assert.assertEquals(histogram.getCount(), 0);
+        for (int i = 0; i < 32; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(histogram.getPercentile(50), 15);
+        Assert.assertEquals(histogram.getPercentile(100), 31);
+    }
+
+    @Test
+    public void testRange() {
+        DSHistogram histogram = new DSHistogram();
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(histogram.getPercentile(50), 0);
+        Assert.assertEquals(histogram.getPercentile(100), Long.MAX_VALUE);
+        Random random = new Random(1);
+        long value;
+        for (int i = 0; i < 10000; i++) {
+            value = random.nextLong() >>> (1 + random.nextInt(62));
+            histogram.reset();
+            histogram.record(value);
+            histogram.record(value + 1); //so the result isn't just the max
+            assertClose(histogram.getPercentile(50), value);
+        }
+    }
+
+    /**
+     * Within the precision of the histogram.
+     */
+    private void assertClose(long actual, long expected) {
+        Assert.assertTrue(actual >= expected, actual + " < " + expected);
+        Assert.assertTrue((actual - expected) <= ((expected / 16) + 1), actual + " >> " + expected);
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.util.DSIntMap;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Aaron Hansen
+ */
+public class DSIntMapTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testBasics() {
+        DSIntMap<String> map = new DSIntMap<>();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get(1));
+        Assert.assertNull(map.put(1, "one"));
+        Assert.assertEquals(map.put(1, "uno"), "one");
+        Assert.assertEquals(map.get(1), "uno");
+        Assert.assertNull(map.put(0, "zero"));
+        Assert.assertNull(map.put(-1, "minus"));
+        Assert.assertEquals(map.size(), 3);
+        Assert.assertEquals(map.remove(1), "uno");
+        Assert.assertNull(map.remove(1));
+        Assert.assertNull(map.get(1));
+        Assert.assertEquals(map.get(0), "zero");
+        Assert.assertEquals(map.get(-1), "minus");
+        Assert.assertEquals(map.size(), 2);
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        Assert.assertEquals(keys, new int[]{-1, 0});
+        Assert.assertEquals(map.values().size(), 2);
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get(0));
+    }
+
+    @Test
+    public void testGrowth() {
+        DSIntMap<Integer> map = new DSIntMap<>();
+        for (int i = 1; i <= 10000; i++) {
+            map.put(i, i);
+        }
+        Assert.assertEquals(map.size(), 10000);
+        for (int i = 1; i <= 10000; i++) {
+            Assert.assertEquals(map.get(i).intValue(), i);
+        }
+        //sequential rids are added and removed, removed keys must not fill the table
+        for (int i = 10001; i <= 100000; i++) {
+            map.put(i, i);
+            map.remove(i - 10000);
+        }
+        Assert.assertEquals(map.size(), 10000);
+        Assert.assertEquals(map.keys().length, 10000);
+        for (int i = 90001; i <= 100000; i++) {
+            Assert.assertEquals(map.get(i).intValue(), i);
+        }
+        Assert.assertNull(map.get(90000));
+    }
+
+    @Test
+    public void testConcurrency() throws Exception {
+        final DSIntMap<Integer> map = new DSIntMap<>();
+        final int count = 50000;
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 2; t++) {
+            final int offset = t * count;
+            new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    map.put(offset + i, offset + i);
+                    if ((i % 3) == 0) {
+                        map.remove(offset + i);
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        for (int t = 0; t < 2; t++) {
+            new Thread(() -> {
+                Integer val;
+                for (int loop = 0; loop < 5; loop++) {
+                    for (int i = 0; i < (count * 2); i++) {
+                        val = map.get(i);
+                        if ((val != null) && (val != i)) {
+                            failure.set("Wrong value for " + i + ": " + val);
+                        }
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        Assert.assertNull(failure.get());
+        int expected = 0;
+        for (int i = 0; i < count * 2; i++) {
+            if (((i % count) % 3) == 0) {
+                Assert.assertNull(map.get(i));
+            } else {
+                Assert.assertEquals(map.get(i).intValue(), i);
+                expected++;
+            }
+        }
+        Assert.assertEquals(map.size(), expected);
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.util.DSPathTrie;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Aaron Hansen
+ */
+public class DSPathTrieTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testCollect() {
+        String[] paths = new String[]{
+                "/main", "/main/dev1", "/main/dev1/point1", "/main/dev1/point10",
+                "/main/dev10/point1", "/main/dev2/point1", "/sys", "main/dev1", "/main/dev1/"
+        };
+        DSPathTrie<String> trie = new DSPathTrie<>();
+        for (String path : paths) {
+            trie.put(path, path);
+        }
+        //a second object with the same path
+        String dup = new String("/main/dev1");
+        trie.put(dup, dup);
+        Assert.assertEquals(trie.size(), paths.length + 1);
+        String[] prefixes = new String[]{
+                "", "/", "/main", "/main/", "/main/dev1", "/main/dev1/", "/main/dev1/point1",
+                "/main/dev", "/ma", "main", "/missing", "/main/dev1/point1/x"
+        };
+        for (String prefix : prefixes) {
+            List<String> expected = new ArrayList<>();
+            for (String path : paths) {
+                if (path.startsWith(prefix)) {
+                    expected.add(path);
+                }
+            }
+            if (dup.startsWith(prefix)) {
+                expected.add(dup);
+            }
+            List<String> actual = trie.collect(prefix, null);
+            Collections.sort(expected);
+            Collections.sort(actual);
+            Assert.assertEquals(actual, expected, prefix);
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        DSPathTrie<String> trie = new DSPathTrie<>();
+        String a = "/main/a";
+        String b = "/main/a/b";
+        trie.put(a, a);
+        trie.put(b, b);
+        Assert.assertTrue(trie.remove(b));
+        Assert.assertFalse(trie.remove(b));
+        Assert.assertEquals(trie.collect("/main", null).size(), 1);
+        //moving an object to another path
+        trie.put("/other", a);
+        Assert.assertEquals(trie.collect("/main", null).size(), 0);
+        Assert.assertEquals(trie.collect("/other", null).size(), 1);
+        Assert.assertTrue(trie.remove(a));
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertEquals(trie.collect("", null).size(), 0);
+    }
+
+}
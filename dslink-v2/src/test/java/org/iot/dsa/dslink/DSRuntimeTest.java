@@ -1,7 +1,13 @@
 package org.iot.dsa.dslink;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.iot.dsa.DSRuntime;
 import org.iot.dsa.DSRuntime.Timer;
+import org.iot.dsa.DSThreadPool;
+import org.iot.dsa.DSThreadPool.SaturationPolicy;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -103,4 +109,206 @@ public class DSRuntimeTest {
     public void test6() throws Exception {
     }
 
+    @Test
+    public void testTimerCancel() throws Exception {
+        int before = DSRuntime.getTimerCount();
+        Timer[] timers = new Timer[1000];
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = DSRuntime.runDelayed(() -> {
+            }, 100000 + i);
+        }
+        //other tests leave periodic timers running, allow for them to come and go
+        Assert.assertTrue(DSRuntime.getTimerCount() >= (before + timers.length - 10));
+        for (Timer timer : timers) {
+            timer.cancel();
+        }
+        Assert.assertTrue(DSRuntime.getTimerCount() <= (before + 10));
+    }
+
+    @Test
+    public void testTimerResolution() throws Exception {
+        long resolution = DSRuntime.getTimerResolution();
+        Object lock = new Object();
+        boolean[] ran = new boolean[1];
+        DSRuntime.setTimerResolution(1);
+        try {
+            Assert.assertEquals(DSRuntime.getTimerResolution(), 1L);
+            long start = System.currentTimeMillis();
+            DSRuntime.runDelayed(() -> {
+                synchronized (lock) {
+                    ran[0] = true;
+                    lock.notifyAll();
+                }
+            }, 50);
+            synchronized (lock) {
+                if (!ran[0]) {
+                    lock.wait(500);
+                }
+            }
+            Assert.assertTrue(ran[0]);
+            Assert.assertTrue((System.currentTimeMillis() - start) >= 50);
+        } finally {
+            DSRuntime.setTimerResolution(resolution);
+        }
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        ExecutorService exec = DSRuntime.newVirtualThreadExecutor("DSRuntimeTest-");
+        if (exec == null) { //not Java 21+
+            Assert.assertFalse(hasMethod(Thread.class, "ofVirtual"));
+            return;
+        }
+        Executor prev = DSRuntime.getExecutor();
+        DSRuntime.setExecutor(exec);
+        try {
+            CountDownLatch latch = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                DSRuntime.run(() -> {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException x) {
+                        throw new RuntimeException(x);
+                    }
+                    latch.countDown();
+                });
+            }
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            DSRuntime.setExecutor(prev);
+            exec.shutdown();
+        }
+    }
+
+    @Test
+    public void testThreadPool() throws Exception {
+        DSThreadPool pool = new DSThreadPool("DSRuntimeTest", 1, 4);
+        CountDownLatch latch = new CountDownLatch(1000);
+        for (int i = 0; i < 10; i++) {
+            //enqueue from pool threads so the work lands in the per thread deques
+            pool.enqueue(() -> {
+                for (int j = 0; j < 100; j++) {
+                    pool.enqueue(latch::countDown);
+                }
+            });
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(pool.getThreadCount() <= 4);
+        Assert.assertEquals(pool.getQueueSize(), 0L);
+        //the owner of the deque is busy until the runnable it enqueued has been stolen
+        CountDownLatch stolen = new CountDownLatch(1);
+        pool.enqueue(() -> {
+            pool.enqueue(stolen::countDown);
+            try {
+                stolen.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException x) {
+                throw new RuntimeException(x);
+            }
+        });
+        Assert.assertTrue(stolen.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(pool.getStealCount() > 0);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testThreadPoolSaturation() throws Exception {
+        DSThreadPool pool = new DSThreadPool("DSRuntimeTest", 1, 1);
+        pool.setMaxQueueSize(2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch hold = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(6);
+        pool.enqueue(() -> {
+            started.countDown();
+            try {
+                hold.await();
+            } catch (InterruptedException x) {
+                throw new RuntimeException(x);
+            }
+        });
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        pool.enqueue(done::countDown);
+        pool.enqueue(done::countDown);
+        Assert.assertEquals(pool.getQueueSize(), 2L);
+        //queue is full, so the caller should run this
+        Thread caller = Thread.currentThread();
+        pool.enqueue(() -> {
+            Assert.assertTrue(Thread.currentThread() == caller);
+            done.countDown();
+        });
+        Assert.assertEquals(pool.getCallerRunsCount(), 1L);
+        //the caller blocks until the held runnable is released and makes room
+        pool.setSaturationPolicy(SaturationPolicy.BLOCK);
+        Thread releaser = new Thread(() -> {
+            while (pool.getBlockedCount() == 0) {
+                Thread.yield();
+            }
+            hold.countDown();
+        });
+        releaser.start();
+        pool.enqueue(done::countDown);
+        Assert.assertEquals(hold.getCount(), 0L);
+        Assert.assertEquals(pool.getBlockedCount(), 1L);
+        pool.enqueue(done::countDown);
+        pool.enqueue(done::countDown);
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(pool.getThreadCount() <= 1);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testThreadPoolSaturationTimers() throws Exception {
+        DSThreadPool pool = new DSThreadPool("DSRuntimeTest", 1, 1);
+        pool.setMaxQueueSize(1);
+        pool.setSaturationPolicy(SaturationPolicy.BLOCK);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch hold = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        pool.enqueue(() -> {
+            started.countDown();
+            try {
+                hold.await();
+            } catch (InterruptedException x) {
+                throw new RuntimeException(x);
+            }
+        });
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        pool.enqueue(done::countDown);
+        Executor prev = DSRuntime.getExecutor();
+        DSRuntime.setExecutor(pool);
+        try {
+            //the timer thread neither blocks nor runs the timer, it goes over the limit
+            Thread[] timerThread = new Thread[1];
+            DSRuntime.runDelayed(() -> {
+                timerThread[0] = Thread.currentThread();
+                done.countDown();
+            }, 0);
+            CountDownLatch fired = new CountDownLatch(1);
+            DSRuntime.runDelayed(fired::countDown, 10);
+            long end = System.currentTimeMillis() + 5000;
+            while ((pool.getQueueSize() < 3) && (System.currentTimeMillis() < end)) {
+                Thread.sleep(1);
+            }
+            Assert.assertEquals(pool.getQueueSize(), 3L);
+            Assert.assertEquals(pool.getBlockedCount(), 0L);
+            Assert.assertEquals(pool.getCallerRunsCount(), 0L);
+            hold.countDown();
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(fired.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(timerThread[0].getName().startsWith("DSRuntimeTest"));
+        } finally {
+            hold.countDown();
+            DSRuntime.setExecutor(prev);
+            pool.shutdown();
+        }
+    }
+
+    private static boolean hasMethod(Class<?> clazz, String name) {
+        try {
+            clazz.getMethod(name);
+            return true;
+        } catch (NoSuchMethodException x) {
+            return false;
+        }
+    }
+
 }
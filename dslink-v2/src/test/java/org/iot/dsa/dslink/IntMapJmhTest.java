@@ -0,0 +1,106 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.util.DSIntMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Compares DSIntMap to the ConcurrentHashMap it replaced for sid and rid lookups.
+ */
+@State(Scope.Benchmark)
+public class IntMapJmhTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private ConcurrentHashMap<Integer, Object> chm;
+    private DSIntMap<Object> intMap;
+    private int next = 0;
+
+    @Param({"1000", "50000"})
+    public int size;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Benchmark
+    public Object chmGet() {
+        return chm.get(nextKey());
+    }
+
+    @Benchmark
+    public Object chmPutRemove() {
+        int key = nextKey() + size;
+        chm.put(key, this);
+        return chm.remove(key);
+    }
+
+    @Benchmark
+    public Object intMapGet() {
+        return intMap.get(nextKey());
+    }
+
+    @Benchmark
+    public Object intMapPutRemove() {
+        int key = nextKey() + size;
+        intMap.put(key, this);
+        return intMap.remove(key);
+    }
+
+    //@Test
+    public void runBenchmark() throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(this.getClass().getName() + ".*")
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .warmupTime(TimeValue.seconds(2))
+                .warmupIterations(3)
+                .measurementTime(TimeValue.seconds(2))
+                .measurementIterations(3)
+                .threads(4)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setup() {
+        chm = new ConcurrentHashMap<>();
+        intMap = new DSIntMap<>();
+        for (int i = 0; i < size; i++) {
+            chm.put(i, this);
+            intMap.put(i, this);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Private Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Racy on purpose, the benchmark only needs keys spread across the table.
+     */
+    private int nextKey() {
+        int ret = next;
+        if (++ret >= size) {
+            ret = 0;
+        }
+        next = ret;
+        return ret;
+    }
+
+}
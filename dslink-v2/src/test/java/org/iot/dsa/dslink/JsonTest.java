@@ -2,11 +2,19 @@ package org.iot.dsa.dslink;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.TimeZone;
 import org.iot.dsa.io.DSIReader;
+import org.iot.dsa.io.DSIReader.Token;
 import org.iot.dsa.io.DSIWriter;
 import org.iot.dsa.io.json.Json;
+import org.iot.dsa.io.json.JsonReader;
+import org.iot.dsa.io.json.JsonWriter;
 import org.iot.dsa.node.DSElement;
 import org.iot.dsa.node.DSList;
+import org.iot.dsa.time.DSDateTime;
+import org.iot.dsa.time.Time;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -27,6 +35,157 @@ public class JsonTest {
     // Methods
     // -------
 
+    @Test
+    public void testNumbers() {
+        String[] doubles = new String[]{
+                "0.0", "-0.0", "1.5", "-1.5", ".5", "5.", "1e5", "1E+2", "1.25e-3", "-2.5E-10",
+                "0.1", "0.3", "123456.789", "3.141592653589793", "1.7976931348623157E308",
+                "4.9E-324", "0.000000000000000000000000001", "12345678901234567890.5"
+        };
+        for (String str : doubles) {
+            JsonReader reader = new JsonReader("[" + str + "]");
+            reader.next();
+            Assert.assertEquals(reader.next(), Token.DOUBLE, str);
+            Assert.assertEquals(Double.doubleToRawLongBits(reader.getDouble()),
+                                Double.doubleToRawLongBits(Double.parseDouble(str)), str);
+        }
+        String[] longs = new String[]{
+                "0", "-0", "7", "007", "-42", "123456789012345678", "9223372036854775807",
+                "-9223372036854775808"
+        };
+        for (String str : longs) {
+            JsonReader reader = new JsonReader("[" + str + "]");
+            reader.next();
+            Assert.assertEquals(reader.next(), Token.LONG, str);
+            Assert.assertEquals(reader.getLong(), Long.parseLong(str), str);
+        }
+        Random random = new Random(1);
+        StringBuilder buf = new StringBuilder("[");
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            values[i] = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(20) - 10);
+            buf.append(values[i]);
+        }
+        buf.append(']');
+        JsonReader reader = new JsonReader(buf);
+        reader.next();
+        for (double value : values) {
+            reader.next();
+            Assert.assertEquals(Double.doubleToRawLongBits(reader.getDouble()),
+                                Double.doubleToRawLongBits(value));
+        }
+    }
+
+    @Test
+    public void testStrings() {
+        String longStr = "A string that is longer than the interned length limit";
+        JsonReader reader = new JsonReader(
+                "[{\"sid\":1,\"value\":\"" + longStr + "\"},{\"sid\":2,\"value\":\"ok\"}]");
+        Assert.assertEquals(reader.next(), Token.BEGIN_LIST);
+        Assert.assertEquals(reader.next(), Token.BEGIN_MAP);
+        Assert.assertEquals(reader.next(), Token.STRING);
+        String key = reader.getString();
+        Assert.assertEquals(key, "sid");
+        Assert.assertEquals(reader.next(), Token.LONG);
+        Assert.assertEquals(reader.next(), Token.STRING);
+        Assert.assertEquals(reader.next(), Token.STRING);
+        Assert.assertEquals(reader.getCharSequence().toString(), longStr);
+        Assert.assertEquals(reader.getString(), longStr);
+        Assert.assertEquals(reader.next(), Token.END_MAP);
+        Assert.assertEquals(reader.next(), Token.BEGIN_MAP);
+        Assert.assertEquals(reader.next(), Token.STRING);
+        Assert.assertTrue(key == reader.getString()); //interned
+        reader.next();
+        reader.next();
+        Assert.assertEquals(reader.next(), Token.STRING);
+        Assert.assertEquals(reader.getCharSequence().toString(), "ok");
+        Assert.assertEquals(reader.next(), Token.END_MAP);
+        Assert.assertEquals(reader.next(), Token.END_LIST);
+    }
+
+    @Test
+    public void testWriteNumbers() {
+        long[] longs = new long[]{
+                0, 1, -1, 9, 10, 12345, -98765, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE
+        };
+        double[] doubles = new double[]{
+                0.1, -0.5, 1.5, 3.14159, 0.001, 123456.789, 0.30000000000000004, 1e-5, 1e20,
+                -1e20, 1.7976931348623157E308, Double.MIN_VALUE, 2.5e14, 12345678901.5
+        };
+        Random random = new Random(1);
+        StringBuilder buf = new StringBuilder();
+        DSIWriter appender = Json.writer(buf);
+        StringWriter sw = new StringWriter();
+        JsonWriter writer = new JsonWriter(sw);
+        appender.beginList();
+        writer.beginList();
+        for (long l : longs) {
+            appender.value(l);
+            writer.value(l);
+        }
+        for (double d : doubles) {
+            appender.value(d);
+            writer.value(d);
+        }
+        for (int i = 0; i < 1000; i++) {
+            double d = random.nextDouble() * Math.pow(10, random.nextInt(12) - 4);
+            appender.value(d);
+            writer.value(d);
+        }
+        appender.endList().close();
+        writer.endList().close();
+        Assert.assertEquals(sw.toString(), buf.toString());
+        Assert.assertTrue(buf.indexOf("[0,1,-1,9,10,12345,-98765,") == 0);
+        Assert.assertTrue(buf.indexOf(",0.1,-0.5,1.5,3.14159,0.001,123456.789,") > 0);
+        DSList list = Json.read(buf).toList();
+        int idx = 0;
+        for (long l : longs) {
+            Assert.assertEquals(list.get(idx++).toLong(), l);
+        }
+        for (double d : doubles) {
+            Assert.assertEquals(list.get(idx++).toDouble(), d);
+        }
+        random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            double d = random.nextDouble() * Math.pow(10, random.nextInt(12) - 4);
+            Assert.assertEquals(Double.doubleToLongBits(list.get(idx++).toDouble()),
+                                Double.doubleToLongBits(d));
+        }
+    }
+
+    @Test
+    public void testWriteTimestamps() {
+        String[] zones = new String[]{
+                "UTC", "America/Los_Angeles", "Asia/Kolkata", "America/St_Johns", "Australia/Eucla"
+        };
+        Random random = new Random(1);
+        StringBuilder expected = new StringBuilder();
+        StringBuilder buf = new StringBuilder();
+        DSIWriter out = Json.writer(buf);
+        out.beginList();
+        expected.append('[');
+        for (int i = 0; i < 1000; i++) {
+            //1583 to 9999, plus a few from before the gregorian cutover
+            long millis = (long) (random.nextDouble() * 253402300799999L) - 12219292800000L;
+            if (i < 10) {
+                millis = -14000000000000L - (i * 1000000000000L);
+            }
+            TimeZone tz = TimeZone.getTimeZone(zones[i % zones.length]);
+            if (i > 0) {
+                expected.append(',');
+            }
+            expected.append('"').append(Time.encode(millis, tz)).append('"');
+            out.value(DSDateTime.valueOf(millis, tz));
+        }
+        out.value(DSDateTime.NULL);
+        expected.append(",\"null\"]");
+        out.endList().close();
+        Assert.assertEquals(buf.toString(), expected.toString());
+    }
+
     @Test
     public void theTest() {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -0,0 +1,116 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.io.msgpack.MsgpackReader;
+import com.acuity.iot.dsa.dslink.io.msgpack.MsgpackWriter;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import org.iot.dsa.io.DSIReader.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Decodes a message of subscription updates.  Each operation is one message, so the
+ * gc.alloc.rate.norm reported by the GC profiler is the allocation per message.
+ */
+@State(Scope.Thread)
+public class MsgpackJmhTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Class Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final int UPDATES = 100;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private ByteArrayInputStream in;
+    private MsgpackReader reader;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Decodes the message into a DSList of DSMaps, as most of the protocol code does.
+     */
+    @Benchmark
+    public Object decodeElements() {
+        in.reset();
+        reader.setInput(in);
+        return reader.getElement();
+    }
+
+    //@Test
+    public void runBenchmark() throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(this.getClass().getName() + ".*")
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .warmupTime(TimeValue.seconds(2))
+                .warmupIterations(3)
+                .measurementTime(TimeValue.seconds(2))
+                .measurementIterations(3)
+                .threads(1)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setup() {
+        MsgpackWriter out = new MsgpackWriter();
+        out.beginList();
+        for (int i = 0; i < UPDATES; i++) {
+            out.beginMap();
+            out.key("sid").value(i);
+            out.key("ts").value("2026-10-17T12:00:00.000-07:00");
+            out.key("value").value(i * 1.5d);
+            out.key("status").value("ok");
+            out.endMap();
+        }
+        out.endList();
+        in = new ByteArrayInputStream(out.toByteArray());
+        reader = new MsgpackReader();
+    }
+
+    /**
+     * Walks the tokens, examining keys as char sequences and only creating the values needed.
+     */
+    @Benchmark
+    public void stream(Blackhole bh) {
+        in.reset();
+        reader.setInput(in);
+        reader.next(); //list
+        CharSequence key;
+        while (reader.next() == Token.BEGIN_MAP) {
+            while (reader.next() == Token.STRING) {
+                key = reader.getCharSequence();
+                if (key.length() == 5) { //value
+                    reader.next();
+                    bh.consume(reader.getDouble());
+                } else if (key.charAt(0) == 't') {
+                    reader.next();
+                    bh.consume(reader.getCharSequence().length());
+                } else {
+                    reader.next();
+                    bh.consume(reader.getElement());
+                }
+            }
+        }
+    }
+
+}
@@ -10,6 +10,7 @@ import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.StandardCharsets;
 import org.iot.dsa.io.DSIReader;
+import org.iot.dsa.io.DSIReader.Token;
 import org.iot.dsa.node.DSList;
 import org.iot.dsa.node.DSMap;
 import org.iot.dsa.node.DSString;
@@ -21,6 +22,57 @@ import org.testng.annotations.Test;
  */
 public class MsgpackTest {
 
+    @Test
+    public void testStreaming() {
+        String longStr = "A string that is longer than the cached key length limit";
+        String utf8 = "liðe him be Drihten";
+        MsgpackWriter out = new MsgpackWriter();
+        out.beginList();
+        for (int i = 0; i < 2; i++) {
+            out.beginMap();
+            out.key("sid").value(i);
+            out.key("value").value(longStr);
+            out.key("status").value(utf8);
+            out.key("bytes").value("somebytes".getBytes());
+            out.key("skipped").value(longStr + utf8);
+            out.endMap();
+        }
+        out.endList();
+        MsgpackReader reader = new MsgpackReader(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertEquals(reader.next(), Token.BEGIN_LIST);
+        String firstKey = null;
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(reader.next(), Token.BEGIN_MAP);
+            Assert.assertEquals(reader.next(), Token.STRING);
+            Assert.assertEquals(reader.getCharSequence().toString(), "sid");
+            if (firstKey == null) {
+                firstKey = reader.getString();
+            } else { //short strings are cached
+                Assert.assertTrue(firstKey == reader.getString());
+            }
+            Assert.assertEquals(reader.next(), Token.LONG);
+            Assert.assertEquals(reader.getLong(), i);
+            reader.next();
+            Assert.assertEquals(reader.next(), Token.STRING);
+            Assert.assertTrue(reader.getCharSequence().toString().equals(longStr));
+            Assert.assertEquals(reader.getString(), longStr);
+            reader.next();
+            Assert.assertEquals(reader.next(), Token.STRING);
+            Assert.assertEquals(reader.getCharSequence().toString(), utf8);
+            Assert.assertEquals(reader.getString(), utf8);
+            reader.next();
+            Assert.assertEquals(reader.next(), Token.BYTES);
+            byte[] bytes = reader.getBytes();
+            Assert.assertEquals(new String(bytes, StandardCharsets.UTF_8), "somebytes");
+            reader.next();
+            Assert.assertEquals(reader.next(), Token.STRING); //never decoded
+            Assert.assertEquals(reader.next(), Token.END_MAP);
+            //the bytes are a copy and not overwritten by the next token
+            Assert.assertEquals(new String(bytes, StandardCharsets.UTF_8), "somebytes");
+        }
+        Assert.assertEquals(reader.next(), Token.END_LIST);
+    }
+
     @Test
     public void testStrings() {
         String input = "He wes Leovenaðes sone -- liðe him be Drihten.";
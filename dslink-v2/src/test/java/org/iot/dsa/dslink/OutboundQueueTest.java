@@ -0,0 +1,203 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.protocol.DSSession;
+import com.acuity.iot.dsa.dslink.protocol.message.MessageWriter;
+import com.acuity.iot.dsa.dslink.protocol.message.OutboundMessage;
+import com.acuity.iot.dsa.dslink.protocol.responder.DSResponder;
+import org.iot.dsa.dslink.DSIRequester;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Drives the ready, blocked and woken outbound queues of DSSession directly.
+ *
+ * @author Aaron Hansen
+ */
+public class OutboundQueueTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testAcks() {
+        MySession session = new MySession();
+        session.onConnected();
+        MyMessage needsAck = new MyMessage(1);
+        MyMessage ready = new MyMessage(-1);
+        session.enqueueOutgoingResponse(needsAck);
+        session.enqueueOutgoingResponse(ready);
+        //the head is blocked, the message behind it is still writable
+        Assert.assertSame(session.dequeueOutgoingResponse(), ready);
+        Assert.assertNull(session.dequeueOutgoingResponse());
+        Assert.assertEquals(session.numOutgoingResponses(), 1);
+        //an ack wakes the blocked message and the sender, but it still can't be written
+        int sends = session.sends;
+        session.setAckRcvd(0);
+        Assert.assertEquals(session.sends, sends + 1);
+        Assert.assertNull(session.dequeueOutgoingResponse());
+        session.setAckRcvd(1);
+        Assert.assertEquals(session.sends, sends + 2);
+        Assert.assertSame(session.dequeueOutgoingResponse(), needsAck);
+        Assert.assertEquals(session.numOutgoingResponses(), 0);
+        //nothing blocked, so nothing to wake
+        session.setAckRcvd(2);
+        Assert.assertEquals(session.sends, sends + 2);
+    }
+
+    @Test
+    public void testOrder() {
+        MySession session = new MySession();
+        session.onConnected();
+        MyMessage blocked = new MyMessage(1);
+        MyMessage first = new MyMessage(-1);
+        MyMessage second = new MyMessage(-1);
+        session.enqueueOutgoingResponse(blocked);
+        Assert.assertNull(session.dequeueOutgoingResponse());
+        session.enqueueOutgoingResponse(first);
+        session.enqueueOutgoingResponse(second);
+        //woken messages go ahead of those that were ready
+        session.setAckRcvd(1);
+        Assert.assertSame(session.dequeueOutgoingResponse(), blocked);
+        //requeued messages go back to the head
+        Assert.assertSame(session.dequeueOutgoingResponse(), first);
+        session.requeueOutgoingResponse(first);
+        Assert.assertEquals(session.numOutgoingResponses(), 2);
+        Assert.assertSame(session.dequeueOutgoingResponse(), first);
+        Assert.assertSame(session.dequeueOutgoingResponse(), second);
+        Assert.assertNull(session.dequeueOutgoingResponse());
+    }
+
+    @Test
+    public void testRequests() {
+        MySession session = new MySession();
+        session.onConnected();
+        session.setRequesterAllowed(true);
+        MyMessage blocked = new MyMessage(1);
+        MyMessage ready = new MyMessage(-1);
+        session.enqueueOutgoingRequest(blocked);
+        session.enqueueOutgoingRequest(ready);
+        Assert.assertSame(session.dequeueOutgoingRequest(), ready);
+        Assert.assertNull(session.dequeueOutgoingRequest());
+        Assert.assertEquals(session.numOutgoingRequests(), 1);
+        session.setAckRcvd(1);
+        Assert.assertSame(session.dequeueOutgoingRequest(), blocked);
+        //a disconnect clears everything, including blocked messages
+        session.enqueueOutgoingRequest(new MyMessage(2));
+        Assert.assertNull(session.dequeueOutgoingRequest());
+        session.onDisconnected();
+        Assert.assertEquals(session.numOutgoingRequests(), 0);
+        session.setAckRcvd(2);
+        Assert.assertNull(session.dequeueOutgoingRequest());
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Can only be written once the session has received the given ack.
+     */
+    private static class MyMessage implements OutboundMessage {
+
+        private int ack;
+
+        MyMessage(int ack) {
+            this.ack = ack;
+        }
+
+        @Override
+        public boolean canWrite(DSSession session) {
+            return session.getAckRcvd() >= ack;
+        }
+
+        @Override
+        public boolean write(DSSession session, MessageWriter writer) {
+            return false;
+        }
+
+    }
+
+    /**
+     * Has no transport, it counts calls to sendMessage instead of sending.
+     */
+    public static class MySession extends DSSession {
+
+        int sends = 0;
+
+        @Override
+        public DSIRequester getRequester() {
+            return null;
+        }
+
+        @Override
+        public void sendMessage() {
+            sends++;
+        }
+
+        @Override
+        public boolean shouldEndMessage() {
+            return false;
+        }
+
+        @Override
+        protected OutboundMessage dequeueOutgoingRequest() {
+            return super.dequeueOutgoingRequest();
+        }
+
+        @Override
+        protected OutboundMessage dequeueOutgoingResponse() {
+            return super.dequeueOutgoingResponse();
+        }
+
+        @Override
+        protected void doRecvMessage() {
+        }
+
+        @Override
+        protected void doSendMessage() {
+        }
+
+        @Override
+        protected DSResponder getResponder() {
+            return null;
+        }
+
+        @Override
+        protected boolean hasPingToSend() {
+            return false;
+        }
+
+        @Override
+        protected int numOutgoingRequests() {
+            return super.numOutgoingRequests();
+        }
+
+        @Override
+        protected int numOutgoingResponses() {
+            return super.numOutgoingResponses();
+        }
+
+        @Override
+        protected void onConnected() {
+            super.onConnected();
+        }
+
+        @Override
+        protected void onDisconnected() {
+            super.onDisconnected();
+        }
+
+        @Override
+        protected void requeueOutgoingResponse(OutboundMessage arg) {
+            super.requeueOutgoingResponse(arg);
+        }
+
+        @Override
+        protected void setAckRcvd(int ackRcvd) {
+            super.setAckRcvd(ackRcvd);
+        }
+
+    }
+
+}
@@ -35,6 +35,9 @@ public class RequesterSubscribeTest {
     public void test() throws Exception {
         link = new V1TestLink(root = new MyMain());
         doit();
+        link = new V1TestLink(root = new MyMain());
+        link.getOptions().setConfig(DSLinkOptions.CFG_POSITIONAL_UPDATES, true);
+        doit();
         //link = new V2TestLink(root = new MyMain());
         //doit();
     }
@@ -0,0 +1,110 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.test.V1TestLink;
+import java.util.ArrayList;
+import java.util.List;
+import org.iot.dsa.dslink.requester.SimpleListHandler;
+import org.iot.dsa.dslink.responder.InboundInvokeRequest;
+import org.iot.dsa.dslink.responder.InboundListRequest;
+import org.iot.dsa.dslink.responder.InboundSetRequest;
+import org.iot.dsa.dslink.responder.InboundSubscribeRequest;
+import org.iot.dsa.dslink.responder.ListCloseHandler;
+import org.iot.dsa.dslink.responder.SubscriptionCloseHandler;
+import org.iot.dsa.node.DSNode;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Lists on a DSIResponder use the path from the responder, but updates to the path that was
+ * requested must still refresh them.
+ *
+ * @author Aaron Hansen
+ */
+public class ResponderListTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testUpdate() throws Exception {
+        MyMain main = new MyMain();
+        DSLink link = new V1TestLink(main);
+        Thread t = new Thread(link, "DSLink Runner");
+        t.start();
+        try {
+            link.getConnection().waitForConnection(5000);
+            MyResponder responder = (MyResponder) main.get("responder");
+            DSIRequester requester = link.getConnection().getRequester();
+            requester.list("/main/responder/a", new SimpleListHandler());
+            responder.waitForLists(1);
+            Assert.assertEquals(responder.paths.get(0), "/a");
+            //the path from the responder isn't a path in this link
+            link.getConnection().getSession().update("/a");
+            link.getConnection().getSession().update("/main/responder/a");
+            responder.waitForLists(2);
+            Assert.assertEquals(responder.paths.get(1), "/a");
+            synchronized (responder) {
+                Assert.assertEquals(responder.paths.size(), 2);
+            }
+        } finally {
+            link.shutdown();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static class MyMain extends DSMainNode {
+
+        @Override
+        public void declareDefaults() {
+            declareDefault("responder", new MyResponder());
+        }
+
+    }
+
+    /**
+     * Completes every list right away and records the path it was given.
+     */
+    public static class MyResponder extends DSNode implements DSIResponder {
+
+        final List<String> paths = new ArrayList<>();
+
+        @Override
+        public ActionResults onInvoke(InboundInvokeRequest request) {
+            return null;
+        }
+
+        @Override
+        public ListCloseHandler onList(InboundListRequest request) {
+            synchronized (this) {
+                paths.add(request.getPath());
+                notifyAll();
+            }
+            request.listComplete();
+            return () -> {
+            };
+        }
+
+        @Override
+        public void onSet(InboundSetRequest request) {
+        }
+
+        @Override
+        public SubscriptionCloseHandler onSubscribe(InboundSubscribeRequest request) {
+            return null;
+        }
+
+        synchronized void waitForLists(int count) throws InterruptedException {
+            long end = System.currentTimeMillis() + 5000;
+            while ((paths.size() < count) && (System.currentTimeMillis() < end)) {
+                wait(100);
+            }
+            Assert.assertEquals(paths.size(), count);
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundSubscription;
+import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundSubscriptions;
+import com.acuity.iot.dsa.dslink.protocol.responder.DSResponder;
+import com.acuity.iot.dsa.dslink.protocol.v1.DS1Session;
+import com.acuity.iot.dsa.dslink.test.V1TestLink;
+import java.util.concurrent.TimeUnit;
+import org.iot.dsa.node.DSInt;
+import org.iot.dsa.node.DSStatus;
+import org.iot.dsa.time.DSDateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Enqueues and dequeues responder subscription updates at each qos.  The timestamp and value
+ * are created once, so gc.alloc.rate.norm reported by the GC profiler is what the queue itself
+ * allocates.  The backlog benchmark queues a batch before draining it, which is where the
+ * queue has to grow.  There is no spill file, so qos 2 only differs by its check for one.
+ */
+@State(Scope.Thread)
+public class SubscriptionQueueJmhTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Class Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final int BACKLOG = 100;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private DSLink link;
+    private MySubscription qos0;
+    private MySubscription qos1;
+    private MySubscription qos2;
+    private DSDateTime timestamp;
+    private DSInt value;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Benchmark
+    public int backlog() {
+        for (int i = BACKLOG; --i >= 0; ) {
+            qos1.update(timestamp, value, DSStatus.ok);
+        }
+        int ret = 0;
+        while (qos1.take()) {
+            ret++;
+        }
+        return ret;
+    }
+
+    @Benchmark
+    public boolean qos0() {
+        qos0.update(timestamp, value, DSStatus.ok);
+        return qos0.take();
+    }
+
+    @Benchmark
+    public boolean qos1() {
+        qos1.update(timestamp, value, DSStatus.ok);
+        return qos1.take();
+    }
+
+    @Benchmark
+    public boolean qos2() {
+        qos2.update(timestamp, value, DSStatus.ok);
+        return qos2.take();
+    }
+
+    //@Test
+    public void runBenchmark() throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(this.getClass().getName() + ".*")
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .warmupTime(TimeValue.seconds(2))
+                .warmupIterations(3)
+                .measurementTime(TimeValue.seconds(2))
+                .measurementIterations(3)
+                .threads(1)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        link = new V1TestLink(new MyMain());
+        Thread t = new Thread(link, "DSLink Runner");
+        t.start();
+        link.getConnection().waitForConnection(5000);
+        DSResponder responder = ((DS1Session) link.getConnection().getSession())
+                .getResponder();
+        DSInboundSubscriptions subs = responder.getSubscriptions();
+        qos0 = new MySubscription(subs, 0);
+        qos1 = new MySubscription(subs, 1);
+        qos2 = new MySubscription(subs, 2);
+        //discard the current values
+        qos0.take();
+        qos1.take();
+        qos2.take();
+        timestamp = DSDateTime.now();
+        value = DSInt.valueOf(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        link.shutdown();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static class MyMain extends DSMainNode {
+
+        @Override
+        public void declareDefaults() {
+            declareDefault("int", DSInt.valueOf(0));
+        }
+
+    }
+
+    /**
+     * Has a sid of 0 so the responder never writes it.
+     */
+    public static class MySubscription extends DSInboundSubscription {
+
+        Update update = new Update();
+
+        MySubscription(DSInboundSubscriptions manager, int qos) {
+            super(manager, 0, "/main/int", qos);
+            init();
+        }
+
+        boolean take() {
+            return dequeue(update);
+        }
+
+    }
+
+}
@@ -0,0 +1,546 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.io.msgpack.MsgpackReader;
+import com.acuity.iot.dsa.dslink.io.msgpack.MsgpackWriter;
+import com.acuity.iot.dsa.dslink.protocol.DSSession;
+import com.acuity.iot.dsa.dslink.protocol.message.MessageWriter;
+import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundSubscription;
+import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundSubscription.Update;
+import com.acuity.iot.dsa.dslink.protocol.responder.DSInboundSubscriptions;
+import com.acuity.iot.dsa.dslink.protocol.responder.DSResponder;
+import com.acuity.iot.dsa.dslink.protocol.responder.DSSpillFile;
+import com.acuity.iot.dsa.dslink.protocol.v1.DS1Session;
+import com.acuity.iot.dsa.dslink.test.V1TestLink;
+import com.acuity.iot.dsa.dslink.util.DSHistogram;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.iot.dsa.dslink.responder.InboundInvokeRequest;
+import org.iot.dsa.dslink.responder.InboundListRequest;
+import org.iot.dsa.dslink.responder.InboundSetRequest;
+import org.iot.dsa.dslink.responder.InboundSubscribeRequest;
+import org.iot.dsa.dslink.responder.ListCloseHandler;
+import org.iot.dsa.dslink.responder.SubscriptionCloseHandler;
+import org.iot.dsa.io.json.Json;
+import org.iot.dsa.node.DSDouble;
+import org.iot.dsa.node.DSInt;
+import org.iot.dsa.node.DSLong;
+import org.iot.dsa.node.DSNode;
+import org.iot.dsa.node.DSStatus;
+import org.iot.dsa.node.DSString;
+import org.iot.dsa.node.event.DSISubscription;
+import org.iot.dsa.time.DSDateTime;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Bounded qos 1 and 2 subscription queues, the spill file, and the deadband and minimum
+ * interval filters.
+ *
+ * @author Aaron Hansen
+ */
+public class SubscriptionQueueTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private CountDownLatch ready; //used by testWriteFairness
+    private List<int[]> turns;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testFilters() throws Exception {
+        run(session -> {
+            DSResponder responder = session.getResponder();
+            DSInboundSubscriptions subs = responder.getSubscriptions();
+            //from metadata, 10% deadband
+            MySubscription sub = new MySubscription(subs, "/main/analog", 1);
+            Assert.assertEquals(sub.getDeadband(), 10d);
+            Assert.assertTrue(sub.isDeadbandPercent());
+            Assert.assertTrue(sub.take()); //current value, 100
+            sub.update(DSDateTime.now(), DSDouble.valueOf(105), DSStatus.ok);
+            Assert.assertFalse(sub.take());
+            sub.update(DSDateTime.now(), DSDouble.valueOf(111), DSStatus.ok);
+            Assert.assertTrue(sub.take());
+            Assert.assertEquals(sub.update.value.toElement().toDouble(), 111d);
+            //status changes always pass
+            sub.update(DSDateTime.now(), DSDouble.valueOf(111), DSStatus.stale);
+            Assert.assertTrue(sub.take());
+            //the request takes precedence
+            sub.setDeadband("0.5");
+            Assert.assertFalse(sub.isDeadbandPercent());
+            sub.update(DSDateTime.now(), DSDouble.valueOf(111.4), DSStatus.stale);
+            Assert.assertFalse(sub.take());
+            sub.update(DSDateTime.now(), DSDouble.valueOf(111.6), DSStatus.stale);
+            Assert.assertTrue(sub.take());
+            //minimum interval holds the newest until it expires
+            MySubscription interval = new MySubscription(subs, "/main/int", 1);
+            interval.setMinInterval(200);
+            interval.update(DSDateTime.now(), DSInt.valueOf(1), DSStatus.ok);
+            interval.take();
+            interval.take();
+            for (int i = 2; i <= 10; i++) {
+                interval.update(DSDateTime.now(), DSInt.valueOf(i), DSStatus.ok);
+            }
+            Assert.assertFalse(interval.take());
+            waitFor(() -> interval.getQueueSize() > 0);
+            Assert.assertTrue(interval.take());
+            Assert.assertEquals(interval.update.value.toElement().toInt(), 10);
+            Assert.assertFalse(interval.take());
+            //the deadband compares with the last value queued, not one being held
+            MySubscription both = new MySubscription(subs, "/main/int", 1);
+            both.setDeadband(10, false);
+            both.setMinInterval(200);
+            both.update(DSDateTime.now(), DSInt.valueOf(100), DSStatus.ok);
+            both.take();
+            both.take();
+            both.update(DSDateTime.now(), DSInt.valueOf(120), DSStatus.ok);
+            both.update(DSDateTime.now(), DSInt.valueOf(115), DSStatus.ok);
+            waitFor(() -> both.getQueueSize() > 0);
+            Assert.assertTrue(both.take());
+            Assert.assertEquals(both.update.value.toElement().toInt(), 115);
+        });
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        DSLink link = new V1TestLink(new MyMain());
+        link.getOptions().setConfig(DSLinkOptions.CFG_SUBSCRIPTION_QUEUE_MAX, 10);
+        File file = File.createTempFile("spill", ".bin");
+        file.deleteOnExit();
+        run(link, session -> {
+            DSResponder responder = session.getResponder();
+            DSInboundSubscriptions subs = responder.getSubscriptions();
+            DSInboundSubscription sub = subs.subscribe(1000, "/main/int", 2);
+            waitFor(() -> sub.getQueueSize() == 0); //initial value
+            Thread.sleep(100);
+            //updates queue without being sent while disconnected
+            responder.onDisconnected();
+            for (int i = 0; i < 100; i++) {
+                sub.update(DSDateTime.now(), DSInt.valueOf(i), DSStatus.ok);
+                Assert.assertTrue(sub.getQueueSize() <= 10);
+            }
+            Assert.assertEquals(sub.getQueueSize(), 10);
+            Assert.assertTrue(subs.getDropped() >= 90);
+            subs.setQueueLimits(10, 1000, true);
+            long dropped = subs.getDropped();
+            sub.update(DSDateTime.now(), DSInt.valueOf(100), DSStatus.ok);
+            Assert.assertEquals(sub.getQueueSize(), 10);
+            Assert.assertEquals(subs.getDropped(), dropped + 1);
+            //the counts are in the node tree while it is subscribed
+            Assert.assertSame(subs.getParent(), responder);
+            DSISubscription stats = subs.subscribe((event, node, child, data) -> {
+            });
+            waitFor(() -> DSLong.valueOf(subs.getDropped()).equals(subs.get("Dropped")));
+            Assert.assertEquals(subs.get("Dropped"), DSLong.valueOf(subs.getDropped()));
+            Assert.assertEquals(subs.get("Queued"), DSLong.valueOf(subs.getQueued()));
+            stats.close();
+            //the spill file takes the backlog and replays it on resubscribe
+            subs.setSpillFile(new DSSpillFile(file, 1024 * 1024));
+            responder.onDisconnected();
+            Assert.assertEquals(sub.getQueueSize(), 0);
+            Assert.assertEquals(subs.getSpillFile().getSize(), 10);
+            sub.update(DSDateTime.now(), DSInt.valueOf(101), DSStatus.ok);
+            Assert.assertEquals(subs.getSpillFile().getSize(), 11);
+            Assert.assertEquals(sub.getQueueSize(), 0);
+            subs.subscribe(1001, "/main/int", 2);
+            Assert.assertEquals(subs.getSpillFile().getSize(), 0);
+            subs.setSpillFile(null);
+        });
+    }
+
+    @Test
+    public void testRequestOptions() throws Exception {
+        run(session -> {
+            DSInboundSubscriptions subs = session.getResponder().getSubscriptions();
+            //applied before the current value is queued, and take precedence over metadata
+            int[] queued = new int[]{-1};
+            DSInboundSubscription sub = subs.subscribe(1000, "/main/analog", 1, s -> {
+                queued[0] = s.getQueueSize();
+                s.setDeadband("1");
+                s.setMinInterval(1000);
+            });
+            Assert.assertEquals(queued[0], 0);
+            Assert.assertEquals(sub.getDeadband(), 1d);
+            Assert.assertFalse(sub.isDeadbandPercent());
+            Assert.assertEquals(sub.getMinInterval(), 1000);
+            //and when the path is subscribed again
+            subs.subscribe(1001, "/main/analog", 1, s -> s.setMinInterval(0));
+            Assert.assertEquals(sub.getMinInterval(), 0);
+        });
+    }
+
+    @Test
+    public void testResubscribeEmpty() throws Exception {
+        run(session -> {
+            DSInboundSubscriptions subs = session.getResponder().getSubscriptions();
+            //the responder sends nothing on subscribe, so the ring is never allocated
+            DSInboundSubscription sub = subs.subscribe(1000, "/main/responder/point", 1);
+            subs.subscribe(1001, "/main/responder/point", 1);
+            Thread.sleep(100);
+            //the resend of the current value must not drop the connection
+            Assert.assertTrue(session.getConnection().isConnected());
+            long count = subs.getWriteLatency().getCount();
+            sub.update(DSDateTime.now(), DSInt.valueOf(1), DSStatus.ok);
+            waitFor(() -> subs.getWriteLatency().getCount() > count);
+            Assert.assertEquals(subs.getWriteLatency().getCount(), count + 1);
+            Assert.assertEquals(sub.getSubscriptionId(), Integer.valueOf(1001));
+        });
+    }
+
+    @Test
+    public void testRing() throws Exception {
+        run(session -> {
+            DSResponder responder = session.getResponder();
+            //sid 0 so the responder doesn't write it
+            MySubscription sub = new MySubscription(responder.getSubscriptions(), 1);
+            Assert.assertTrue(sub.take()); //current value
+            Assert.assertFalse(sub.take());
+            //grows in order
+            for (int i = 1; i <= 20; i++) {
+                sub.update(DSDateTime.now(), DSInt.valueOf(i), DSStatus.ok);
+            }
+            Assert.assertEquals(sub.getQueueSize(), 20);
+            for (int i = 1; i <= 10; i++) {
+                Assert.assertTrue(sub.take());
+                Assert.assertEquals(sub.update.value.toElement().toInt(), i);
+            }
+            //wraps around
+            for (int i = 21; i <= 40; i++) {
+                sub.update(DSDateTime.now(), DSInt.valueOf(i),
+                           (i == 40) ? DSStatus.stale : DSStatus.ok);
+            }
+            for (int i = 11; i <= 30; i++) {
+                Assert.assertTrue(sub.take());
+                Assert.assertEquals(sub.update.value.toElement().toInt(), i);
+            }
+            //qos 0 keeps the newest
+            sub.setQos(0);
+            Assert.assertEquals(sub.getQueueSize(), 1);
+            Assert.assertTrue(sub.take());
+            Assert.assertEquals(sub.update.value.toElement().toInt(), 40);
+            Assert.assertEquals(sub.update.getStatus(), DSStatus.stale);
+            sub.update(DSDateTime.now(), DSInt.valueOf(41), DSStatus.ok);
+            sub.update(DSDateTime.now(), DSInt.valueOf(42), DSStatus.ok);
+            Assert.assertEquals(sub.getQueueSize(), 1);
+            Assert.assertTrue(sub.take());
+            Assert.assertEquals(sub.update.value.toElement().toInt(), 42);
+            //the current value can be sent again
+            Assert.assertTrue(sub.take());
+            Assert.assertEquals(sub.update.value.toElement().toInt(), 42);
+            Assert.assertEquals(sub.getQueueSize(), 0);
+            //the timezone of a timestamp is kept and encoded without a DSDateTime
+            TimeZone tz = TimeZone.getTimeZone("Asia/Kolkata");
+            String ts = "2016-07-01T18:00:45.500+05:30";
+            sub.update(DSDateTime.valueOf(1467376245500L, tz), DSInt.valueOf(43), DSStatus.ok);
+            Assert.assertTrue(sub.take());
+            Assert.assertEquals(sub.update.getTimestamp().toString(), ts);
+            StringBuilder buf = new StringBuilder();
+            Json.writer(buf).value(sub.update.timestamp, sub.update.timeZone).flush();
+            Assert.assertEquals(buf.toString(), '"' + ts + '"');
+            MsgpackWriter msgpack = new MsgpackWriter();
+            msgpack.value(sub.update.timestamp, sub.update.timeZone);
+            MsgpackReader reader = new MsgpackReader(
+                    new ByteArrayInputStream(msgpack.toByteArray()));
+            Assert.assertEquals(reader.getElement().toString(), ts);
+        });
+    }
+
+    @Test
+    public void testSpillFile() throws Exception {
+        File file = File.createTempFile("spill", ".bin");
+        file.deleteOnExit();
+        DSSpillFile spill = new DSSpillFile(file, 64 * 1024);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(spill.append("/a", now + i, DSInt.valueOf(i), DSStatus.ok));
+        }
+        spill.append("/b", now, DSInt.valueOf(10), DSStatus.stale);
+        spill.append("/b", now + 1, DSInt.valueOf(11), DSStatus.ok);
+        spill.close();
+        //survives being reopened
+        spill = new DSSpillFile(file, 64 * 1024);
+        Assert.assertEquals(spill.getSize(), 5);
+        List<Update> bucket = new ArrayList<>();
+        Assert.assertEquals(spill.take("/a", bucket), 3);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(bucket.get(i).value.toElement().toInt(), i);
+            Assert.assertEquals(bucket.get(i).timestamp, now + i);
+        }
+        spill.close();
+        spill = new DSSpillFile(file, 64 * 1024);
+        Assert.assertEquals(spill.getSize(), 2);
+        bucket.clear();
+        Assert.assertEquals(spill.take("/b", bucket), 2);
+        Assert.assertEquals(bucket.get(0).getStatus(), DSStatus.stale);
+        Assert.assertEquals(bucket.get(1).value.toElement().toInt(), 11);
+        Assert.assertEquals(spill.getSize(), 0);
+        //a path that is never taken doesn't pin the file, replayed records are compacted
+        Assert.assertTrue(spill.append("/d", now, DSInt.valueOf(-1), DSStatus.ok));
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertTrue(spill.append("/c", now + i, DSInt.valueOf(i), DSStatus.ok));
+            if ((i % 100) == 99) {
+                bucket.clear();
+                Assert.assertEquals(spill.take("/c", bucket), 100);
+                Assert.assertEquals(bucket.get(99).value.toElement().toInt(), i);
+            }
+        }
+        Assert.assertEquals(spill.getDropped(), 0);
+        Assert.assertEquals(spill.getSize(), 1);
+        //when the records that haven't been replayed fill the file, the oldest are dropped
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertTrue(spill.append("/e", now + i, DSInt.valueOf(i), DSStatus.ok));
+        }
+        Assert.assertTrue(spill.getDropped() > 0);
+        Assert.assertEquals(spill.getSize() + spill.getDropped(), 10001);
+        spill.close();
+        spill = new DSSpillFile(file, 64 * 1024);
+        bucket.clear();
+        Assert.assertEquals(spill.take("/d", bucket), 0);
+        int count = spill.take("/e", bucket);
+        Assert.assertEquals(count, spill.getSize() + count);
+        Assert.assertEquals(bucket.get(count - 1).value.toElement().toInt(), 9999);
+        Assert.assertEquals(bucket.get(0).value.toElement().toInt(), 10000 - count);
+        //larger than the file
+        Assert.assertFalse(spill.append("/f", now, DSString.valueOf(new String(new char[70000])),
+                                        DSStatus.ok));
+        spill.close();
+    }
+
+    @Test
+    public void testUpdateLatency() throws Exception {
+        run(session -> {
+            DSInboundSubscriptions subs = session.getResponder().getSubscriptions();
+            DSInboundSubscription sub = subs.subscribe(1000, "/main/int", 1);
+            for (int i = 0; i < 100; i++) {
+                sub.update(DSDateTime.now(), DSInt.valueOf(i), DSStatus.ok);
+            }
+            //recorded once the message is written to the transport, the initial value included
+            DSHistogram latency = session.getUpdateLatency();
+            waitFor(() -> latency.getCount() >= 101);
+            Assert.assertEquals(latency.getCount(), subs.getWriteLatency().getCount());
+            Assert.assertTrue(latency.getPercentile(50) > 0);
+            Assert.assertTrue(latency.getMax() >= subs.getWriteLatency().getMax());
+        });
+    }
+
+    @Test
+    public void testWriteFairness() throws Exception {
+        DSLink link = new V1TestLink(new MyMain());
+        link.getOptions().setConfig(DSLinkOptions.CFG_SUBSCRIPTION_WRITE_QUANTUM, 2);
+        link.getOptions().setConfig(DSLinkOptions.CFG_SUBSCRIPTION_WRITE_MAX, 4);
+        ready = new CountDownLatch(1);
+        turns = new ArrayList<>();
+        run(link, session -> {
+            DSResponder responder = session.getResponder();
+            DSInboundSubscriptions subs = responder.getSubscriptions();
+            //the first turn waits until every subscription is queued
+            MyRecordingSubscription chatty = new MyRecordingSubscription(subs, 2000);
+            for (int i = 0; i < 100; i++) {
+                chatty.update(DSDateTime.now(), DSInt.valueOf(i), DSStatus.ok);
+            }
+            List<MyRecordingSubscription> quiet = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) {
+                quiet.add(new MyRecordingSubscription(subs, 2000 + i));
+            }
+            ready.countDown();
+            waitFor(() -> chatty.getQueueSize() == 0);
+            Assert.assertEquals(chatty.getQueueSize(), 0);
+            int first;
+            int[] chattyWrites = new int[1000];
+            synchronized (turns) {
+                first = turns.get(0)[0];
+                for (int[] turn : turns) {
+                    if (turn[1] == 2000) {
+                        Assert.assertTrue(turn[2] <= 2, "Quantum exceeded: " + turn[2]);
+                        chattyWrites[turn[0] - first] += turn[2];
+                        Assert.assertTrue(chattyWrites[turn[0] - first] <= 4);
+                    }
+                }
+            }
+            //every quiet subscription is written in the first message
+            for (MyRecordingSubscription sub : quiet) {
+                Assert.assertEquals(sub.getQueueSize(), 0);
+                synchronized (turns) {
+                    boolean found = false;
+                    for (int[] turn : turns) {
+                        if ((turn[1] == sub.getSubscriptionId()) && (turn[0] == first)) {
+                            found = turn[2] == 1;
+                        }
+                    }
+                    Assert.assertTrue(found, "Not in the first message: " + sub);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testWriteLimits() throws Exception {
+        DSLink link = new V1TestLink(new MyMain());
+        link.getOptions().setConfig(DSLinkOptions.CFG_SUBSCRIPTION_WRITE_QUANTUM, 2);
+        link.getOptions().setConfig(DSLinkOptions.CFG_SUBSCRIPTION_WRITE_MAX, 4);
+        run(link, session -> {
+            DSResponder responder = session.getResponder();
+            DSInboundSubscriptions subs = responder.getSubscriptions();
+            Assert.assertEquals(subs.getWriteQuantum(), 2);
+            Assert.assertEquals(subs.getWriteMax(), 4);
+            //a backlog is written a quantum at a time, and every update is measured
+            DSInboundSubscription sub = subs.subscribe(1000, "/main/int", 1);
+            for (int i = 0; i < 100; i++) {
+                sub.update(DSDateTime.now(), DSInt.valueOf(i), DSStatus.ok);
+            }
+            waitFor(() -> sub.getQueueSize() == 0);
+            Assert.assertEquals(sub.getQueueSize(), 0);
+            Assert.assertTrue(subs.getWriteLatency().getCount() >= 100);
+            Assert.assertTrue(subs.getWriteLatency().getPercentile(50) > 0);
+        });
+    }
+
+    /**
+     * Runs the test with a default link.
+     */
+    private void run(SessionTest test) throws Exception {
+        run(new V1TestLink(new MyMain()), test);
+    }
+
+    /**
+     * Starts the link, runs the test once it is connected, then shuts the link down.
+     */
+    private void run(DSLink link, SessionTest test) throws Exception {
+        Thread t = new Thread(link, "DSLink Runner");
+        t.start();
+        try {
+            link.getConnection().waitForConnection(5000);
+            test.run((DS1Session) link.getConnection().getSession());
+        } finally {
+            link.shutdown();
+        }
+    }
+
+    /**
+     * Polls the condition until it is true or five seconds have passed.
+     */
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && (System.currentTimeMillis() < end)) {
+            Thread.sleep(10);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static class MyMain extends DSMainNode {
+
+        @Override
+        public void declareDefaults() {
+            declareDefault("analog", DSDouble.valueOf(100))
+                    .getMetadata().setDeadbandPercent(10);
+            declareDefault("int", DSInt.valueOf(0));
+            declareDefault("responder", new MyResponder());
+        }
+
+    }
+
+    /**
+     * Records the message, subscription id and number of updates of every write turn, the
+     * first turn waits for the latch.  Not static, it uses the latch and turns of the test.
+     */
+    public class MyRecordingSubscription extends DSInboundSubscription {
+
+        MyRecordingSubscription(DSInboundSubscriptions manager, int sid) {
+            super(manager, sid, "/main/int", 1);
+            init();
+        }
+
+        @Override
+        protected void write(DSSession session, MessageWriter writer, StringBuilder buf) {
+            try {
+                ready.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException x) {
+                throw new RuntimeException(x);
+            }
+            synchronized (turns) {
+                turns.add(new int[]{session.getMidSent(), getSubscriptionId(), 0});
+            }
+            super.write(session, writer, buf);
+        }
+
+        @Override
+        protected void write(Update update, MessageWriter writer, StringBuilder buf) {
+            synchronized (turns) {
+                turns.get(turns.size() - 1)[2]++;
+            }
+            super.write(update, writer, buf);
+        }
+
+    }
+
+    /**
+     * Accepts subscriptions without sending a value.
+     */
+    public static class MyResponder extends DSNode implements DSIResponder {
+
+        @Override
+        public ActionResults onInvoke(InboundInvokeRequest request) {
+            return null;
+        }
+
+        @Override
+        public ListCloseHandler onList(InboundListRequest request) {
+            return null;
+        }
+
+        @Override
+        public void onSet(InboundSetRequest request) {
+        }
+
+        @Override
+        public SubscriptionCloseHandler onSubscribe(InboundSubscribeRequest request) {
+            return null;
+        }
+
+    }
+
+    /**
+     * Exposes the queue without a connection to write to.
+     */
+    public static class MySubscription extends DSInboundSubscription {
+
+        Update update = new Update();
+
+        MySubscription(DSInboundSubscriptions manager, int qos) {
+            this(manager, "/main/int", qos);
+        }
+
+        MySubscription(DSInboundSubscriptions manager, String path, int qos) {
+            super(manager, 0, path, qos);
+            init();
+        }
+
+        boolean take() {
+            return dequeue(update);
+        }
+
+    }
+
+    /**
+     * The body of a test that needs a connected link.
+     */
+    public interface SessionTest {
+
+        void run(DS1Session session) throws Exception;
+
+    }
+
+}
@@ -1,8 +1,14 @@
 package org.iot.dsa.dslink;
 
 import com.acuity.iot.dsa.dslink.test.V1TestLink;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.iot.dsa.node.DSInfo;
 import org.iot.dsa.node.DSInt;
 import org.iot.dsa.node.DSNode;
+import org.iot.dsa.node.event.DSISubscription;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -11,6 +17,88 @@ public class SubscriptionTest {
     private static boolean success = false;
     private V1TestLink link;
 
+    @Test
+    public void testChildIndex() {
+        DSNode node = new DSNode();
+        DSInfo<?> a = node.put("a", DSInt.valueOf(0));
+        DSInfo<?> b = node.put("b", DSInt.valueOf(0));
+        node.start();
+        node.stable();
+        AtomicInteger all = new AtomicInteger();
+        AtomicInteger onlyA = new AtomicInteger();
+        AtomicInteger onlyB = new AtomicInteger();
+        DSISubscription allSub = node.subscribe((event, n, child, data) -> all.incrementAndGet());
+        DSISubscription aSub = node.subscribe((event, n, child, data) -> {
+            Assert.assertTrue(child == a);
+            onlyA.incrementAndGet();
+        }, a);
+        node.subscribe((event, n, child, data) -> {
+            Assert.assertTrue(child == b);
+            onlyB.incrementAndGet();
+        }, DSNode.VALUE_CHANGED_EVENT, b);
+        Assert.assertTrue(node.isSubscribed());
+        node.put(a, DSInt.valueOf(1));
+        node.put(a, DSInt.valueOf(2));
+        node.put(b, DSInt.valueOf(1));
+        Assert.assertEquals(all.get(), 3);
+        Assert.assertEquals(onlyA.get(), 2);
+        Assert.assertEquals(onlyB.get(), 1);
+        allSub.close();
+        aSub.close();
+        Assert.assertTrue(node.isSubscribed());
+        node.put(a, DSInt.valueOf(3));
+        Assert.assertEquals(onlyA.get(), 2);
+        node.stop();
+        Assert.assertFalse(node.isSubscribed());
+    }
+
+    @Test
+    public void testConcurrency() throws Exception {
+        final DSNode node = new DSNode();
+        final DSInfo<?> a = node.put("a", DSInt.valueOf(0));
+        node.start();
+        node.stable();
+        final int fires = 20000;
+        final AtomicInteger all = new AtomicInteger();
+        final AtomicInteger onlyA = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        DSISubscription allSub = node.subscribe((event, n, child, data) -> all.incrementAndGet());
+        DSISubscription aSub = node.subscribe((event, n, child, data) -> {
+            onlyA.incrementAndGet();
+        }, a);
+        final CountDownLatch done = new CountDownLatch(4);
+        final AtomicBoolean firing = new AtomicBoolean(true);
+        for (int t = 0; t < 4; t++) {
+            final boolean useChild = (t % 2) == 0;
+            new Thread(() -> {
+                try {
+                    while (firing.get()) {
+                        DSISubscription sub = node.subscribe((event, n, child, data) -> {
+                        }, useChild ? a : null);
+                        Assert.assertTrue(node.isSubscribed());
+                        sub.close();
+                    }
+                } catch (Throwable x) {
+                    failure.set(x);
+                }
+                done.countDown();
+            }).start();
+        }
+        for (int i = 1; i <= fires; i++) {
+            node.put(a, DSInt.valueOf(i));
+        }
+        firing.set(false);
+        done.await();
+        Assert.assertNull(failure.get());
+        //every fire must reach the subscribers that were there the whole time, exactly once
+        Assert.assertEquals(all.get(), fires);
+        Assert.assertEquals(onlyA.get(), fires);
+        allSub.close();
+        Assert.assertTrue(node.isSubscribed());
+        aSub.close();
+        Assert.assertFalse(node.isSubscribed());
+    }
+
     @Test
     public void theTest() throws Exception {
         link = new V1TestLink(new DSMainNode());
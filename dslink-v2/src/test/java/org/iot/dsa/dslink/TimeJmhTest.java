@@ -0,0 +1,106 @@
+package org.iot.dsa.dslink;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.iot.dsa.time.Time;
+import org.iot.dsa.time.TimeCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Compares TimeCodec to the Calendar based encoding and decoding in Time, which share a two
+ * instance calendar cache.  Run with several threads to see the contention on that cache.
+ */
+@State(Scope.Thread)
+public class TimeJmhTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private StringBuilder buf = new StringBuilder();
+    private char[] chars = new char[TimeCodec.MAX_LENGTH];
+    private String encoded;
+    private long millis;
+    private TimeZone timeZone;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Public Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Benchmark
+    public long calendarDecode() {
+        Calendar cal = Time.getCalendar();
+        Time.decode(encoded, cal);
+        long ret = cal.getTimeInMillis();
+        Time.recycle(cal);
+        return ret;
+    }
+
+    @Benchmark
+    public int calendarEncode() {
+        buf.setLength(0);
+        Calendar cal = Time.getCalendar(nextMillis(), timeZone);
+        Time.encode(cal, true, buf);
+        Time.recycle(cal);
+        return buf.length();
+    }
+
+    @Benchmark
+    public long codecDecode() {
+        return TimeCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public int codecEncode() {
+        return TimeCodec.encode(nextMillis(), timeZone, true, chars, 0);
+    }
+
+    //@Test
+    public void runBenchmark() throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(this.getClass().getName() + ".*")
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .warmupTime(TimeValue.seconds(2))
+                .warmupIterations(3)
+                .measurementTime(TimeValue.seconds(2))
+                .measurementIterations(3)
+                .threads(4)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setup() {
+        timeZone = TimeZone.getTimeZone("America/Los_Angeles");
+        millis = System.currentTimeMillis();
+        encoded = Time.encode(millis, timeZone).toString();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Private Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Advances a second at a time, like a stream of updates.
+     */
+    private long nextMillis() {
+        millis += 1000;
+        return millis;
+    }
+
+}
@@ -1,8 +1,12 @@
 package org.iot.dsa.dslink;
 
 import java.util.Calendar;
+import java.util.Random;
+import java.util.SimpleTimeZone;
 import java.util.TimeZone;
+import org.iot.dsa.time.DSDateTime;
 import org.iot.dsa.time.Time;
+import org.iot.dsa.time.TimeCodec;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -203,6 +207,91 @@ public class TimeTest {
         validateEqual(cal, make(2016, 0, 1, 0, 0, 0));
     }
 
+    /**
+     * Compares the codec to the calendar based encoding and decoding.
+     */
+    @Test
+    public void testCodec() {
+        String[] zones = new String[]{
+                "UTC", "America/Los_Angeles", "Asia/Kolkata", "America/St_Johns",
+                "Australia/Lord_Howe", "Europe/London", "Pacific/Apia"
+        };
+        Random random = new Random(1);
+        char[] chars = new char[TimeCodec.MAX_LENGTH];
+        for (int i = 0; i < 20000; i++) {
+            //1500 to 9999, so some are before the gregorian cutover
+            long millis = (long) (random.nextDouble() * 268000000000000L) - 14676000000000L;
+            TimeZone tz = TimeZone.getTimeZone(zones[i % zones.length]);
+            Calendar cal = Calendar.getInstance(tz);
+            cal.setTimeInMillis(millis);
+            String expected = Time.encode(cal, true, null).toString();
+            int len = TimeCodec.encode(millis, tz, true, chars, 0);
+            Assert.assertEquals(new String(chars, 0, len), expected);
+            expected = Time.encode(cal, false, null).toString();
+            len = TimeCodec.encode(millis, tz, false, chars, 0);
+            Assert.assertEquals(new String(chars, 0, len), expected);
+            if ((tz.getOffset(millis) % Time.MILLIS_MINUTE) != 0) {
+                continue; //local mean time, the encoding can't express the seconds
+            }
+            Assert.assertEquals(TimeCodec.decode(Time.encode(cal, true, null)), millis);
+            long local = TimeCodec.decode(expected, tz);
+            Assert.assertEquals(local, Time.decode(expected, Calendar.getInstance(tz))
+                                           .getTimeInMillis(), expected);
+            if (local != millis) { //only in the repeated hour of a transition back
+                Assert.assertEquals(TimeCodec.encode(local, tz, false, null).toString(),
+                                    expected);
+            }
+        }
+        //optional parts of the encoding
+        String[] encodings = new String[]{
+                "2016-01-01T00:00:00", "2016-01-01T00:00:00.123456", "2016-01-01T00:00:00Z",
+                "2016-07-01T12:30:45.500+05", "2016-07-01T12:30:45.500-03:30",
+                "2016-07-01T12:30:45.500000-00:00"
+        };
+        for (String enc : encodings) {
+            Calendar cal = Time.decode(enc, Calendar.getInstance());
+            Assert.assertEquals(TimeCodec.decode(enc), cal.getTimeInMillis(), enc);
+        }
+        //local times at a transition resolve the way a Calendar does, the repeated hour to
+        //standard time and the skipped hour to the offset before it
+        TimeZone ny = TimeZone.getTimeZone("America/New_York");
+        String[] transitions = new String[]{
+                "2003-10-26T01:15:05.879", "2044-11-06T01:29:41.785", "2016-03-13T02:30:00.000"
+        };
+        for (String enc : transitions) {
+            Calendar cal = Time.decode(enc, Calendar.getInstance(ny));
+            Assert.assertEquals(TimeCodec.decode(enc, ny), cal.getTimeInMillis(), enc);
+        }
+        Assert.assertEquals(TimeCodec.encode(TimeCodec.decode(transitions[0], ny), ny, true, null)
+                                     .toString(), "2003-10-26T01:15:05.879-05:00");
+        Assert.assertEquals(TimeCodec.encode(TimeCodec.decode(transitions[1], ny), ny, true, null)
+                                     .toString(), "2044-11-06T01:29:41.785-05:00");
+        Assert.assertEquals(TimeCodec.encode(TimeCodec.decode(transitions[2], ny), ny, true, null)
+                                     .toString(), "2016-03-13T03:30:00.000-04:00");
+        //timezones of decoded timestamps
+        TimeZone def = TimeZone.getDefault();
+        Assert.assertEquals(DSDateTime.valueOf("2016-01-01T00:00:00").getTimeZone(), def);
+        Assert.assertEquals(DSDateTime.valueOf("2016-01-01T00:00:00Z").getTimeZone().getID(),
+                            "GMT");
+        DSDateTime dt = DSDateTime.valueOf("2016-07-01T12:30:45.500+05:45");
+        Assert.assertEquals(dt.getTimeZone().getOffset(dt.timeInMillis()),
+                            (5 * Time.MILLIS_HOUR) + (45 * Time.MILLIS_MINUTE));
+        Assert.assertEquals(dt.toString(), "2016-07-01T12:30:45.500+05:45");
+        //zones that share an id but not rules
+        long millis = 1467376245500L;
+        TimeZone tz = new SimpleTimeZone(Time.MILLIS_HOUR, "Custom");
+        Assert.assertEquals(TimeCodec.getOffset(tz, millis), Time.MILLIS_HOUR);
+        tz = new SimpleTimeZone(2 * Time.MILLIS_HOUR, "Custom");
+        Assert.assertEquals(TimeCodec.getOffset(tz, millis), 2 * Time.MILLIS_HOUR);
+        int len = Time.encode(millis, tz, chars, 0);
+        Assert.assertEquals(new String(chars, 0, len), "2016-07-01T14:30:45.500+02:00");
+        try {
+            TimeCodec.decode("2016-01-01X00:00:00");
+            Assert.fail("Invalid timestamp decoded");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
     @Test
     public void testDecoding() {
         TimeZone timeZone = TimeZone.getTimeZone("America/Los_Angeles");
@@ -0,0 +1,137 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.test.V1TestLink;
+import com.acuity.iot.dsa.dslink.transport.DSTransport;
+import java.util.ArrayList;
+import java.util.List;
+import org.iot.dsa.dslink.requester.AbstractSubscribeHandler;
+import org.iot.dsa.dslink.requester.ErrorType;
+import org.iot.dsa.node.DSElement;
+import org.iot.dsa.node.DSInt;
+import org.iot.dsa.node.DSLong;
+import org.iot.dsa.node.DSStatus;
+import org.iot.dsa.time.DSDateTime;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Injects v1 subscription responses into the transport to exercise the streaming update parser
+ * as well as the fallback for responses it can't stream.
+ *
+ * @author Aaron Hansen
+ */
+public class V1SubscribeTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Class Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final String TS = "2020-01-01T00:00:00.000Z";
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Instance Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private final List<DSStatus> statuses = new ArrayList<>();
+    private final List<DSElement> values = new ArrayList<>();
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testUpdates() throws Exception {
+        DSLink link = new V1TestLink(new MyMain());
+        Thread t = new Thread(link, "DSLink Runner");
+        t.start();
+        try {
+            link.getConnection().waitForConnection(5000);
+            link.getConnection().getRequester().subscribe(
+                    "/main/int", DSLong.valueOf(0), new MyHandler());
+            waitForUpdates(1);
+            Assert.assertEquals(values.get(0), DSInt.valueOf(0));
+            //the only subscription, so its sid is 1
+            DSTransport transport = (DSTransport) link.getConnection().getTransport();
+            //list rows, with and without the optional status column
+            transport.write("{\"responses\":[{\"rid\":0,\"updates\":["
+                                    + "[1,11,\"" + TS + "\"],"
+                                    + "[1,12,\"" + TS + "\",\"stale\"]"
+                                    + "]}]}", true);
+            waitForUpdates(3);
+            assertUpdate(1, 11, DSStatus.ok);
+            assertUpdate(2, 12, DSStatus.stale);
+            //map rows with a status column, and a column that isn't understood
+            transport.write("{\"responses\":[{\"rid\":0,\"updates\":["
+                                    + "{\"sid\":1,\"value\":13,\"ts\":\"" + TS + "\","
+                                    + "\"status\":\"fault\",\"count\":1},"
+                                    + "{\"ts\":\"" + TS + "\",\"value\":14,\"sid\":1}"
+                                    + "]}]}", true);
+            waitForUpdates(5);
+            assertUpdate(3, 13, DSStatus.fault);
+            assertUpdate(4, 14, DSStatus.ok);
+            //the rid after the updates, which has to be decoded into a map first
+            transport.write("{\"responses\":[{\"updates\":["
+                                    + "[1,15,\"" + TS + "\",\"down\"],"
+                                    + "{\"sid\":1,\"value\":16,\"ts\":\"" + TS + "\"}"
+                                    + "],\"rid\":0}]}", true);
+            waitForUpdates(7);
+            assertUpdate(5, 15, DSStatus.down);
+            assertUpdate(6, 16, DSStatus.ok);
+            Assert.assertTrue(link.getConnection().isConnected());
+        } finally {
+            link.shutdown();
+        }
+    }
+
+    private void assertUpdate(int idx, int value, DSStatus status) {
+        synchronized (values) {
+            Assert.assertEquals(values.get(idx), DSInt.valueOf(value));
+            Assert.assertEquals(statuses.get(idx), status);
+        }
+    }
+
+    private void waitForUpdates(int count) throws Exception {
+        long end = System.currentTimeMillis() + 5000;
+        synchronized (values) {
+            while ((values.size() < count) && (System.currentTimeMillis() < end)) {
+                values.wait(100);
+            }
+            Assert.assertEquals(values.size(), count);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static class MyMain extends DSMainNode {
+
+        @Override
+        public void declareDefaults() {
+            declareDefault("int", DSInt.valueOf(0));
+        }
+
+    }
+
+    private class MyHandler extends AbstractSubscribeHandler {
+
+        @Override
+        public void onClose() {
+        }
+
+        @Override
+        public void onError(ErrorType type, String msg) {
+        }
+
+        @Override
+        public void onUpdate(DSDateTime dateTime, DSElement value, DSStatus status) {
+            synchronized (values) {
+                values.add(value);
+                statuses.add(status);
+                values.notifyAll();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,209 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.io.DSBufferPool;
+import com.acuity.iot.dsa.dslink.protocol.v2.DS2MessageReader;
+import com.acuity.iot.dsa.dslink.protocol.v2.DS2MessageWriter;
+import com.acuity.iot.dsa.dslink.protocol.v2.MessageConstants;
+import com.acuity.iot.dsa.dslink.transport.DSTransport;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.logging.Logger;
+import org.iot.dsa.node.DSBytes;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Multiple DSA 2.n messages packed into a single frame.
+ *
+ * @author Aaron Hansen
+ */
+public class V2FrameTest implements MessageConstants {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testDictionary() throws Exception {
+        MyTransport transport = new MyTransport();
+        transport.setText(false);
+        transport.open();
+        DS2MessageWriter writer = new DS2MessageWriter().setDictionary(true);
+        //defines the path
+        writer.init(1, -1);
+        writer.setMethod(MSG_SUBSCRIBE_REQ);
+        writer.addStringHeader(HDR_TARGET_PATH, "/main/a/long/path");
+        writer.write(transport);
+        int len = transport.out.size();
+        Assert.assertEquals(writer.getDictionarySize(), 1);
+        //a discarded message must not commit its definitions
+        writer.init(2, -1);
+        writer.addStringHeader(HDR_TARGET_PATH, "/main/discarded");
+        writer.init(2, -1);
+        writer.setMethod(MSG_INVOKE_REQ);
+        writer.addStringHeader(HDR_TARGET_PATH, "/main/a/long/path");
+        writer.addStringHeader(HDR_ERROR_DETAIL, "not in the dictionary");
+        writer.write(transport);
+        Assert.assertEquals(writer.getDictionarySize(), 1);
+        //the second definition is referenced by the same message
+        writer.init(3, -1);
+        writer.setMethod(MSG_SET_REQ);
+        writer.addStringHeader(HDR_SOURCE_PATH, "/main/discarded");
+        writer.addStringHeader(HDR_TARGET_PATH, "/main/discarded");
+        writer.write(transport);
+        Assert.assertEquals(writer.getDictionarySize(), 2);
+        InputStream in = new ByteArrayInputStream(transport.out.toByteArray());
+        DS2MessageReader reader = new DS2MessageReader();
+        reader.init(in);
+        Assert.assertEquals(reader.getHeader(HDR_TARGET_PATH), "/main/a/long/path");
+        Assert.assertEquals(reader.getDictionarySize(), 1);
+        reader.init(in);
+        Assert.assertEquals(reader.getRequestId(), 2);
+        Assert.assertEquals(reader.getHeader(HDR_TARGET_PATH), "/main/a/long/path");
+        Assert.assertEquals(reader.getHeader(HDR_ERROR_DETAIL), "not in the dictionary");
+        reader.init(in);
+        Assert.assertEquals(reader.getHeader(HDR_SOURCE_PATH), "/main/discarded");
+        Assert.assertEquals(reader.getHeader(HDR_TARGET_PATH), "/main/discarded");
+        Assert.assertEquals(reader.getDictionarySize(), 2);
+        Assert.assertEquals(in.available(), 0);
+        //a reference is smaller than the definition
+        transport.out.reset();
+        writer.init(4, -1);
+        writer.setMethod(MSG_SUBSCRIBE_REQ);
+        writer.addStringHeader(HDR_TARGET_PATH, "/main/a/long/path");
+        writer.write(transport);
+        Assert.assertTrue(transport.out.size() < len);
+    }
+
+    @Test
+    public void testFrame() throws Exception {
+        MyTransport transport = new MyTransport();
+        transport.setText(false);
+        transport.open();
+        DS2MessageWriter writer = new DS2MessageWriter();
+        writer.beginFrame();
+        for (int i = 1; i <= 3; i++) {
+            writer.init(i, -1);
+            writer.setMethod(MSG_ACK);
+            writer.getBody().putInt(i * 10, false);
+            writer.write(transport);
+        }
+        Assert.assertEquals(transport.writes, 0);
+        Assert.assertTrue(writer.getFrameLength() > 0);
+        writer.endFrame(transport);
+        Assert.assertEquals(transport.writes, 1);
+        Assert.assertEquals(writer.getFrameLength(), 0);
+        InputStream in = new ByteArrayInputStream(transport.out.toByteArray());
+        DS2MessageReader reader = new DS2MessageReader();
+        for (int i = 1; i <= 3; i++) {
+            reader.init(in);
+            Assert.assertEquals(reader.getMethod(), MSG_ACK);
+            Assert.assertEquals(reader.getRequestId(), i);
+            Assert.assertEquals(DSBytes.readInt(reader.getBody(), false), i * 10);
+        }
+        Assert.assertEquals(in.available(), 0);
+        //without a frame, each message is a single write
+        writer.init(4, -1);
+        writer.setMethod(MSG_ACK);
+        writer.getBody().putInt(40, false);
+        writer.write(transport);
+        Assert.assertEquals(transport.writes, 2);
+    }
+
+    @Test
+    public void testPooledFrames() throws Exception {
+        MyTransport transport = new MyTransport();
+        transport.setText(false);
+        transport.open();
+        DSBufferPool pool = new DSBufferPool();
+        DS2MessageWriter writer = new DS2MessageWriter(pool);
+        for (int i = 1; i <= 10; i++) {
+            writer.beginFrame();
+            writer.init(i, -1);
+            writer.setMethod(MSG_ACK);
+            writer.getBody().putInt(i, false);
+            writer.write(transport);
+            writer.endFrame(transport);
+        }
+        //the same buffer is reused for every frame, direct frames are copied through a scratch array
+        Assert.assertEquals(pool.getAllocations(), 1);
+        Assert.assertEquals(pool.getSize(), 1);
+        //a frame that outgrows its buffer is moved to a larger one
+        writer.beginFrame();
+        byte[] big = new byte[DSBufferPool.DEFAULT_BUFFER_SIZE];
+        for (int i = 11; i <= 12; i++) {
+            writer.init(i, -1);
+            writer.setMethod(MSG_ACK);
+            writer.getBody().put(big);
+            writer.write(transport);
+        }
+        writer.endFrame(transport);
+        Assert.assertEquals(transport.writes, 11);
+        InputStream in = new ByteArrayInputStream(transport.out.toByteArray());
+        DS2MessageReader reader = new DS2MessageReader();
+        for (int i = 1; i <= 12; i++) {
+            reader.init(in);
+            Assert.assertEquals(reader.getRequestId(), i);
+            if (i <= 10) {
+                Assert.assertEquals(DSBytes.readInt(reader.getBody(), false), i);
+            } else {
+                Assert.assertEquals(reader.getBodyLength(), big.length);
+                reader.getBody().skip(big.length);
+            }
+        }
+        Assert.assertEquals(in.available(), 0);
+        //transports that can't send direct buffers are given heap buffers
+        Assert.assertFalse(transport.isDirectWrite());
+        pool.setDirect(transport.isDirectWrite());
+        Assert.assertEquals(pool.getSize(), 0);
+        Assert.assertFalse(pool.take(1).isDirect());
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static class MyTransport extends DSTransport {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int writes = 0;
+
+        @Override
+        public void open() {
+            setOpen();
+        }
+
+        @Override
+        protected int available() {
+            return 0;
+        }
+
+        @Override
+        protected int doRead(byte[] buf, int off, int len) {
+            return -1;
+        }
+
+        @Override
+        protected int doRead(char[] buf, int off, int len) {
+            return -1;
+        }
+
+        @Override
+        protected void doWrite(byte[] buf, int off, int len, boolean isLast) {
+            out.write(buf, off, len);
+            writes++;
+        }
+
+        @Override
+        protected void doWrite(String msgPart, boolean isLast) {
+        }
+
+        @Override
+        protected Logger getTransportLogger() {
+            return Logger.getLogger("transport");
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+package org.iot.dsa.dslink;
+
+import com.acuity.iot.dsa.dslink.io.DSByteBuffer;
+import com.acuity.iot.dsa.dslink.protocol.requester.DSOutboundSubscriptions;
+import com.acuity.iot.dsa.dslink.protocol.v2.DS2MessageReader;
+import com.acuity.iot.dsa.dslink.protocol.v2.DS2MessageWriter;
+import com.acuity.iot.dsa.dslink.protocol.v2.MessageConstants;
+import com.acuity.iot.dsa.dslink.protocol.v2.requester.DS2Requester;
+import java.io.ByteArrayInputStream;
+import org.iot.dsa.io.DSIWriter;
+import org.iot.dsa.node.DSElement;
+import org.iot.dsa.time.DSDateTime;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Decoding of DSA 2.n subscription updates by the requester.
+ *
+ * @author Aaron Hansen
+ */
+public class V2SubscribeTest implements MessageConstants {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Fields
+    ///////////////////////////////////////////////////////////////////////////
+
+    private String lastStatus;
+    private DSDateTime lastTimestamp;
+    private DSElement lastValue;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Methods
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testPositional() throws Exception {
+        MyRequester requester = new MyRequester();
+        long millis = System.currentTimeMillis();
+        requester.handleResponse(read(encodePositional(1, millis, "stale", 10)));
+        Assert.assertEquals(lastTimestamp.timeInMillis(), millis);
+        Assert.assertEquals(lastStatus, "stale");
+        Assert.assertEquals(lastValue.toInt(), 10);
+        //status is omitted when ok
+        requester.handleResponse(read(encodePositional(1, millis + 1000, null, 11)));
+        Assert.assertEquals(lastTimestamp.timeInMillis(), millis + 1000);
+        Assert.assertNull(lastStatus);
+        Assert.assertEquals(lastValue.toInt(), 11);
+    }
+
+    @Test
+    public void testTimestamps() throws Exception {
+        MyRequester requester = new MyRequester();
+        long millis = System.currentTimeMillis();
+        //int64 timestamp
+        requester.handleResponse(read(encode(1, millis, "stale", 10)));
+        Assert.assertEquals(lastTimestamp.timeInMillis(), millis);
+        Assert.assertEquals(lastStatus, "stale");
+        Assert.assertEquals(lastValue.toInt(), 10);
+        //string timestamp, from a responder that doesn't support the header
+        String ts = DSDateTime.valueOf(millis + 1000).toString();
+        requester.handleResponse(read(encode(2, ts, null, 11)));
+        Assert.assertEquals(lastTimestamp.timeInMillis(), millis + 1000);
+        Assert.assertNull(lastStatus);
+        Assert.assertEquals(lastValue.toInt(), 11);
+        //the header is a flag without a value
+        DS2MessageWriter writer = new DS2MessageWriter();
+        writer.init(3, -1);
+        writer.setMethod(MSG_SUBSCRIBE_REQ);
+        writer.addStringHeader(HDR_TARGET_PATH, "/main/int");
+        writer.addByteHeader(HDR_QOS, (byte) 0);
+        writer.addHeader(HDR_TIMESTAMP_MILLIS);
+        writer.addIntHeader(HDR_MIN_INTERVAL, 1000);
+        writer.addStringHeader(HDR_DEADBAND, "5%");
+        DS2MessageReader reader = read(writer.toByteArray());
+        Assert.assertEquals(reader.getHeader(HDR_TARGET_PATH), "/main/int");
+        Assert.assertNotNull(reader.getHeader(HDR_TIMESTAMP_MILLIS));
+        Assert.assertEquals(reader.getHeader(HDR_MIN_INTERVAL), 1000);
+        Assert.assertEquals(reader.getHeader(HDR_DEADBAND), "5%");
+    }
+
+    /**
+     * Encodes an update the way DS2InboundSubscription does.
+     */
+    private byte[] encode(int sid, Object timestamp, String status, int value) {
+        DS2MessageWriter writer = new DS2MessageWriter();
+        writer.init(sid, -1);
+        writer.setMethod(MSG_SUBSCRIBE_RES);
+        writer.addIntHeader(HDR_SEQ_ID, 0);
+        DSIWriter out = writer.getWriter();
+        DSByteBuffer body = writer.getBody();
+        body.skip(2);
+        int start = body.length();
+        out.beginMap();
+        if (timestamp instanceof Long) {
+            out.key("timestamp").value((Long) timestamp);
+        } else {
+            out.key("timestamp").value((String) timestamp);
+        }
+        if (status != null) {
+            out.key("status").value(status);
+        }
+        out.endMap();
+        body.replaceShort(start - 2, (short) (body.length() - start), false);
+        out.reset();
+        out.value(value);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encodes an update the way DS2InboundSubscription does in positional mode.
+     */
+    private byte[] encodePositional(int sid, long timestamp, String status, int value) {
+        DS2MessageWriter writer = new DS2MessageWriter();
+        writer.init(sid, -1);
+        writer.setMethod(MSG_SUBSCRIBE_RES);
+        writer.addIntHeader(HDR_SEQ_ID, 0);
+        DSIWriter out = writer.getWriter();
+        DSByteBuffer body = writer.getBody();
+        body.skip(2);
+        int start = body.length();
+        out.beginList();
+        out.value(timestamp);
+        if (status != null) {
+            out.value(status);
+        }
+        out.endList();
+        body.replaceShort(start - 2, (short) (body.length() - start), false);
+        out.reset();
+        out.value(value);
+        return writer.toByteArray();
+    }
+
+    private DS2MessageReader read(byte[] message) {
+        DS2MessageReader reader = new DS2MessageReader();
+        reader.init(new ByteArrayInputStream(message));
+        return reader;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Inner Classes
+    ///////////////////////////////////////////////////////////////////////////
+
+    private class MyRequester extends DS2Requester {
+
+        @Override
+        protected DSOutboundSubscriptions makeSubscriptions() {
+            return new DSOutboundSubscriptions(this) {
+                @Override
+                public void handleUpdate(int sid, DSDateTime ts, String sts, DSElement value) {
+                    lastTimestamp = ts;
+                    lastStatus = sts;
+                    lastValue = value;
+                }
+            };
+        }
+
+    }
+
+}